@@ -1,9 +1,13 @@
 package bellman.ford;
 
-import java.awt.Color;
-import java.util.ArrayList;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;           
 import javax.swing.JFrame;               
+import javax.swing.SwingUtilities;
 
 /**
  * Main application class for the Bellman-Ford algorithm visualization.
@@ -11,20 +15,39 @@ import javax.swing.JFrame;
  */
 public class App 
 {
+    // The number of force-directed steps used to lay out a graph shown with --show.
+    private static final int LAYOUT_ITERATIONS = 300;
+    // The block size for --external: a block's state is 12 MB, the most the engine keeps on the heap.
+    private static final int DEFAULT_BLOCK_VERTICES = 1 << 20;
+
     public String getGreeting() 
     {
         return "Hello World!";
     }
 
-    public static void main(String[] args) throws InterruptedException 
+    public static void main(String[] args) throws IOException 
     {
-        // Set up the JSwing window and visualizer panel.
-        JFrame frame = new JFrame("Graph Visualizer");
-        GraphVisualizer panel = new GraphVisualizer();
-        frame.add(panel);
-        frame.setSize(700, 600);
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setVisible(true);
+        // A graph file given with --graph is solved headless, or shown with an automatic layout with --show.
+        String graphFile = option(args, "--graph");
+        // --external solves it out of core instead, from segment files written to the given directory.
+        String externalDirectory = option(args, "--external");
+        if (graphFile != null && externalDirectory != null)
+        {
+            String blockVertices = option(args, "--block-vertices");
+            solveExternal(Paths.get(graphFile), Paths.get(externalDirectory),
+                blockVertices != null ? Integer.parseInt(blockVertices) : DEFAULT_BLOCK_VERTICES);
+            return;
+        }
+        if (graphFile != null)
+        {
+            // --renumber bfs|rcm|degree renumbers the vertices for locality before solving.
+            solveFile(Paths.get(graphFile), option(args, "--renumber"));
+            if (Arrays.asList(args).contains("--show") && !GraphicsEnvironment.isHeadless())
+            {
+                showFile(Paths.get(graphFile));
+            }
+            return;
+        }
 
         // Create the graph using an adjacency list. The graph has 6 vertices.
         adjacencyList adjList = new adjacencyList(6); 
@@ -33,7 +56,8 @@ public class App
         adjList.addEdge(0,1,10);
         adjList.addEdge(1,3,2);
         adjList.addEdge(2,1,1);
-        adjList.addEdge(3,2,-2);
+        // --negative-cycle lowers C > B to -4, which makes A > C > B > A a cycle of weight -1.
+        adjList.addEdge(3,2,Arrays.asList(args).contains("--negative-cycle") ? -4 : -2);
         adjList.addEdge(4,1,-4);
         adjList.addEdge(4,3,-1);
         adjList.addEdge(5,4,1);
@@ -46,104 +70,304 @@ public class App
         adjList.keyMap.put(4,"D");
         adjList.keyMap.put(5,"E");
 
+        // Set up the JSwing window and visualizer panel, unless running headless.
+        GraphVisualizer panel = null;
+        boolean headless = GraphicsEnvironment.isHeadless() || Arrays.asList(args).contains("--headless");
+        // The visualizer's event ring takes a single producer, so the multi-core engine only runs headless.
+        if (!headless && Arrays.asList(args).contains("--parallel"))
+        {
+            System.err.println("--parallel runs headless only; add --headless");
+            return;
+        }
+        if (!headless)
+        {
+            JFrame frame = new JFrame("Graph Visualizer");
+            panel = new GraphVisualizer(adjList);
+            // --speed sets how many relaxation steps are shown per second; 0 shows them as fast as they arrive.
+            String speed = option(args, "--speed");
+            if (speed != null)
+            {
+                panel.setPlaybackSpeed(Double.parseDouble(speed));
+            }
+            frame.add(panel);
+            frame.setSize(700, 600);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setVisible(true);
+        }
+
+        // --replay shows a trace recorded with --trace instead of running the algorithm again.
+        String replayFile = option(args, "--replay");
+        if (replayFile != null && panel != null)
+        {
+            RelaxationTrace trace = RelaxationTrace.open(Paths.get(replayFile), adjList.freeze());
+            GraphVisualizer replayPanel = panel;
+            SwingUtilities.invokeLater(() -> new TracePlayer(replayPanel, trace));
+            System.out.println("Replaying " + trace.getPassCount() + " passes: Left/Right step one pass, Page Up/Down ten, Home/End jump.");
+            return;
+        }
+
         // Print the graph's adjacency list to the console.
-        for (int i = 0; i < adjList.adjList.size(); i ++)
+        for (int i = 0; i < adjList.getSize(); i ++)
         {
             System.out.println(adjList.edgesToString(i));
         }
 
-        // Run the Bellman-Ford algorithm and print the result.
-        System.out.println("\n\n Bellman Ford: " + Arrays.toString(bellmanFord(adjList,0, panel)));
+        // Pick the engine: the classic full sweep, the queue-based mode with --queue,
+        // Yen's forward/backward sweeps with --yen, or the multi-core mode with --parallel
+        // (headless only, checked above, since it skips per-edge callbacks).
+        ShortestPathEngine engine = BellmanFordSolver::solve;
+        ParallelBellmanFord parallelEngine = null;
+        if (Arrays.asList(args).contains("--queue"))
+        {
+            engine = QueueBellmanFord::solve;
+        }
+        else if (Arrays.asList(args).contains("--yen"))
+        {
+            // Yen's ordering: forward sweep in BFS order from the source, then backward in reverse.
+            int[] order = VertexOrderings.bfs().order(adjList.freeze(), 0);
+            if (panel != null)
+            {
+                // The panel paints the order on the Swing thread, so hand it over there.
+                GraphVisualizer shown = panel;
+                String traversal = VertexOrderings.describe(order, adjList.keyMap) + " (then reverse)";
+                SwingUtilities.invokeLater(() -> shown.setTraversalOrder(traversal));
+            }
+            engine = new OrderedBellmanFord(VertexOrderings.bfs());
+        }
+        else if (Arrays.asList(args).contains("--parallel"))
+        {
+            parallelEngine = new ParallelBellmanFord(Runtime.getRuntime().availableProcessors());
+            engine = parallelEngine;
+        }
+
+        // Run the Bellman-Ford algorithm and print the result, or the negative cycle it found.
+        ShortestPaths result = bellmanFord(adjList, 0, panel, engine);
+        NegativeCycle cycle = NegativeCycle.find(adjList.freeze(), result);
+        if (cycle == null)
+        {
+            System.out.println("\n\n Bellman Ford: " + Arrays.toString(result.getDistances()));
+            CompactGraph graph = adjList.freeze();
+            for (int v = 0; v < adjList.getSize(); v ++)
+            {
+                int[] path = result.pathTo(v);
+                if (path != null)
+                {
+                    // Turn the path's edges into the vertices they lead to, after the source.
+                    int[] vertices = new int[path.length + 1];
+                    vertices[0] = result.getSource();
+                    for (int i = 0; i < path.length; i ++)
+                    {
+                        vertices[i + 1] = graph.target(path[i]);
+                    }
+                    System.out.println("  " + VertexOrderings.describe(vertices, adjList.keyMap) + " (" + result.getDistances()[v] + ")");
+                }
+            }
+        }
+        else
+        {
+            System.out.println("\n\n Bellman Ford: negative cycle " + cycle.describe(adjList.keyMap)
+                + ", " + cycle.getNegativeInfinityCount() + " vertices have distance negative infinity");
+        }
+
+        // --trace records every distance improvement to a file that --replay can scrub through.
+        String traceFile = option(args, "--trace");
+        if (traceFile != null)
+        {
+            engine.solve(adjList.freeze(), 0, new TraceRecorder(Paths.get(traceFile), adjList.freeze()));
+            System.out.println("Trace written to " + traceFile);
+        }
+
+        // --metrics writes per-pass counters as JSON lines; --jfr reports them as Flight Recorder events.
+        String metricsFile = option(args, "--metrics");
+        if (metricsFile != null)
+        {
+            try (MetricsLog log = new MetricsLog(Paths.get(metricsFile)))
+            {
+                engine.solve(adjList.freeze(), 0, log);
+            }
+            System.out.println("Metrics written to " + metricsFile);
+        }
+        if (Arrays.asList(args).contains("--jfr"))
+        {
+            engine.solve(adjList.freeze(), 0, new JfrMetrics());
+        }
+        if (parallelEngine != null)
+        {
+            parallelEngine.shutdown();
+        }
 
         // Run the naive depth-first traversal approach for comparison.
-        adjList.naiveApproach(0);
-        System.out.println("Naive Approach: " + Arrays.toString(adjList.shortestPath));
+        if (adjList.naiveApproach(0))
+        {
+            System.out.println("Naive Approach: " + Arrays.toString(adjList.shortestPath));
+        }
+        else
+        {
+            System.out.println("Naive Approach: budget exhausted after " + adjList.naivePathsExplored + " paths, no result");
+        }
     }
 
     /**
-     * Implements the Bellman-Ford algorithm to find the shortest path from a source node to all other nodes.
-     * It also visualizes the process by updating the graph's display.
-     * @param adjList The adjacency list representation of the graph.
-     * @param src The source vertex for the shortest path calculation.
-     * @param graphVisualizer The visualizer object to update the graph's display.
-     * @return An integer array containing the shortest distances from the source to each vertex. Returns {-1} if a negative cycle is detected.
+     * Loads a graph file, runs Bellman-Ford from vertex 0 and prints a summary.
+     * Files starting with the binary graph header are memory-mapped; anything else is read as a text edge list.
+     * With an ordering name, the vertices are renumbered by it first and the result is mapped back to the file's ids.
+     * @param path The graph file.
+     * @param renumber The name of a VertexOrderings ordering to renumber by, or null to solve the graph as loaded.
+     * @throws IOException If the file can't be read.
      */
-    public static int[] bellmanFord(adjacencyList adjList, int src, GraphVisualizer graphVisualizer) throws InterruptedException
+    private static void solveFile(Path path, String renumber) throws IOException
     {
-        GraphVisualizer.pause(500);
-        graphVisualizer.updateNodeDistance("S", 0);
-
-        int[] shortestPath = new int[adjList.getSize()]; // Array to store the shortest distance to each vertex.
+        long start = System.nanoTime();
+        CompactGraph graph = GraphLoader.load(path);
+        long loaded = System.nanoTime();
+        System.out.println("Loaded " + graph.getSize() + " vertices and " + graph.getEdgeCount() + " edges in " + (loaded - start) / 1_000_000 + " ms");
+        VertexRenumbering renumbering = null;
+        if (renumber != null)
+        {
+            renumbering = VertexRenumbering.of(graph, VertexOrderings.named(renumber), 0);
+            long renumbered = System.nanoTime();
+            System.out.println("Renumbered by " + renumber + " in " + (renumbered - loaded) / 1_000_000 + " ms");
+            loaded = renumbered;
+        }
+        ShortestPaths result = renumbering == null ? BellmanFordSolver.solve(graph, 0)
+            : renumbering.restore(BellmanFordSolver.solve(renumbering.getGraph(), renumbering.toRenumbered(0)));
+        long solved = System.nanoTime();
 
-        // Initialize all distances to infinity, except for the source node.
-        for (int i = 0; i < shortestPath.length; i ++)
+        int reachable = 0;
+        for (int distance : result.getDistances())
+        {
+            if (distance != ShortestPaths.INFINITY)
+            {
+                reachable ++;
+            }
+        }
+        System.out.println("Bellman Ford: " + reachable + " reachable vertices, " + result.getPasses() + " passes, "
+            + (solved - loaded) / 1_000_000 + " ms");
+        NegativeCycle cycle = NegativeCycle.find(graph, result);
+        if (cycle != null)
         {
-            shortestPath[i] = Integer.MAX_VALUE;
+            System.out.println("Negative cycle of " + cycle.getVertices().length + " vertices, weight " + cycle.getWeight()
+                + "; " + cycle.getNegativeInfinityCount() + " vertices have distance negative infinity");
         }
+    }
 
-        shortestPath[src] = 0; // The distance to the source node is always 0.
+    /**
+     * Runs the out-of-core engine from vertex 0 and prints a summary. A binary graph file is first partitioned
+     * into segment files in the directory; a directory that already holds a segmented graph is used as it is.
+     * @param path A binary graph file, or a directory holding a segmented graph.
+     * @param directory The directory for the segments and the state file.
+     * @param blockVertices The number of vertices per block when partitioning.
+     * @throws IOException If the graph can't be read or the segments or state can't be written.
+     */
+    private static void solveExternal(Path path, Path directory, int blockVertices) throws IOException
+    {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        SegmentedGraph graph = Files.isDirectory(path) ? SegmentedGraph.open(path)
+            : SegmentedGraph.partition(path, directory, blockVertices);
+        long partitioned = System.nanoTime();
+        try (ExternalShortestPaths result = ExternalBellmanFord.solve(graph, 0, directory.resolve("state")))
+        {
+            long solved = System.nanoTime();
+            System.out.println("Partitioned " + graph.getSize() + " vertices and " + graph.getEdgeCount() + " edges into "
+                + graph.getBlockCount() + " blocks in " + (partitioned - start) / 1_000_000 + " ms");
+            System.out.println("Out-of-core Bellman Ford: " + result.getReachableCount() + " reachable vertices, " + result.getPasses()
+                + " passes, " + result.getBlocksSkipped() + " of " + (result.getBlocksScanned() + result.getBlocksSkipped())
+                + " block scans skipped, " + (solved - partitioned) / 1_000_000 + " ms");
+            if (result.hasNegativeCycle())
+            {
+                System.out.println("Negative cycle reachable from vertex 0");
+            }
+        }
+    }
 
-        int numCycles = 0; 
-        boolean notComplete = true; 
+    /**
+     * Opens a window showing a graph file. A layout cached from an earlier run is used directly; otherwise
+     * the graph starts on a circle and ForceDirectedLayout streams improving positions to the panel in the
+     * background, saving the final layout to the cache.
+     * @param path The graph file.
+     * @throws IOException If the file or its cached layout can't be read.
+     */
+    private static void showFile(Path path) throws IOException
+    {
+        CompactGraph graph = GraphLoader.load(path);
+        Path cacheDirectory = LayoutCache.defaultDirectory();
+        GraphLayout cached = LayoutCache.load(cacheDirectory, graph);
 
-        // The algorithm runs V-1 times, where V is the number of vertices.
-        // It runs one extra time to check for a negative cycle.
-        while (numCycles < shortestPath.length && notComplete)
+        JFrame frame = new JFrame("Graph Visualizer - " + path.getFileName());
+        GraphVisualizer panel = new GraphVisualizer(new adjacencyList(graph), cached != null ? cached : GraphLayout.circle(graph.getSize()));
+        frame.add(panel);
+        frame.setSize(900, 700);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setVisible(true);
+        if (cached != null)
         {
-            notComplete = false; 
+            return;
+        }
 
-            int index = 0; 
-            // Iterate through all edges in the graph (V-1 times).
-            while (index < shortestPath.length) 
-            {
-                if (shortestPath[index] < Integer.MAX_VALUE) // Check if the current vertex is reachable.
+        ForceDirectedLayout simulation = new ForceDirectedLayout(graph, LAYOUT_ITERATIONS, 1);
+        simulation.start(LAYOUT_ITERATIONS, 10,
+            layout -> SwingUtilities.invokeLater(() -> panel.updatePositions(layout)),
+            layout -> {
+                try
                 {
-                    ArrayList<Edge> currEdges = adjList.getEdges(index); // Get all edges from the current vertex.
-                    for (int i = 0; i < currEdges.size(); i ++) // Iterate through all adjacent edges.
-                    {
-                        int currDist = shortestPath[index];
-                        Edge currEdge = currEdges.get(i); 
-                        int currVertex = currEdge.vertex; 
-                        currDist += currEdge.weight; // Calculate the new path distance.
-                        
-                        // Visualize the edge being "relaxed" by turning it red.
-                        graphVisualizer.highlightEdge(adjList.keyMap.get(index), adjList.keyMap.get(currVertex), Color.RED);
-                        GraphVisualizer.pause(1000);
-
-                        // If a shorter path is found, update the shortest distance.
-                        if (currDist < shortestPath[currVertex]) 
-                        {
-                            shortestPath[currVertex] = currDist; 
-
-                            // Update the visualization to show the shorter path in green.
-                            graphVisualizer.updateNodeDistance(adjList.keyMap.get(currVertex), shortestPath[currVertex]);
-                            graphVisualizer.highlightEdge(adjList.keyMap.get(index), adjList.keyMap.get(currVertex), Color.GREEN);
-                            GraphVisualizer.pause(1000);
-                            
-                            // Set the flag to true to continue the main loop, as a relaxation occurred.
-                            notComplete = true; 
-                        }
-
-                        // Reset the edge color to black after the relaxation check.
-                        graphVisualizer.highlightEdge(adjList.keyMap.get(index), adjList.keyMap.get(currVertex), Color.BLACK);
-                    }
+                    LayoutCache.save(cacheDirectory, graph, layout);
                 }
-                index ++; 
-            }
+                catch (IOException e)
+                {
+                    System.err.println("Could not cache the layout: " + e.getMessage());
+                }
+            });
+    }
 
-            numCycles++; 
-            graphVisualizer.numCycles = numCycles + 1; // Update the cycle count for the visualizer.
+    /**
+     * Reads the value following a command line option.
+     * @param args The command line arguments.
+     * @param name The option name, for example "--graph".
+     * @return The option value, or null if the option is missing.
+     */
+    static String option(String[] args, String name)
+    {
+        for (int i = 0; i + 1 < args.length; i ++)
+        {
+            if (args[i].equals(name))
+            {
+                return args[i + 1];
+            }
         }
+        return null;
+    }
 
-        // After V-1 iterations, if any edge is still being relaxed, there is a negative cycle.
-        if (notComplete) 
+    /**
+     * Implements the Bellman-Ford algorithm to find the shortest path from a source node to all other nodes.
+     * It also visualizes the process by updating the graph's display.
+     * The algorithm itself runs in BellmanFordSolver; this method attaches the visualizer as a listener.
+     * The result is returned as soon as the algorithm finishes, while the animation plays back on the Swing event thread.
+     * @param adjList The adjacency list representation of the graph.
+     * @param src The source vertex for the shortest path calculation.
+     * @param graphVisualizer The visualizer object to update the graph's display, or null to run headless.
+     * @return The distances and predecessors, and whether a negative cycle was detected; NegativeCycle.find extracts the cycle.
+     */
+    public static ShortestPaths bellmanFord(adjacencyList adjList, int src, GraphVisualizer graphVisualizer)
+    {
+        return bellmanFord(adjList, src, graphVisualizer, BellmanFordSolver::solve);
+    }
+
+    /**
+     * Runs a chosen shortest path engine with the same contract as bellmanFord above.
+     * @param adjList The adjacency list representation of the graph.
+     * @param src The source vertex for the shortest path calculation.
+     * @param graphVisualizer The visualizer object to update the graph's display, or null to run headless.
+     * @param engine The engine to run, for example BellmanFordSolver::solve or QueueBellmanFord::solve.
+     * @return The distances and predecessors, and whether a negative cycle was detected; NegativeCycle.find extracts the cycle.
+     */
+    public static ShortestPaths bellmanFord(adjacencyList adjList, int src, GraphVisualizer graphVisualizer, ShortestPathEngine engine)
+    {
+        RelaxationListener listener = null;
+        if (graphVisualizer != null)
         {
-            int[] retArr = {-1};
-            return retArr;
+            listener = new VisualizerListener(graphVisualizer);
         }
-        
-        // If no negative cycles are found, highlight the entire graph as complete.
-        graphVisualizer.complete(); 
-        return shortestPath; 
+        return engine.solve(adjList.freeze(), src, listener);
     }
 }
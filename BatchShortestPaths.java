@@ -0,0 +1,452 @@
+package bellman.ford;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers shortest path queries from many sources on the same graph.
+ * Sources are shared out to a fixed pool of worker threads; each worker allocates its scratch arrays once
+ * and reuses them for every source it takes. Results are kept in a ShortestPathCache keyed by graph version
+ * and source, so repeated queries on an unchanged graph are answered without running anything.
+ *
+ * Each source is solved with QueueBellmanFord by default. With Johnson's reweighting, one Bellman-Ford run
+ * from a virtual source connected to every vertex gives each vertex a potential h, every edge weight
+ * w(u, v) + h(u) - h(v) is then non-negative, and each source is solved with Dijkstra's algorithm in
+ * O(E log V) instead of up to O(VE). This is the better choice for all-pairs queries on graphs with negative
+ * edges. If the graph has a negative cycle anywhere, reweighting is impossible and every source falls back
+ * to QueueBellmanFord, which reports whether the cycle is reachable from that source.
+ */
+public class BatchShortestPaths
+{
+    private final ExecutorService pool;
+    private final int threads;
+    private final ShortestPathCache cache;
+
+    /**
+     * Constructs a batch solver with its own worker threads and result cache.
+     * @param threads The number of worker threads.
+     * @param cacheCapacity The number of results to keep in the cache; 0 disables caching.
+     */
+    public BatchShortestPaths(int threads, int cacheCapacity)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        this.cache = new ShortestPathCache(cacheCapacity);
+        this.pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "batch-shortest-paths");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the result cache, for example to check its hit rate.
+     * @return The cache.
+     */
+    public ShortestPathCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Stops the worker threads. The solver cannot be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Finds the shortest paths from every vertex to every other vertex using Johnson's reweighting.
+     * The results take V * V * 8 bytes, so this is only practical for graphs of up to a few thousand vertices.
+     * @param graph The graph to search.
+     * @return One result per source vertex, indexed by source.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers.
+     */
+    public ShortestPaths[] allPairs(CompactGraph graph) throws InterruptedException
+    {
+        int[] sources = new int[graph.getSize()];
+        for (int v = 0; v < sources.length; v ++)
+        {
+            sources[v] = v;
+        }
+        return solve(graph, sources, true);
+    }
+
+    /**
+     * Finds the shortest paths from each of several sources. Cached results are reused and new ones are cached.
+     * @param graph The graph to search.
+     * @param sources The source vertices.
+     * @param johnson True to use Johnson's reweighting and Dijkstra, false to run QueueBellmanFord per source.
+     * @return One result per entry of sources, in the same order. Results may be shared with the cache and must not be modified.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers.
+     */
+    public ShortestPaths[] solve(CompactGraph graph, int[] sources, boolean johnson) throws InterruptedException
+    {
+        long version = graph.version();
+        ShortestPaths[] results = new ShortestPaths[sources.length];
+        int[] missing = new int[sources.length];
+        int missingCount = 0;
+        for (int i = 0; i < sources.length; i ++)
+        {
+            if (sources[i] < 0 || sources[i] >= graph.getSize())
+            {
+                throw new IndexOutOfBoundsException("Source " + sources[i] + " is outside a graph of " + graph.getSize() + " vertices");
+            }
+            results[i] = cache.get(version, sources[i]);
+            if (results[i] == null)
+            {
+                missing[missingCount ++] = i;
+            }
+        }
+        if (missingCount == 0)
+        {
+            return results;
+        }
+
+        // Reweight once for the whole batch; a null potential means a negative cycle, so fall back.
+        long[] potentials = johnson ? potentials(graph) : null;
+        long[] reweighted = potentials != null ? reweight(graph, potentials) : null;
+
+        // Each worker takes the next missing source until none are left.
+        AtomicInteger next = new AtomicInteger();
+        int total = missingCount;
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < Math.min(threads, missingCount); t ++)
+        {
+            workers.add(() -> {
+                QueueBellmanFord.Workspace queueWorkspace = null;
+                DijkstraWorkspace dijkstraWorkspace = null;
+                for (int k = next.getAndIncrement(); k < total; k = next.getAndIncrement())
+                {
+                    int i = missing[k];
+                    ShortestPaths result;
+                    if (reweighted != null)
+                    {
+                        if (dijkstraWorkspace == null)
+                        {
+                            dijkstraWorkspace = new DijkstraWorkspace(graph.getSize());
+                        }
+                        result = dijkstra(graph, reweighted, potentials, sources[i], dijkstraWorkspace);
+                    }
+                    else
+                    {
+                        if (queueWorkspace == null)
+                        {
+                            queueWorkspace = new QueueBellmanFord.Workspace(graph.getSize());
+                        }
+                        result = QueueBellmanFord.solve(graph, sources[i], null, queueWorkspace);
+                    }
+                    results[i] = result;
+                    cache.put(version, result);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(workers))
+        {
+            try
+            {
+                future.get();
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("A batch worker failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Computes Johnson's vertex potentials: the shortest distance to each vertex from a virtual source with a
+     * zero-weight edge to every vertex. It runs the queue-based Bellman-Ford with every vertex starting at 0.
+     * @param graph The graph.
+     * @return The potential of each vertex, or null if the graph has a negative cycle.
+     */
+    static long[] potentials(CompactGraph graph)
+    {
+        int vertexCount = graph.getSize();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        long[] potential = new long[vertexCount];
+        int[] relaxCount = new int[vertexCount];
+        long[] inQueue = new long[(vertexCount + 63) >>> 6];
+        int[] queue = new int[vertexCount];
+        int head = 0;
+        int size = vertexCount;
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            queue[v] = v;
+            inQueue[v >>> 6] |= 1L << v;
+        }
+
+        while (size > 0)
+        {
+            int u = queue[head];
+            head = head + 1 == vertexCount ? 0 : head + 1;
+            size --;
+            inQueue[u >>> 6] &= ~(1L << u);
+            for (int e = offsets[u]; e < offsets[u + 1]; e ++)
+            {
+                int v = targets[e];
+                long candidate = potential[u] + weights[e];
+                if (candidate < potential[v])
+                {
+                    potential[v] = candidate;
+                    relaxCount[v] = relaxCount[u] + 1;
+                    // Paths from the virtual source have at most V edges after it unless they repeat a vertex.
+                    if (relaxCount[v] >= vertexCount)
+                    {
+                        return null;
+                    }
+                    if ((inQueue[v >>> 6] & (1L << v)) == 0)
+                    {
+                        int tail = head + size;
+                        queue[tail >= vertexCount ? tail - vertexCount : tail] = v;
+                        size ++;
+                        inQueue[v >>> 6] |= 1L << v;
+                    }
+                }
+            }
+        }
+        return potential;
+    }
+
+    /**
+     * Computes the reweighted edge weights w(u, v) + h(u) - h(v), which are all non-negative.
+     * They are kept as longs since they can exceed the int range.
+     * @param graph The graph.
+     * @param potentials The vertex potentials.
+     * @return The reweighted weight of each edge, parallel to the graph's CSR edges.
+     */
+    private static long[] reweight(CompactGraph graph, long[] potentials)
+    {
+        long[] reweighted = new long[graph.getEdgeCount()];
+        for (int u = 0; u < graph.getSize(); u ++)
+        {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e ++)
+            {
+                reweighted[e] = graph.weights[e] + potentials[u] - potentials[graph.targets[e]];
+            }
+        }
+        return reweighted;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm on the reweighted graph and converts the distances back to the original weights.
+     * @param graph The graph.
+     * @param reweighted The non-negative reweighted edge weights.
+     * @param potentials The vertex potentials used to reweight.
+     * @param src The source vertex.
+     * @param workspace The worker's scratch arrays.
+     * @return The distances and predecessors under the original weights.
+     */
+    private static ShortestPaths dijkstra(CompactGraph graph, long[] reweighted, long[] potentials, int src, DijkstraWorkspace workspace)
+    {
+        int vertexCount = graph.getSize();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        long[] dist = workspace.dist;
+        long[] predecessorLinks = new long[vertexCount];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        Arrays.fill(predecessorLinks, ShortestPaths.NO_LINK);
+        workspace.clear();
+
+        dist[src] = 0;
+        workspace.push(src);
+        long edgesScanned = 0;
+        while (!workspace.isEmpty())
+        {
+            int u = workspace.pop();
+            edgesScanned += offsets[u + 1] - offsets[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e ++)
+            {
+                int v = targets[e];
+                long candidate = dist[u] + reweighted[e];
+                if (candidate < dist[v])
+                {
+                    dist[v] = candidate;
+                    predecessorLinks[v] = ShortestPaths.link(u, e);
+                    workspace.pushOrDecrease(v);
+                }
+            }
+        }
+
+        // Undo the reweighting: d(src, v) = d'(src, v) - h(src) + h(v).
+        int[] distances = new int[vertexCount];
+        boolean saturated = false;
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            if (dist[v] == Long.MAX_VALUE)
+            {
+                distances[v] = ShortestPaths.INFINITY;
+                continue;
+            }
+            long distance = dist[v] - potentials[src] + potentials[v];
+            saturated |= Distances.saturates(distance); // The true distance does not fit in an int distance.
+            distances[v] = distance >= ShortestPaths.INFINITY ? ShortestPaths.INFINITY : Distances.clamp(distance);
+            if (distances[v] == ShortestPaths.INFINITY)
+            {
+                predecessorLinks[v] = ShortestPaths.NO_LINK;
+            }
+        }
+        int[] predecessors = new int[vertexCount];
+        int[] predecessorEdges = new int[vertexCount];
+        ShortestPaths.unlink(predecessorLinks, predecessors, predecessorEdges);
+        return new ShortestPaths(src, distances, predecessors, predecessorEdges, false, 1, edgesScanned, saturated, ShortestPaths.NO_PREDECESSOR);
+    }
+
+    /**
+     * One worker's Dijkstra scratch space: tentative distances and an indexed binary min-heap of vertices
+     * ordered by them, with each vertex's heap position so its key can be decreased in place.
+     */
+    private static final class DijkstraWorkspace
+    {
+        final long[] dist;
+        private final int[] heap;
+        // The heap index of each vertex, or -1 if it is not in the heap.
+        private final int[] position;
+        private int size = 0;
+
+        /**
+         * Allocates the scratch arrays for a graph.
+         * @param vertexCount The number of vertices in the graph.
+         */
+        DijkstraWorkspace(int vertexCount)
+        {
+            dist = new long[vertexCount];
+            heap = new int[vertexCount];
+            position = new int[vertexCount];
+            Arrays.fill(position, -1);
+        }
+
+        /**
+         * Empties the heap left over from the previous run.
+         */
+        void clear()
+        {
+            for (int i = 0; i < size; i ++)
+            {
+                position[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        /**
+         * Returns whether the heap is empty.
+         * @return True if no vertex is waiting.
+         */
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        /**
+         * Adds a vertex, keyed by its current dist entry.
+         * @param v The vertex.
+         */
+        void push(int v)
+        {
+            heap[size] = v;
+            position[v] = size;
+            siftUp(size ++);
+        }
+
+        /**
+         * Adds a vertex, or moves it up if it is already in the heap and its dist entry has dropped.
+         * @param v The vertex.
+         */
+        void pushOrDecrease(int v)
+        {
+            if (position[v] < 0)
+            {
+                push(v);
+            }
+            else
+            {
+                siftUp(position[v]);
+            }
+        }
+
+        /**
+         * Removes the vertex with the smallest distance.
+         * @return The vertex.
+         */
+        int pop()
+        {
+            int top = heap[0];
+            position[top] = -1;
+            size --;
+            if (size > 0)
+            {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        /**
+         * Moves the vertex at a heap index up until its parent is no larger.
+         * @param i The heap index.
+         */
+        private void siftUp(int i)
+        {
+            int v = heap[i];
+            while (i > 0)
+            {
+                int parent = (i - 1) >>> 1;
+                if (dist[heap[parent]] <= dist[v])
+                {
+                    break;
+                }
+                heap[i] = heap[parent];
+                position[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+
+        /**
+         * Moves the vertex at a heap index down until its children are no smaller.
+         * @param i The heap index.
+         */
+        private void siftDown(int i)
+        {
+            int v = heap[i];
+            while (true)
+            {
+                int child = 2 * i + 1;
+                if (child >= size)
+                {
+                    break;
+                }
+                if (child + 1 < size && dist[heap[child + 1]] < dist[heap[child]])
+                {
+                    child ++;
+                }
+                if (dist[heap[child]] >= dist[v])
+                {
+                    break;
+                }
+                heap[i] = heap[child];
+                position[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * A headless Bellman-Ford engine that runs on a CompactGraph.
+ * It has no dependency on Swing; visualization is attached through an optional RelaxationListener.
+ */
+public final class BellmanFordSolver
+{
+    private BellmanFordSolver()
+    {
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices without a listener.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    public static ShortestPaths solve(CompactGraph graph, int src)
+    {
+        return solve(graph, src, null);
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices.
+     * The edges are swept in vertex index order until a pass makes no change. If changes are
+     * still happening after V passes, a negative cycle is reachable from the source.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @param listener The listener to notify of each relaxation, or null to run headless.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    public static ShortestPaths solve(CompactGraph graph, int src, RelaxationListener listener)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        int vertexCount = graph.getSize();
+
+        int[] shortestPath = new int[vertexCount];
+        // Each improvement records the predecessor and its edge in one long, so it touches one array entry.
+        long[] predecessorLinks = new long[vertexCount];
+        Arrays.fill(shortestPath, ShortestPaths.INFINITY);
+        Arrays.fill(predecessorLinks, ShortestPaths.NO_LINK);
+        shortestPath[src] = 0;
+
+        boolean saturated = false;
+        boolean listening = listener != null;
+        boolean edgeEvents = listening && listener.wantsEdgeEvents();
+        PassMeter meter = null;
+        if (listening)
+        {
+            listener.started(src);
+            // Started after the listener, so the first pass isn't charged for the listener's setup.
+            meter = new PassMeter(vertexCount);
+        }
+
+        int numCycles = 0;
+        long edgesScanned = 0;
+        boolean notComplete = true;
+        // The last vertex lowered, so a negative cycle can be traced back from the final pass.
+        int lastImproved = ShortestPaths.NO_PREDECESSOR;
+
+        // The algorithm runs V-1 times, where V is the number of vertices.
+        // It runs one extra time to check for a negative cycle.
+        while (numCycles < vertexCount && notComplete)
+        {
+            notComplete = false;
+            for (int u = 0; u < vertexCount; u ++)
+            {
+                int du = shortestPath[u];
+                if (du == ShortestPaths.INFINITY) // Skip vertices that are not reachable yet.
+                {
+                    continue;
+                }
+                int end = offsets[u + 1];
+                edgesScanned += end - offsets[u];
+                for (int e = offsets[u]; e < end; e ++)
+                {
+                    int v = targets[e];
+                    if (edgeEvents)
+                    {
+                        listener.edgeScanned(u, v, e);
+                    }
+                    long currDist = (long) shortestPath[u] + weights[e]; // Computed in long so it cannot wrap.
+                    saturated |= Distances.saturates(currDist); // The true distance does not fit in an int distance.
+                    if (currDist < shortestPath[v])
+                    {
+                        shortestPath[v] = Distances.clamp(currDist);
+                        predecessorLinks[v] = ShortestPaths.link(u, e);
+                        lastImproved = v;
+                        notComplete = true;
+                        if (listening)
+                        {
+                            meter.improved(v);
+                            if (edgeEvents)
+                            {
+                                listener.distanceImproved(u, v, e, shortestPath[v]);
+                            }
+                        }
+                    }
+                    if (edgeEvents)
+                    {
+                        listener.edgeFinished(u, v, e);
+                    }
+                }
+            }
+            numCycles ++;
+            if (listening)
+            {
+                PassMetrics metrics = meter.passCompleted(edgesScanned);
+                listener.passCompleted(numCycles);
+                listener.passMeasured(metrics);
+                meter.startPass();
+            }
+        }
+
+        // After V iterations, if any edge was still relaxed, there is a negative cycle.
+        int[] predecessors = new int[vertexCount];
+        int[] predecessorEdges = new int[vertexCount];
+        ShortestPaths.unlink(predecessorLinks, predecessors, predecessorEdges);
+        ShortestPaths result = new ShortestPaths(src, shortestPath, predecessors, predecessorEdges, notComplete, numCycles, edgesScanned, saturated,
+            notComplete ? lastImproved : ShortestPaths.NO_PREDECESSOR);
+        if (listening)
+        {
+            listener.completed(result);
+        }
+        return result;
+    }
+}
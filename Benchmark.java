@@ -0,0 +1,483 @@
+package bellman.ford;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A self-contained benchmark harness for graph construction, the headless Bellman-Ford engine,
+ * incremental updates against full recomputation, the naive approach, and sweeps over renumbered
+ * graphs. Each case is run over generated random, grid and scale-free graphs of growing size, with
+ * warm-up iterations before the measured ones so the JIT has compiled the hot loops.
+ * For every case it reports the median time per operation and the bytes allocated per operation
+ * by the benchmark thread, so regressions in either speed or garbage show up release to release.
+ * --renumbering runs only the renumbering cases, which are the ones worth running on graphs too
+ * large for the others. --layout runs only the comparison of the CSR arrays with the
+ * ArrayList<ArrayList<Edge>> layout they replaced.
+ *
+ * Usage: java bellman.ford.Benchmark [--max-edges N] [--warmup N] [--iterations N]
+ *        [--renumbering | --layout]
+ */
+public final class Benchmark
+{
+    // Used to read per-thread allocation counters.
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // The naive approach is exponential, so it gets a fixed path budget per run.
+    private static final long NAIVE_PATH_BUDGET = 10_000_000L;
+    // The number of weight changes timed together in the incremental update case.
+    private static final int UPDATES_PER_OP = 1_000;
+    // The modelled cache for the renumbering cases: 512 lines of 64 bytes, a typical L1 data cache.
+    private static final int MODELLED_CACHE_LINES = 512;
+    private static final int INTS_PER_LINE = 16;
+    // The number of relaxation passes timed together in the layout cases.
+    private static final int LAYOUT_PASSES = 3;
+    // The smallest graph the layout cases report retained heap for.
+    private static final int LAYOUT_MIN_EDGES = 500_000;
+
+    // Receives the results of every case; see GraphBenchmark in jmh/ for the Blackhole-based version.
+    private static volatile long consumed;
+
+    private Benchmark()
+    {
+    }
+
+    /**
+     * Runs every benchmark case and prints one result line per case.
+     * @param args Optional --max-edges, --warmup and --iterations settings, and --renumbering or
+     *        --layout.
+     */
+    public static void main(String[] args)
+    {
+        long maxEdges = longOption(args, "--max-edges", 10_000_000L);
+        int warmup = (int) longOption(args, "--warmup", 3);
+        int iterations = (int) longOption(args, "--iterations", 5);
+        boolean renumberingOnly = Arrays.asList(args).contains("--renumbering");
+        boolean layoutOnly = Arrays.asList(args).contains("--layout");
+
+        System.out.printf("%-12s %-14s %12s %14s %16s%n", "graph", "case", "edges", "ms/op", "bytes/op");
+        for (long edges = 1_000; edges <= maxEdges; edges *= 10)
+        {
+            int target = (int) edges;
+            int side = (int) Math.max(2, Math.sqrt(target / 4.0));
+            if (renumberingOnly)
+            {
+                renumbering("random", GraphGenerator.random(target / 4, target, 100, 42L).freeze(), warmup, iterations);
+                renumbering("grid", GraphGenerator.grid(side, side, 100, 42L).freeze(), warmup, iterations);
+                renumbering("scale-free", GraphGenerator.scaleFree(target / 4, 4, 100, 42L).freeze(), warmup, iterations);
+                continue;
+            }
+            if (layoutOnly)
+            {
+                layout("random", GraphGenerator.random(target / 4, target, 100, 42L).freeze(), warmup, iterations);
+                layout("grid", GraphGenerator.grid(side, side, 100, 42L).freeze(), warmup, iterations);
+                layout("scale-free", GraphGenerator.scaleFree(target / 4, 4, 100, 42L).freeze(), warmup, iterations);
+                continue;
+            }
+            run("random", GraphGenerator.random(target / 4, target, 100, 42L), warmup, iterations);
+            run("grid", GraphGenerator.grid(side, side, 100, 42L), warmup, iterations);
+            run("scale-free", GraphGenerator.scaleFree(target / 4, 4, 100, 42L), warmup, iterations);
+        }
+    }
+
+    /**
+     * Runs the construction, Bellman-Ford, update, naive and renumbering cases on one graph.
+     * @param name The graph family, used in the output.
+     * @param graph The graph to benchmark.
+     * @param warmup The number of unmeasured iterations.
+     * @param iterations The number of measured iterations.
+     */
+    private static void run(String name, adjacencyList graph, int warmup, int iterations)
+    {
+        CompactGraph compact = graph.freeze();
+        int vertexes = compact.getSize();
+        int edges = compact.getEdgeCount();
+        int[] sources = compact.sources();
+
+        measure(name, "addEdge", edges, warmup, iterations, () -> {
+            adjacencyList copy = new adjacencyList(vertexes, edges);
+            for (int e = 0; e < edges; e ++)
+            {
+                copy.addEdge(sources[e], compact.target(e), compact.weight(e));
+            }
+            return copy.freeze().getEdgeCount();
+        });
+
+        measure(name, "bellmanFord", edges, warmup, iterations, () -> App.bellmanFord(graph, 0, null).getDistances().length);
+
+        // Full recomputation with the queue-based engine, the fair baseline for the incremental
+        // updates below.
+        measure(name, "queueSolve", edges, warmup, iterations, () -> QueueBellmanFord.solve(compact, 0).getPasses());
+
+        // Random weight changes, both increases and decreases, each repaired incrementally.
+        DynamicShortestPaths dynamic = new DynamicShortestPaths(compact, 0);
+        SplittableRandom changes = new SplittableRandom(42L);
+        measure(name, "update", edges, warmup, iterations, UPDATES_PER_OP, () -> {
+            long scanned = 0;
+            for (int i = 0; i < UPDATES_PER_OP; i ++)
+            {
+                dynamic.updateWeight(changes.nextInt(edges), changes.nextInt(101));
+                scanned += dynamic.getLastEdgesScanned();
+            }
+            return (int) scanned;
+        });
+
+        boolean[] complete = new boolean[1];
+        measure(name, "naive", edges, warmup, iterations, () -> {
+            complete[0] = graph.naiveApproach(0, NAIVE_PATH_BUDGET, Long.MAX_VALUE);
+            return graph.shortestPath.length;
+        });
+        if (!complete[0])
+        {
+            System.out.printf("%-12s %-14s %12s   budget of %d paths exhausted, time is for the budget only%n", name, "naive", "", NAIVE_PATH_BUDGET);
+        }
+
+        renumbering(name, compact, warmup, iterations);
+    }
+
+    /**
+     * Compares the CSR arrays with the ArrayList<ArrayList<Edge>> layout adjacencyList used before them.
+     * Both layouts are copied from the graph and the heap each one retains is read after a full GC, then
+     * LAYOUT_PASSES relaxation passes from vertex 0 are timed over each with the same loop.
+     * @param name The graph family, used in the output.
+     * @param graph The graph to benchmark.
+     * @param warmup The number of unmeasured iterations.
+     * @param iterations The number of measured iterations.
+     */
+    private static void layout(String name, CompactGraph graph, int warmup, int iterations)
+    {
+        int edges = graph.getEdgeCount();
+        long before = usedHeap();
+        CompactGraph csr = new CompactGraph(graph.offsets.clone(), graph.targets.clone(), graph.weights.clone());
+        long csrBytes = usedHeap() - before;
+        before = usedHeap();
+        ArrayList<ArrayList<Edge>> boxed = boxed(graph);
+        long boxedBytes = usedHeap() - before;
+
+        long boxedNanos = measure(name, "relax/boxed", edges, warmup, iterations, () -> relax(boxed));
+        long csrNanos = measure(name, "relax/csr", edges, warmup, iterations, () -> relax(csr));
+        long scanned = relax(csr);
+        layoutSummary(name, "relax/boxed", edges, boxedBytes, scanned, boxedNanos);
+        layoutSummary(name, "relax/csr", edges, csrBytes, scanned, csrNanos);
+        // Keeps the boxed lists reachable until their heap has been read.
+        Reference.reachabilityFence(boxed);
+    }
+
+    /**
+     * Prints the retained heap per edge and the relaxation rate of one layout.
+     * Below LAYOUT_MIN_EDGES the retained heap is within the heap's accounting granularity, so it is
+     * left out.
+     * @param name The graph family.
+     * @param label The case name.
+     * @param edges The number of edges in the graph.
+     * @param bytes The heap the layout retains.
+     * @param scanned The number of edges one timed run relaxes.
+     * @param nanos The median time of one run.
+     */
+    private static void layoutSummary(String name, String label, int edges, long bytes, long scanned, long nanos)
+    {
+        String heap = edges < LAYOUT_MIN_EDGES ? "" : String.format("%.1f bytes/edge retained, ", (double) bytes / edges);
+        System.out.printf("%-12s %-14s %12s   %s%.1f M relaxations/s%n", name, label, "", heap, scanned * 1e3 / Math.max(1, nanos));
+    }
+
+    /**
+     * Copies a graph into one ArrayList of boxed Edges per vertex, the layout adjacencyList had
+     * before CompactGraph.
+     * @param graph The graph.
+     * @return The out-edges of each vertex.
+     */
+    private static ArrayList<ArrayList<Edge>> boxed(CompactGraph graph)
+    {
+        ArrayList<ArrayList<Edge>> lists = new ArrayList<>();
+        for (int u = 0; u < graph.getSize(); u ++)
+        {
+            ArrayList<Edge> list = new ArrayList<>();
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e ++)
+            {
+                list.add(new Edge(graph.target(e), graph.weight(e)));
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    /**
+     * Runs LAYOUT_PASSES relaxation passes from vertex 0 over the boxed layout.
+     * @param lists The out-edges of each vertex.
+     * @return The number of edges relaxed.
+     */
+    private static int relax(ArrayList<ArrayList<Edge>> lists)
+    {
+        int[] distances = new int[lists.size()];
+        Arrays.fill(distances, ShortestPaths.INFINITY);
+        distances[0] = 0;
+        int scanned = 0;
+        for (int pass = 0; pass < LAYOUT_PASSES; pass ++)
+        {
+            for (int u = 0; u < distances.length; u ++)
+            {
+                if (distances[u] == ShortestPaths.INFINITY)
+                {
+                    continue;
+                }
+                for (Edge edge : lists.get(u))
+                {
+                    int candidate = distances[u] + edge.weight;
+                    if (candidate < distances[edge.vertex])
+                    {
+                        distances[edge.vertex] = candidate;
+                    }
+                }
+                scanned += lists.get(u).size();
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * Runs LAYOUT_PASSES relaxation passes from vertex 0 over the CSR arrays, with the same loop as
+     * the boxed layout.
+     * @param graph The graph.
+     * @return The number of edges relaxed.
+     */
+    private static int relax(CompactGraph graph)
+    {
+        int[] distances = new int[graph.getSize()];
+        Arrays.fill(distances, ShortestPaths.INFINITY);
+        distances[0] = 0;
+        int scanned = 0;
+        for (int pass = 0; pass < LAYOUT_PASSES; pass ++)
+        {
+            for (int u = 0; u < distances.length; u ++)
+            {
+                if (distances[u] == ShortestPaths.INFINITY)
+                {
+                    continue;
+                }
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e ++)
+                {
+                    int candidate = distances[u] + graph.weight(e);
+                    if (candidate < distances[graph.target(e)])
+                    {
+                        distances[graph.target(e)] = candidate;
+                    }
+                }
+                scanned += graph.edgeEnd(u) - graph.edgeStart(u);
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * Returns the heap in use after a full collection, for measuring what a structure retains.
+     * @return The used heap in bytes.
+     */
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i ++)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Shuffles the vertex ids of a graph, as a caller numbering vertices in arrival order would, then
+     * times BellmanFordSolver on the shuffled graph and on the graph renumbered by each built-in
+     * ordering. Renumbering also changes how many passes an in-place sweep needs, so each case is
+     * followed by its pass count, its time per edge scanned, which isolates the locality gain, and its
+     * misses per edge in a modelled cache. Hardware cache counters aren't readable from Java, so the
+     * modelled misses stand in for them.
+     * @param name The graph family, used in the output.
+     * @param graph The graph to benchmark.
+     * @param warmup The number of unmeasured iterations.
+     * @param iterations The number of measured iterations.
+     */
+    private static void renumbering(String name, CompactGraph graph, int warmup, int iterations)
+    {
+        VertexRenumbering shuffle = VertexRenumbering.of(graph, shuffled(42L), 0);
+        CompactGraph shuffled = shuffle.getGraph();
+        int src = shuffle.toRenumbered(0);
+        int edges = shuffled.getEdgeCount();
+        sweep(name, "sweep/shuffled", shuffled, src, warmup, iterations);
+
+        String[] names = { "bfs", "rcm", "degree" };
+        VertexOrdering[] orderings = { VertexOrderings.bfs(), VertexOrderings.reverseCuthillMcKee(), VertexOrderings.degree() };
+        for (int i = 0; i < orderings.length; i ++)
+        {
+            VertexOrdering ordering = orderings[i];
+            measure(name, "renumber/" + names[i], edges, warmup, iterations,
+                () -> VertexRenumbering.of(shuffled, ordering, src).getGraph().getEdgeCount());
+            VertexRenumbering renumbering = VertexRenumbering.of(shuffled, ordering, src);
+            sweep(name, "sweep/" + names[i], renumbering.getGraph(), renumbering.toRenumbered(src), warmup, iterations);
+        }
+    }
+
+    /**
+     * Times BellmanFordSolver on one graph and prints its passes, time per edge scanned and modelled
+     * misses per edge.
+     * @param name The graph family.
+     * @param label The case name.
+     * @param graph The graph.
+     * @param src The source vertex.
+     * @param warmup The number of unmeasured iterations.
+     * @param iterations The number of measured iterations.
+     */
+    private static void sweep(String name, String label, CompactGraph graph, int src, int warmup, int iterations)
+    {
+        long nanos = measure(name, label, graph.getEdgeCount(), warmup, iterations, () -> BellmanFordSolver.solve(graph, src).getPasses());
+        ShortestPaths result = BellmanFordSolver.solve(graph, src);
+        System.out.printf("%-12s %-14s %12s   %d passes, %.2f ns/edge scanned, %.3f modelled misses/edge%n", name, label, "",
+            result.getPasses(), (double) nanos / Math.max(1, result.getEdgesScanned()), modelledMisses(graph));
+    }
+
+    /**
+     * Counts the misses per edge of one sweep over a graph in a direct-mapped cache of
+     * MODELLED_CACHE_LINES lines holding the distance array. The sweep reads each vertex's distance,
+     * then the distance of each of its targets, in index order, the same accesses BellmanFordSolver
+     * makes.
+     * @param graph The graph.
+     * @return The number of misses divided by the number of edges.
+     */
+    private static double modelledMisses(CompactGraph graph)
+    {
+        long[] lines = new long[MODELLED_CACHE_LINES];
+        Arrays.fill(lines, -1);
+        long misses = 0;
+        for (int u = 0; u < graph.getSize(); u ++)
+        {
+            // The vertex's own distance, then its targets'.
+            misses += touch(lines, u);
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e ++)
+            {
+                misses += touch(lines, graph.target(e));
+            }
+        }
+        return (double) misses / Math.max(1, graph.getEdgeCount());
+    }
+
+    /**
+     * Accesses one distance in the modelled cache.
+     * @param lines The line held in each cache slot, or -1.
+     * @param vertex The vertex whose distance is accessed.
+     * @return 1 on a miss, otherwise 0.
+     */
+    private static int touch(long[] lines, int vertex)
+    {
+        int line = vertex / INTS_PER_LINE;
+        int slot = line % lines.length;
+        if (lines[slot] == line)
+        {
+            return 0;
+        }
+        lines[slot] = line;
+        return 1;
+    }
+
+    /**
+     * Returns an ordering that shuffles the vertices uniformly at random.
+     * @param seed The random seed.
+     * @return The shuffling ordering.
+     */
+    private static VertexOrdering shuffled(long seed)
+    {
+        return (graph, src) -> {
+            int[] order = VertexOrderings.identity().order(graph, src);
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = order.length - 1; i > 0; i --)
+            {
+                int j = random.nextInt(i + 1);
+                int temp = order[i];
+                order[i] = order[j];
+                order[j] = temp;
+            }
+            return order;
+        };
+    }
+
+    /**
+     * A benchmark body. It returns a value so the JIT cannot discard the work.
+     */
+    @FunctionalInterface
+    private interface Case
+    {
+        int run();
+    }
+
+    /**
+     * Times a case and prints its median time and mean allocation per operation.
+     * @param graph The graph family.
+     * @param name The case name.
+     * @param edges The number of edges in the graph.
+     * @param warmup The number of unmeasured iterations.
+     * @param iterations The number of measured iterations.
+     * @param body The code to measure.
+     * @return The median time of one run in nanoseconds.
+     */
+    private static long measure(String graph, String name, int edges, int warmup, int iterations, Case body)
+    {
+        return measure(graph, name, edges, warmup, iterations, 1, body);
+    }
+
+    /**
+     * Times a case that performs several operations per run, and prints its median time and mean
+     * allocation per operation.
+     * @param graph The graph family.
+     * @param name The case name.
+     * @param edges The number of edges in the graph.
+     * @param warmup The number of unmeasured iterations.
+     * @param iterations The number of measured iterations.
+     * @param ops The number of operations in one run of the body.
+     * @param body The code to measure.
+     * @return The median time of one run in nanoseconds.
+     */
+    private static long measure(String graph, String name, int edges, int warmup, int iterations, int ops, Case body)
+    {
+        long results = 0;
+        for (int i = 0; i < warmup; i ++)
+        {
+            results += body.run();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long[] times = new long[iterations];
+        long allocated = 0;
+        for (int i = 0; i < iterations; i ++)
+        {
+            long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            results += body.run();
+            times[i] = System.nanoTime() - start;
+            allocated += THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-12s %-14s %12d %14.4f %16d%n", graph, name, edges, times[iterations / 2] / 1e6 / ops,
+            allocated / iterations / ops);
+        // Published so the JIT can't prove the results unused and discard the work.
+        consumed = results;
+        return times[iterations / 2];
+    }
+
+    /**
+     * Reads a numeric command line option.
+     * @param args The command line arguments.
+     * @param name The option name, for example "--max-edges".
+     * @param fallback The value to use when the option is missing.
+     * @return The option value.
+     */
+    private static long longOption(String[] args, String name, long fallback)
+    {
+        for (int i = 0; i + 1 < args.length; i ++)
+        {
+            if (args[i].equals(name))
+            {
+                return Long.parseLong(args[i + 1]);
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,239 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * An immutable compressed-sparse-row (CSR) representation of a directed graph.
+ * The out-edges of vertex u are stored in the index range [offsets[u], offsets[u + 1])
+ * of the targets and weights arrays, so a relaxation sweep walks flat primitive arrays
+ * instead of chasing one Edge object per edge.
+ * Instances are created by calling freeze() on an adjacencyList.
+ */
+public final class CompactGraph
+{
+    // offsets[u] is the index of the first out-edge of vertex u. It has one extra
+    // entry at the end so that offsets[u + 1] is always valid.
+    final int[] offsets;
+    // The destination vertex of each edge, grouped by source vertex.
+    final int[] targets;
+    // The weight of each edge, parallel to targets.
+    final int[] weights;
+    // A hash of all three arrays, computed on first use; 0 means not yet computed.
+    private volatile long version;
+
+    /**
+     * Constructs a graph from already-built CSR arrays. The arrays are not copied.
+     * @param offsets The per-vertex edge offsets, of length V + 1.
+     * @param targets The destination vertex of each edge, of length E.
+     * @param weights The weight of each edge, of length E.
+     */
+    CompactGraph(int[] offsets, int[] targets, int[] weights)
+    {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds a CSR graph from parallel edge arrays using a stable counting sort on the source vertex,
+     * so the out-edges of each vertex keep the order in which they were added.
+     * @param vertexes The number of vertices in the graph.
+     * @param edgeCount The number of edges stored in the arrays.
+     * @param sources The source vertex of each edge.
+     * @param destinations The destination vertex of each edge.
+     * @param edgeWeights The weight of each edge.
+     * @return The frozen graph.
+     */
+    static CompactGraph fromEdges(int vertexes, int edgeCount, int[] sources, int[] destinations, int[] edgeWeights)
+    {
+        int[] offsets = new int[vertexes + 1];
+        // Count the out-degree of each vertex, shifted by one so the prefix sum yields start offsets.
+        for (int i = 0; i < edgeCount; i ++)
+        {
+            offsets[sources[i] + 1] ++;
+        }
+        for (int u = 0; u < vertexes; u ++)
+        {
+            offsets[u + 1] += offsets[u];
+        }
+
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int[] next = new int[vertexes];
+        System.arraycopy(offsets, 0, next, 0, vertexes);
+        for (int i = 0; i < edgeCount; i ++)
+        {
+            int slot = next[sources[i]] ++;
+            targets[slot] = destinations[i];
+            weights[slot] = edgeWeights[i];
+        }
+        return new CompactGraph(offsets, targets, weights);
+    }
+
+    /**
+     * Returns a 64-bit hash of the graph's vertices, edges and weights. Graphs with the same contents have the
+     * same version, so it can key cached results; any change to an edge or weight gives a different version
+     * (barring a hash collision).
+     * @return The version.
+     */
+    public long version()
+    {
+        long h = version;
+        if (h == 0)
+        {
+            h = mix(offsets.length);
+            for (int value : offsets)
+            {
+                h = mix(h ^ value);
+            }
+            for (int value : targets)
+            {
+                h = mix(h ^ value);
+            }
+            for (int value : weights)
+            {
+                h = mix(h ^ value);
+            }
+            version = h;
+        }
+        return h;
+    }
+
+    /**
+     * Scrambles the bits of a value (the SplitMix64 finalizer), for building hashes.
+     * @param value The value.
+     * @return The scrambled value.
+     */
+    static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Returns the total number of vertices in the graph.
+     * @return The number of vertices.
+     */
+    public int getSize()
+    {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the total number of edges in the graph.
+     * @return The number of edges.
+     */
+    public int getEdgeCount()
+    {
+        return targets.length;
+    }
+
+    /**
+     * Returns the index of the first out-edge of a vertex.
+     * @param vertex The source vertex.
+     * @return The first edge index belonging to the vertex.
+     */
+    public int edgeStart(int vertex)
+    {
+        return offsets[vertex];
+    }
+
+    /**
+     * Returns the index one past the last out-edge of a vertex.
+     * @param vertex The source vertex.
+     * @return The exclusive end edge index belonging to the vertex.
+     */
+    public int edgeEnd(int vertex)
+    {
+        return offsets[vertex + 1];
+    }
+
+    /**
+     * Returns the destination vertex of an edge.
+     * @param edge The edge index.
+     * @return The destination vertex.
+     */
+    public int target(int edge)
+    {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the weight of an edge.
+     * @param edge The edge index.
+     * @return The weight of the edge.
+     */
+    public int weight(int edge)
+    {
+        return weights[edge];
+    }
+
+    /**
+     * Returns the source vertex of an edge, by binary search over the offsets.
+     * @param edge The edge index.
+     * @return The vertex the edge leaves from.
+     */
+    public int source(int edge)
+    {
+        // Find the last vertex whose first edge is at or before the edge; empty vertices share offsets, so keep searching right.
+        int low = 0;
+        int high = getSize() - 1;
+        while (low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= edge)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the source vertex of every edge, expanded from the offsets array.
+     * @return An array of length E holding the source vertex of each edge.
+     */
+    public int[] sources()
+    {
+        int[] sources = new int[targets.length];
+        for (int u = 0; u < getSize(); u ++)
+        {
+            for (int e = offsets[u]; e < offsets[u + 1]; e ++)
+            {
+                sources[e] = u;
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Builds the reverse graph, where every edge u -> v becomes v -> u with the same weight.
+     * @return The transposed graph.
+     */
+    public CompactGraph transpose()
+    {
+        return fromEdges(getSize(), targets.length, targets, sources(), weights);
+    }
+
+    /**
+     * Builds a graph holding every edge in both directions, for algorithms that ignore direction.
+     * @return The undirected graph, with 2E edges.
+     */
+    public CompactGraph undirected()
+    {
+        int edgeCount = targets.length;
+        int[] sources = sources();
+        int[] from = Arrays.copyOf(sources, edgeCount * 2);
+        int[] to = Arrays.copyOf(targets, edgeCount * 2);
+        int[] both = Arrays.copyOf(weights, edgeCount * 2);
+        System.arraycopy(targets, 0, from, edgeCount, edgeCount);
+        System.arraycopy(sources, 0, to, edgeCount, edgeCount);
+        System.arraycopy(weights, 0, both, edgeCount, edgeCount);
+        return fromEdges(getSize(), edgeCount * 2, from, to, both);
+    }
+}
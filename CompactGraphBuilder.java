@@ -0,0 +1,91 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * Builds a CompactGraph from edges that arrive in source order, writing each one straight into the
+ * CSR arrays. Unlike adjacencyList.freeze, there is no counting sort and no second copy of the edges,
+ * so generating a graph takes only the memory of the graph itself.
+ */
+public final class CompactGraphBuilder implements EdgeSink
+{
+    private final int vertexes;
+    private final int[] offsets;
+    private int[] targets;
+    private int[] weights;
+    private int edgeCount;
+    // The source of the last edge; offsets are filled up to and including it.
+    private int current;
+
+    /**
+     * Creates a builder for a graph with a known number of vertices.
+     * @param vertexes The number of vertices.
+     * @param expectedEdges The number of edges the caller expects to add, used as the initial capacity.
+     */
+    public CompactGraphBuilder(int vertexes, int expectedEdges)
+    {
+        this.vertexes = vertexes;
+        offsets = new int[vertexes + 1];
+        int capacity = Math.max(expectedEdges, 8);
+        targets = new int[capacity];
+        weights = new int[capacity];
+    }
+
+    @Override
+    public void edge(int u, int v, int w)
+    {
+        if (u < 0 || u >= vertexes || v < 0 || v >= vertexes)
+        {
+            throw new IndexOutOfBoundsException("Edge " + u + "->" + v + " is outside a graph of " + vertexes + " vertices");
+        }
+        if (u < current)
+        {
+            throw new IllegalArgumentException("Edge from " + u + " added after an edge from " + current);
+        }
+        // Every vertex skipped since the last edge has no out-edges, so its range starts here.
+        while (current < u)
+        {
+            offsets[++ current] = edgeCount;
+        }
+        if (edgeCount == targets.length)
+        {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, 2L * targets.length);
+            if (capacity == edgeCount)
+            {
+                throw new IllegalStateException("A graph can hold at most " + capacity + " edges");
+            }
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        targets[edgeCount] = v;
+        weights[edgeCount] = w;
+        edgeCount ++;
+    }
+
+    /**
+     * Returns the number of edges added so far.
+     * @return The edge count.
+     */
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    /**
+     * Finishes the graph. The builder must not be used afterwards.
+     * @return The graph, sharing the builder's arrays when they are exactly full.
+     */
+    public CompactGraph build()
+    {
+        while (current < vertexes)
+        {
+            offsets[++ current] = edgeCount;
+        }
+        if (targets.length != edgeCount)
+        {
+            targets = Arrays.copyOf(targets, edgeCount);
+            weights = Arrays.copyOf(weights, edgeCount);
+        }
+        return new CompactGraph(offsets, targets, weights);
+    }
+}
@@ -0,0 +1,58 @@
+package bellman.ford;
+
+/**
+ * Overflow-safe arithmetic shared by the int and long shortest path engines.
+ * Both variants compute a candidate distance one size wider than the stored distance
+ * (or detect the carry for long), so a relaxation can never silently wrap around.
+ */
+final class Distances
+{
+    // Marks an unreachable vertex in a long distance array.
+    static final long LONG_INFINITY = Long.MAX_VALUE;
+
+    private Distances()
+    {
+    }
+
+    /**
+     * Narrows a candidate int distance computed in long arithmetic back to an int.
+     * Candidates at or above Integer.MAX_VALUE are never stored because they can't beat any stored distance,
+     * so only the lower bound needs clamping; saturates reports both cases.
+     * @param candidate The candidate distance computed as (long) distance + weight.
+     * @return The candidate, clamped to Integer.MIN_VALUE.
+     */
+    static int clamp(long candidate)
+    {
+        return candidate < Integer.MIN_VALUE ? Integer.MIN_VALUE : (int) candidate;
+    }
+
+    /**
+     * Returns whether a candidate int distance computed in long arithmetic can't be stored as an int distance.
+     * Integer.MAX_VALUE counts too, because it is the INFINITY sentinel: a candidate equal to it can never lower
+     * a distance, so without the flag a reachable vertex would be reported unreachable.
+     * @param candidate The candidate distance computed as (long) distance + weight.
+     * @return True if the candidate is at or above Integer.MAX_VALUE or below Integer.MIN_VALUE.
+     */
+    static boolean saturates(long candidate)
+    {
+        return candidate >= Integer.MAX_VALUE || candidate < Integer.MIN_VALUE;
+    }
+
+    /**
+     * Adds an edge weight to a long distance, saturating instead of wrapping.
+     * A positive overflow saturates to LONG_INFINITY and a negative overflow to Long.MIN_VALUE.
+     * @param distance The current distance, which must not be LONG_INFINITY.
+     * @param weight The edge weight.
+     * @return The saturated sum.
+     */
+    static long saturatingAdd(long distance, int weight)
+    {
+        long sum = distance + weight;
+        // Overflow happened if both operands have the same sign and the sum's sign differs.
+        if (((distance ^ sum) & (weight ^ sum)) < 0)
+        {
+            return weight < 0 ? Long.MIN_VALUE : LONG_INFINITY;
+        }
+        return sum;
+    }
+}
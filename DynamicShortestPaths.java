@@ -0,0 +1,544 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * Keeps single-source shortest paths up to date while edges are inserted, reweighted and deleted.
+ * Instead of rerunning Bellman-Ford after every change, each update repairs only the vertices it affects:
+ * <ul>
+ * <li>An inserted edge, or a lowered weight, that shortens the path to its target relaxes the target and
+ *     propagates the improvement queue-style (as in QueueBellmanFord) through the vertices it reaches.</li>
+ * <li>A deleted edge, or a raised weight, on the shortest path tree invalidates the subtree below it. Only
+ *     those vertices are reset; each takes its best distance over in-edges from outside the subtree, and the
+ *     result is propagated the same way.</li>
+ * <li>Any other change doesn't affect the distances and costs O(1).</li>
+ * </ul>
+ * Negative cycles are detected as in QueueBellmanFord: once the path behind a relaxation has V edges the path
+ * repeats a vertex. Only an insertion or a lowered weight can create a cycle. While one is reachable the distances
+ * are undefined, so every following update recomputes from scratch until the cycle is gone.
+ *
+ * Edges are named by id. The edges of the starting graph keep their CSR indexes as ids, and inserted edges get
+ * the following ids in order; ids of deleted edges are not reused. The starting edges stay in CSR arrays, with
+ * a reverse CSR for in-edges, and inserted edges are chained per vertex through next-edge arrays, so no update
+ * allocates unless the edge arrays grow.
+ */
+public class DynamicShortestPaths
+{
+    private final int vertexCount;
+    private final int src;
+    // The starting graph's out-edges in CSR form, and its in-edges as a reverse CSR of edge ids.
+    private final int[] baseOffsets;
+    private final int baseEdgeCount;
+    private final int[] inOffsets;
+    private final int[] inEdges;
+    // The endpoints and weight of every edge, indexed by id, and one bit per deleted edge.
+    private int[] edgeSource;
+    private int[] edgeTarget;
+    private int[] edgeWeight;
+    private long[] deleted;
+    private int edgeCount;
+    // Inserted edges, chained per vertex: the first inserted out-edge and in-edge of each vertex, and the
+    // next edge in each chain, indexed by id minus baseEdgeCount. -1 ends a chain.
+    private final int[] insertedOutHead;
+    private final int[] insertedInHead;
+    private int[] insertedOutNext;
+    private int[] insertedInNext;
+
+    // The current shortest distance, the id of the last edge on the shortest path, and the number of
+    // edges on that path, for each vertex.
+    private final int[] shortestPath;
+    private final int[] predecessorEdges;
+    private final int[] pathEdges;
+    private boolean negativeCycle;
+    // The number of edges the last update scanned.
+    private long lastEdgesScanned;
+
+    // Reused work space: a circular queue with an in-queue bitset, a stack, and a per-vertex mark
+    // that is set when the mark equals the current epoch, so it never needs clearing.
+    private final int[] queue;
+    private final long[] inQueue;
+    private int head = 0;
+    private int size = 0;
+    private final int[] stack;
+    private final int[] marks;
+    private int epoch = 0;
+
+    /**
+     * Computes the shortest paths of a graph from a source, ready for updates.
+     * @param graph The starting graph. It is copied, so later updates don't change it.
+     * @param src The source vertex.
+     */
+    public DynamicShortestPaths(CompactGraph graph, int src)
+    {
+        vertexCount = graph.getSize();
+        if (src < 0 || src >= vertexCount)
+        {
+            throw new IndexOutOfBoundsException("Source " + src + " is outside a graph of " + vertexCount + " vertices");
+        }
+        this.src = src;
+        baseOffsets = graph.offsets;
+        baseEdgeCount = graph.getEdgeCount();
+        edgeCount = baseEdgeCount;
+        edgeSource = graph.sources();
+        edgeTarget = graph.targets.clone();
+        edgeWeight = graph.weights.clone();
+        deleted = new long[(baseEdgeCount + 63) >>> 6];
+
+        // Group the edge ids by target with a counting sort to get the in-edges.
+        inOffsets = new int[vertexCount + 1];
+        for (int e = 0; e < baseEdgeCount; e ++)
+        {
+            inOffsets[edgeTarget[e] + 1] ++;
+        }
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        inEdges = new int[baseEdgeCount];
+        int[] next = Arrays.copyOf(inOffsets, vertexCount);
+        for (int e = 0; e < baseEdgeCount; e ++)
+        {
+            inEdges[next[edgeTarget[e]] ++] = e;
+        }
+
+        insertedOutHead = new int[vertexCount];
+        insertedInHead = new int[vertexCount];
+        Arrays.fill(insertedOutHead, -1);
+        Arrays.fill(insertedInHead, -1);
+        insertedOutNext = new int[8];
+        insertedInNext = new int[8];
+
+        shortestPath = new int[vertexCount];
+        predecessorEdges = new int[vertexCount];
+        pathEdges = new int[vertexCount];
+        queue = new int[vertexCount];
+        inQueue = new long[(vertexCount + 63) >>> 6];
+        stack = new int[vertexCount];
+        marks = new int[vertexCount];
+        recompute();
+    }
+
+    /**
+     * Inserts a new directed edge and repairs the shortest paths.
+     * @param u The source vertex.
+     * @param v The destination vertex.
+     * @param w The weight of the edge.
+     * @return The id of the new edge.
+     */
+    public int insertEdge(int u, int v, int w)
+    {
+        if (u < 0 || u >= vertexCount || v < 0 || v >= vertexCount)
+        {
+            throw new IndexOutOfBoundsException("Edge " + u + "->" + v + " is outside a graph of " + vertexCount + " vertices");
+        }
+        if (edgeCount == edgeSource.length)
+        {
+            int capacity = (int) Math.min(Math.max(edgeCount * 2L, 8), Integer.MAX_VALUE - 8);
+            edgeSource = Arrays.copyOf(edgeSource, capacity);
+            edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+        }
+        if ((edgeCount >>> 6) == deleted.length)
+        {
+            deleted = Arrays.copyOf(deleted, Math.max(deleted.length * 2, 1));
+        }
+        int e = edgeCount ++;
+        edgeSource[e] = u;
+        edgeTarget[e] = v;
+        edgeWeight[e] = w;
+
+        int chain = e - baseEdgeCount;
+        if (chain == insertedOutNext.length)
+        {
+            insertedOutNext = Arrays.copyOf(insertedOutNext, chain * 2);
+            insertedInNext = Arrays.copyOf(insertedInNext, chain * 2);
+        }
+        insertedOutNext[chain] = insertedOutHead[u];
+        insertedOutHead[u] = e;
+        insertedInNext[chain] = insertedInHead[v];
+        insertedInHead[v] = e;
+
+        lastEdgesScanned = 0;
+        if (negativeCycle)
+        {
+            recompute();
+        }
+        else
+        {
+            relaxInto(e);
+        }
+        return e;
+    }
+
+    /**
+     * Changes the weight of an edge and repairs the shortest paths.
+     * @param edge The edge id.
+     * @param w The new weight.
+     */
+    public void updateWeight(int edge, int w)
+    {
+        checkEdge(edge);
+        int old = edgeWeight[edge];
+        edgeWeight[edge] = w;
+        lastEdgesScanned = 0;
+        if (negativeCycle)
+        {
+            recompute();
+        }
+        else if (w < old)
+        {
+            relaxInto(edge);
+        }
+        else if (w > old && predecessorEdges[edgeTarget[edge]] == edge)
+        {
+            repairSubtree(edgeTarget[edge]);
+        }
+    }
+
+    /**
+     * Deletes an edge and repairs the shortest paths.
+     * @param edge The edge id.
+     */
+    public void deleteEdge(int edge)
+    {
+        checkEdge(edge);
+        deleted[edge >>> 6] |= 1L << edge;
+        lastEdgesScanned = 0;
+        if (negativeCycle)
+        {
+            recompute();
+        }
+        else if (predecessorEdges[edgeTarget[edge]] == edge)
+        {
+            repairSubtree(edgeTarget[edge]);
+        }
+    }
+
+    /**
+     * Returns the shortest known distance to a vertex.
+     * @param v The vertex.
+     * @return The distance, or ShortestPaths.INFINITY if the vertex is unreachable.
+     */
+    public int distance(int v)
+    {
+        return shortestPath[v];
+    }
+
+    /**
+     * Returns a copy of the shortest distance to every vertex.
+     * @return The distances, with ShortestPaths.INFINITY for unreachable vertices.
+     */
+    public int[] getDistances()
+    {
+        return shortestPath.clone();
+    }
+
+    /**
+     * Returns the id of the last edge on the shortest path to a vertex.
+     * @param v The vertex.
+     * @return The edge id, or ShortestPaths.NO_PREDECESSOR for the source and unreachable vertices.
+     */
+    public int predecessorEdge(int v)
+    {
+        return predecessorEdges[v];
+    }
+
+    /**
+     * Returns the vertex before a vertex on its shortest path.
+     * @param v The vertex.
+     * @return The predecessor, or ShortestPaths.NO_PREDECESSOR for the source and unreachable vertices.
+     */
+    public int predecessor(int v)
+    {
+        int edge = predecessorEdges[v];
+        return edge == ShortestPaths.NO_PREDECESSOR ? ShortestPaths.NO_PREDECESSOR : edgeSource[edge];
+    }
+
+    /**
+     * Returns whether a negative cycle is reachable from the source. If so the distances are undefined.
+     * @return True if a negative cycle was detected.
+     */
+    public boolean hasNegativeCycle()
+    {
+        return negativeCycle;
+    }
+
+    /**
+     * Returns the number of edges the last update scanned, a measure of how much it had to repair.
+     * @return The edge count.
+     */
+    public long getLastEdgesScanned()
+    {
+        return lastEdgesScanned;
+    }
+
+    /**
+     * Returns the source vertex.
+     * @return The source vertex.
+     */
+    public int getSource()
+    {
+        return src;
+    }
+
+    /**
+     * Returns the number of live edges.
+     * @return The edge count.
+     */
+    public int getEdgeCount()
+    {
+        int live = edgeCount;
+        for (long word : deleted)
+        {
+            live -= Long.bitCount(word);
+        }
+        return live;
+    }
+
+    /**
+     * Builds a CompactGraph of the live edges, for example to check the repaired paths against a full run.
+     * Edge ids are not preserved.
+     * @return The current graph.
+     */
+    public CompactGraph toCompactGraph()
+    {
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int live = 0;
+        for (int e = 0; e < edgeCount; e ++)
+        {
+            if (!isDeleted(e))
+            {
+                sources[live] = edgeSource[e];
+                targets[live] = edgeTarget[e];
+                weights[live] = edgeWeight[e];
+                live ++;
+            }
+        }
+        return CompactGraph.fromEdges(vertexCount, live, sources, targets, weights);
+    }
+
+    /**
+     * Recomputes every distance from scratch.
+     */
+    private void recompute()
+    {
+        Arrays.fill(shortestPath, ShortestPaths.INFINITY);
+        Arrays.fill(predecessorEdges, ShortestPaths.NO_PREDECESSOR);
+        shortestPath[src] = 0;
+        pathEdges[src] = 0;
+        negativeCycle = false;
+        enqueue(src);
+        propagate();
+    }
+
+    /**
+     * Relaxes one edge and, if it shortened the path to its target, propagates the improvement.
+     * @param edge The edge id.
+     */
+    private void relaxInto(int edge)
+    {
+        int u = edgeSource[edge];
+        int v = edgeTarget[edge];
+        lastEdgesScanned ++;
+        if (shortestPath[u] == ShortestPaths.INFINITY)
+        {
+            return;
+        }
+        long candidate = (long) shortestPath[u] + edgeWeight[edge]; // Computed in long so it cannot wrap.
+        if (candidate < shortestPath[v])
+        {
+            shortestPath[v] = Distances.clamp(candidate);
+            predecessorEdges[v] = edge;
+            pathEdges[v] = pathEdges[u] + 1;
+            if (pathEdges[v] >= vertexCount)
+            {
+                negativeCycle = true;
+                return;
+            }
+            enqueue(v);
+            propagate();
+        }
+    }
+
+    /**
+     * Recomputes the distances of every vertex whose shortest path runs through a vertex whose path got longer.
+     * @param root The vertex whose path got longer.
+     */
+    private void repairSubtree(int root)
+    {
+        // Collect the shortest path tree below the root: the children of x are the targets of
+        // x's out-edges that are their predecessor edges.
+        epoch ++;
+        int count = 0;
+        stack[count ++] = root;
+        marks[root] = epoch;
+        for (int i = 0; i < count; i ++)
+        {
+            int x = stack[i];
+            for (int e = baseOffsets[x]; e < baseOffsets[x + 1]; e ++)
+            {
+                count = collectChild(e, count);
+            }
+            for (int e = insertedOutHead[x]; e != -1; e = insertedOutNext[e - baseEdgeCount])
+            {
+                count = collectChild(e, count);
+            }
+        }
+        for (int i = 0; i < count; i ++)
+        {
+            shortestPath[stack[i]] = ShortestPaths.INFINITY;
+            predecessorEdges[stack[i]] = ShortestPaths.NO_PREDECESSOR;
+        }
+
+        // Each collected vertex starts from its best in-edge from outside the subtree, whose distances are still exact.
+        for (int i = 0; i < count; i ++)
+        {
+            int y = stack[i];
+            for (int k = inOffsets[y]; k < inOffsets[y + 1]; k ++)
+            {
+                offerFromOutside(inEdges[k], y);
+            }
+            for (int e = insertedInHead[y]; e != -1; e = insertedInNext[e - baseEdgeCount])
+            {
+                offerFromOutside(e, y);
+            }
+            if (shortestPath[y] != ShortestPaths.INFINITY)
+            {
+                enqueue(y);
+            }
+        }
+        propagate();
+    }
+
+    /**
+     * Adds the target of a live tree edge to the subtree being collected.
+     * @param edge The edge id.
+     * @param count The number of vertices collected so far.
+     * @return The new number of collected vertices.
+     */
+    private int collectChild(int edge, int count)
+    {
+        lastEdgesScanned ++;
+        int y = edgeTarget[edge];
+        if (predecessorEdges[y] == edge && marks[y] != epoch && !isDeleted(edge))
+        {
+            marks[y] = epoch;
+            stack[count ++] = y;
+        }
+        return count;
+    }
+
+    /**
+     * Lowers the distance of a subtree vertex through an in-edge from a vertex outside the subtree.
+     * @param edge The in-edge id.
+     * @param y The subtree vertex.
+     */
+    private void offerFromOutside(int edge, int y)
+    {
+        lastEdgesScanned ++;
+        int z = edgeSource[edge];
+        if (marks[z] == epoch || isDeleted(edge) || shortestPath[z] == ShortestPaths.INFINITY)
+        {
+            return;
+        }
+        long candidate = (long) shortestPath[z] + edgeWeight[edge];
+        if (candidate < shortestPath[y])
+        {
+            shortestPath[y] = Distances.clamp(candidate);
+            predecessorEdges[y] = edge;
+            pathEdges[y] = pathEdges[z] + 1;
+        }
+    }
+
+    /**
+     * Relaxes the out-edges of queued vertices until no distance changes or a negative cycle is found.
+     */
+    private void propagate()
+    {
+        while (size > 0)
+        {
+            int u = queue[head];
+            head = head + 1 == vertexCount ? 0 : head + 1;
+            size --;
+            inQueue[u >>> 6] &= ~(1L << u);
+            if (negativeCycle)
+            {
+                continue; // Drain the queue so the next update starts empty.
+            }
+            for (int e = baseOffsets[u]; e < baseOffsets[u + 1]; e ++)
+            {
+                relaxOut(u, e);
+            }
+            for (int e = insertedOutHead[u]; e != -1; e = insertedOutNext[e - baseEdgeCount])
+            {
+                relaxOut(u, e);
+            }
+        }
+    }
+
+    /**
+     * Relaxes one out-edge of a queued vertex, queueing the target if its distance dropped.
+     * @param u The vertex being processed.
+     * @param edge The edge id.
+     */
+    private void relaxOut(int u, int edge)
+    {
+        lastEdgesScanned ++;
+        if (isDeleted(edge))
+        {
+            return;
+        }
+        int v = edgeTarget[edge];
+        long candidate = (long) shortestPath[u] + edgeWeight[edge];
+        if (candidate < shortestPath[v])
+        {
+            shortestPath[v] = Distances.clamp(candidate);
+            predecessorEdges[v] = edge;
+            pathEdges[v] = pathEdges[u] + 1;
+            if (pathEdges[v] >= vertexCount)
+            {
+                negativeCycle = true;
+            }
+            enqueue(v);
+        }
+    }
+
+    /**
+     * Adds a vertex to the work queue unless it is already waiting.
+     * @param v The vertex.
+     */
+    private void enqueue(int v)
+    {
+        if ((inQueue[v >>> 6] & (1L << v)) == 0)
+        {
+            inQueue[v >>> 6] |= 1L << v;
+            int tail = head + size;
+            queue[tail >= vertexCount ? tail - vertexCount : tail] = v;
+            size ++;
+        }
+    }
+
+    /**
+     * Returns whether an edge has been deleted.
+     * @param edge The edge id.
+     * @return True if the edge is deleted.
+     */
+    private boolean isDeleted(int edge)
+    {
+        return (deleted[edge >>> 6] & (1L << edge)) != 0;
+    }
+
+    /**
+     * Checks that an edge id names a live edge.
+     * @param edge The edge id.
+     */
+    private void checkEdge(int edge)
+    {
+        if (edge < 0 || edge >= edgeCount || isDeleted(edge))
+        {
+            throw new IllegalArgumentException("No edge with id " + edge);
+        }
+    }
+}
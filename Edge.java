@@ -1,5 +1,4 @@
 package bellman.ford;
-import java.util.HashMap;
 
 /**
  * Represents a directed edge in the graph.
@@ -23,10 +22,10 @@ public class Edge
 
     /**
      * Generates a string representation of the edge.
-     * @param keyMap A map to convert the integer vertex to its string label.
+     * @param keyMap A table to convert the integer vertex to its string label.
      * @return A string in the format "{vertex_label, weight}".
      */
-    public String edgeToString(HashMap<Integer,String> keyMap)
+    public String edgeToString(VertexLabels keyMap)
     {
         return "{" + keyMap.get(vertex) + "," + weight + "}";
     }
@@ -0,0 +1,20 @@
+package bellman.ford;
+
+/**
+ * Receives the edges of a graph one at a time, grouped by source vertex in increasing order, which is
+ * the order of CompactGraph's arrays. The seeded generators in GraphGenerator write into a sink, so a
+ * generated graph goes straight into CSR arrays with CompactGraphBuilder or straight to a binary file
+ * with GraphFileWriter, without building any per-edge object or an unsorted edge list first.
+ */
+public interface EdgeSink
+{
+    /**
+     * Adds a directed edge.
+     * @param u The source vertex, no smaller than the source of the previous edge.
+     * @param v The destination vertex.
+     * @param w The weight of the edge.
+     * @throws IllegalArgumentException If u is smaller than the previous source.
+     * @throws IndexOutOfBoundsException If either endpoint is outside the graph.
+     */
+    void edge(int u, int v, int w);
+}
@@ -0,0 +1,108 @@
+package bellman.ford;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue of relaxation events between one producer thread (the solver)
+ * and one consumer thread (the Swing event thread).
+ * Each event is three ints, a kind, an index and a value, stored in a flat int array so publishing
+ * an event allocates nothing. The producer never waits: when the ring is full, offer returns false
+ * and the event is counted as dropped.
+ */
+final class EventRing
+{
+    static final int STARTED = 0;
+    static final int SCANNED = 1;
+    static final int IMPROVED = 2;
+    static final int FINISHED = 3;
+    static final int PASS = 4;
+
+    private final int[] slots;
+    private final int mask;
+    // The next sequence number to read, written only by the consumer.
+    private final AtomicLong head = new AtomicLong();
+    // The next sequence number to write, written only by the producer.
+    private final AtomicLong tail = new AtomicLong();
+    // The producer's last view of head, refreshed only when the ring looks full.
+    private long cachedHead;
+    // The number of events the producer could not fit.
+    private volatile long dropped;
+
+    /**
+     * Constructs an empty ring.
+     * @param capacity The maximum number of queued events, rounded up to a power of two.
+     */
+    EventRing(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        slots = new int[size * 3];
+        mask = size - 1;
+    }
+
+    /**
+     * Publishes an event. Called only by the producer.
+     * @param kind The event kind, for example SCANNED.
+     * @param index The edge index or vertex id the event is about.
+     * @param value The event's value, for example the new distance.
+     * @return True if the event was queued, false if the ring was full and it was dropped.
+     */
+    boolean offer(int kind, int index, int value)
+    {
+        long t = tail.get();
+        if (t - cachedHead > mask)
+        {
+            cachedHead = head.get();
+            if (t - cachedHead > mask)
+            {
+                dropped ++;
+                return false;
+            }
+        }
+        int slot = (int) (t & mask) * 3;
+        slots[slot] = kind;
+        slots[slot + 1] = index;
+        slots[slot + 2] = value;
+        // The ordered store makes the slot visible to the consumer before the new tail.
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest event. Called only by the consumer.
+     * @param event Receives the kind, index and value of the event.
+     * @return True if an event was taken, false if the ring was empty.
+     */
+    boolean poll(int[] event)
+    {
+        long h = head.get();
+        if (h == tail.get())
+        {
+            return false;
+        }
+        int slot = (int) (h & mask) * 3;
+        event[0] = slots[slot];
+        event[1] = slots[slot + 1];
+        event[2] = slots[slot + 2];
+        // Release the slot to the producer only after it has been read.
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * Returns whether the ring holds no events.
+     * @return True if the ring is empty.
+     */
+    boolean isEmpty()
+    {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Returns the number of events dropped because the ring was full.
+     * @return The dropped event count.
+     */
+    long dropped()
+    {
+        return dropped;
+    }
+}
@@ -0,0 +1,333 @@
+package bellman.ford;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An out-of-core Bellman-Ford engine for graphs whose edges, or even whose distances, don't fit on the heap.
+ * It runs over a SegmentedGraph and keeps each vertex's distance, predecessor and the pass it last changed
+ * in a state file on disk, 12 bytes per vertex.
+ *
+ * Each pass has two phases, both of which only read and write files front to back:
+ * in the scatter phase every active block copies its slice of the state file onto the heap and streams its
+ * segment, relaxing the edges whose source changed since the block was last scanned. A target in the same
+ * block is updated in place; any other target gets an update record (vertex, distance, predecessor) appended
+ * to its block's update file. In the gather phase each block that received updates loads its slice again and
+ * applies them. A block is active in the next pass only if one of its vertices changed, so once the
+ * distances settle in part of the graph its segment is no longer read at all.
+ *
+ * Segments and the state file are memory-mapped once per run and the mappings reused by every pass, so the
+ * operating system's page cache decides what stays in memory. The heap holds one block's state, one 64 KB
+ * update buffer per block and a few flags per block, whatever the size of the graph.
+ *
+ * Like BellmanFordSolver, it stops after V passes; if distances are still changing then, a negative cycle is
+ * reachable from the source.
+ */
+public final class ExternalBellmanFord
+{
+    // Ints per vertex in the state file: distance, predecessor and the pass that last lowered the distance.
+    static final int STATE_INTS = 3;
+    // Ints per update record: target, distance and predecessor.
+    private static final int UPDATE_INTS = 3;
+    // Size of each block's update buffer, a whole number of records.
+    private static final int BUFFER_BYTES = (1 << 16) - (1 << 16) % (4 * UPDATE_INTS);
+    // Largest region mapped at once, a whole number of edges so an edge never straddles two chunks.
+    private static final long MAP_CHUNK_BYTES = (long) SegmentedGraph.EDGE_BYTES << 24;
+
+    private ExternalBellmanFord()
+    {
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices of a segmented graph.
+     * Update files are kept in a temporary directory next to the state file and removed afterwards.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @param stateFile The file to keep the distances in, created or replaced.
+     * @return The result, which reads distances from the state file.
+     * @throws IOException If a segment can't be read or the state or update files can't be written.
+     */
+    public static ExternalShortestPaths solve(SegmentedGraph graph, int src, Path stateFile) throws IOException
+    {
+        int vertexCount = graph.getSize();
+        if (src < 0 || src >= vertexCount)
+        {
+            throw new IndexOutOfBoundsException("Source " + src + " is outside a graph of " + vertexCount + " vertices");
+        }
+        if (4L * STATE_INTS * graph.getBlockVertices() > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Blocks of " + graph.getBlockVertices() + " vertices are too large to map");
+        }
+        int blocks = graph.getBlockCount();
+        IntBuffer[][] segments = new IntBuffer[blocks][];
+        IntBuffer[] slices = new IntBuffer[blocks];
+        FileChannel[] updates = new FileChannel[blocks];
+        // Update records waiting to be appended to each block's update file.
+        int[][] pending = new int[blocks][];
+        int[] pendingInts = new int[blocks];
+        ByteBuffer staging = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        Path updateDirectory = Files.createTempDirectory(stateFile.toAbsolutePath().getParent(), "updates");
+        try (FileChannel state = FileChannel.open(stateFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            // The state of the block being worked on, the only vertex data on the heap.
+            int[] resident = new int[STATE_INTS * graph.getBlockVertices()];
+            // Edges or update records copied out of a mapping or file, a whole number of 3 int records.
+            int[] records = new int[BUFFER_BYTES / 4];
+
+            // Every distance starts at infinity, never changed, except the source's, which counts as changed before pass 1.
+            for (int i = 0; i < resident.length; i += STATE_INTS)
+            {
+                resident[i] = ShortestPaths.INFINITY;
+                resident[i + 1] = ShortestPaths.NO_PREDECESSOR;
+                resident[i + 2] = -1;
+            }
+            for (int b = 0; b < blocks; b ++)
+            {
+                int size = STATE_INTS * (graph.blockEnd(b) - graph.blockStart(b));
+                slices[b] = state.map(FileChannel.MapMode.READ_WRITE, 4L * STATE_INTS * graph.blockStart(b), 4L * size)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                slices[b].put(0, resident, 0, size);
+                segments[b] = mapSegment(graph.segment(b));
+                updates[b] = FileChannel.open(updateDirectory.resolve(b + ".updates"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                pending[b] = new int[BUFFER_BYTES / 4];
+            }
+            int srcBlock = graph.blockOf(src);
+            int at = STATE_INTS * (src - graph.blockStart(srcBlock));
+            slices[srcBlock].put(at, 0).put(at + 2, 0);
+
+            boolean[] active = new boolean[blocks];
+            boolean[] activeNext = new boolean[blocks];
+            boolean[] received = new boolean[blocks];
+            active[srcBlock] = true;
+            long edgesScanned = 0;
+            long blocksScanned = 0;
+            long blocksSkipped = 0;
+            long reachable = 1;
+            boolean saturated = false;
+            boolean changed = true;
+            int passes = 0;
+
+            // The algorithm runs V-1 times, where V is the number of vertices.
+            // It runs one extra time to check for a negative cycle.
+            while (passes < vertexCount && changed)
+            {
+                passes ++;
+                int previous = passes - 1;
+
+                // Scatter: stream the segment of every active block.
+                for (int b = 0; b < blocks; b ++)
+                {
+                    if (!active[b])
+                    {
+                        blocksSkipped ++;
+                        continue;
+                    }
+                    blocksScanned ++;
+                    int start = graph.blockStart(b);
+                    int end = graph.blockEnd(b);
+                    IntBuffer slice = slices[b];
+                    slice.get(0, resident, 0, slice.capacity());
+                    boolean dirty = false;
+                    for (IntBuffer chunk : segments[b])
+                    {
+                        edgesScanned += chunk.capacity() / 3;
+                        for (int offset = 0; offset < chunk.capacity(); offset += records.length)
+                        {
+                            int count = Math.min(records.length, chunk.capacity() - offset);
+                            chunk.get(offset, records, 0, count);
+                            for (int r = 0; r < count; r += 3)
+                            {
+                                int u = records[r];
+                                int ui = STATE_INTS * (u - start);
+                                // Skip sources whose distance hasn't changed since this block was last scanned.
+                                if (resident[ui + 2] < previous)
+                                {
+                                    continue;
+                                }
+                                int v = records[r + 1];
+                                long currDist = (long) resident[ui] + records[r + 2]; // Computed in long so it cannot wrap.
+                                saturated |= Distances.saturates(currDist);
+                                int distance = Distances.clamp(currDist);
+                                if (v >= start && v < end)
+                                {
+                                    int vi = STATE_INTS * (v - start);
+                                    int old = resident[vi];
+                                    if (distance < old)
+                                    {
+                                        resident[vi] = distance;
+                                        resident[vi + 1] = u;
+                                        resident[vi + 2] = passes;
+                                        reachable += old == ShortestPaths.INFINITY ? 1 : 0;
+                                        dirty = true;
+                                    }
+                                }
+                                else
+                                {
+                                    int target = graph.blockOf(v);
+                                    int[] buffer = pending[target];
+                                    int next = pendingInts[target];
+                                    if (next == buffer.length)
+                                    {
+                                        flush(updates[target], buffer, next, staging);
+                                        next = 0;
+                                    }
+                                    buffer[next] = v;
+                                    buffer[next + 1] = distance;
+                                    buffer[next + 2] = u;
+                                    pendingInts[target] = next + UPDATE_INTS;
+                                    received[target] = true;
+                                }
+                            }
+                        }
+                    }
+                    if (dirty)
+                    {
+                        slice.put(0, resident, 0, slice.capacity());
+                        activeNext[b] = true;
+                    }
+                }
+
+                // Gather: apply the updates each block received.
+                for (int b = 0; b < blocks; b ++)
+                {
+                    if (!received[b])
+                    {
+                        continue;
+                    }
+                    received[b] = false;
+                    flush(updates[b], pending[b], pendingInts[b], staging);
+                    pendingInts[b] = 0;
+                    int start = graph.blockStart(b);
+                    IntBuffer slice = slices[b];
+                    slice.get(0, resident, 0, slice.capacity());
+                    boolean dirty = false;
+                    FileChannel file = updates[b];
+                    long position = 0;
+                    int count;
+                    while ((count = read(file, position, records, staging)) > 0)
+                    {
+                        position += 4L * count;
+                        for (int r = 0; r < count; r += UPDATE_INTS)
+                        {
+                            int vi = STATE_INTS * (records[r] - start);
+                            int distance = records[r + 1];
+                            int old = resident[vi];
+                            if (distance < old)
+                            {
+                                resident[vi] = distance;
+                                resident[vi + 1] = records[r + 2];
+                                resident[vi + 2] = passes;
+                                reachable += old == ShortestPaths.INFINITY ? 1 : 0;
+                                dirty = true;
+                            }
+                        }
+                    }
+                    file.truncate(0);
+                    if (dirty)
+                    {
+                        slice.put(0, resident, 0, slice.capacity());
+                        activeNext[b] = true;
+                    }
+                }
+
+                changed = false;
+                for (int b = 0; b < blocks; b ++)
+                {
+                    active[b] = activeNext[b];
+                    activeNext[b] = false;
+                    changed |= active[b];
+                }
+            }
+            return new ExternalShortestPaths(src, vertexCount, stateFile, changed, passes, edgesScanned, blocksScanned,
+                blocksSkipped, reachable, saturated);
+        }
+        finally
+        {
+            for (int b = 0; b < blocks; b ++)
+            {
+                if (updates[b] != null)
+                {
+                    updates[b].close();
+                    Files.deleteIfExists(updateDirectory.resolve(b + ".updates"));
+                }
+            }
+            Files.deleteIfExists(updateDirectory);
+        }
+    }
+
+    /**
+     * Maps a segment file read-only, one chunk per MAP_CHUNK_BYTES. The mappings stay valid after the file is closed.
+     * @param path The segment file.
+     * @return The chunks in file order, viewed as ints.
+     * @throws IOException If the file can't be mapped.
+     */
+    private static IntBuffer[] mapSegment(Path path) throws IOException
+    {
+        try (FileChannel segment = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = segment.size() - segment.size() % SegmentedGraph.EDGE_BYTES;
+            IntBuffer[] chunks = new IntBuffer[(int) ((size + MAP_CHUNK_BYTES - 1) / MAP_CHUNK_BYTES)];
+            for (int i = 0; i < chunks.length; i ++)
+            {
+                long position = i * MAP_CHUNK_BYTES;
+                chunks[i] = segment.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_CHUNK_BYTES, size - position))
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Appends a block's pending update records to its update file.
+     * @param file The update file.
+     * @param records The pending records.
+     * @param count The number of ints pending.
+     * @param staging A direct buffer of at least 4 * count bytes to write from.
+     * @throws IOException If the file can't be written.
+     */
+    private static void flush(FileChannel file, int[] records, int count, ByteBuffer staging) throws IOException
+    {
+        staging.clear();
+        staging.asIntBuffer().put(records, 0, count);
+        staging.limit(4 * count);
+        long position = file.size();
+        while (staging.hasRemaining())
+        {
+            position += file.write(staging, position);
+        }
+    }
+
+    /**
+     * Reads update records from an update file.
+     * @param file The update file.
+     * @param position The byte position to read from.
+     * @param records The array to fill.
+     * @param staging A direct buffer of 4 * records.length bytes to read through.
+     * @return The number of ints read, a whole number of records, or 0 at the end of the file.
+     * @throws IOException If the file can't be read.
+     */
+    private static int read(FileChannel file, long position, int[] records, ByteBuffer staging) throws IOException
+    {
+        staging.clear();
+        staging.limit((int) Math.min(staging.capacity(), file.size() - position));
+        while (staging.hasRemaining())
+        {
+            if (file.read(staging, position + staging.position()) < 0)
+            {
+                break;
+            }
+        }
+        staging.flip();
+        int count = staging.remaining() / 4;
+        staging.asIntBuffer().get(records, 0, count);
+        return count;
+    }
+}
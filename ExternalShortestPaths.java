@@ -0,0 +1,237 @@
+package bellman.ford;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The result of ExternalBellmanFord. The distances stay in the state file on disk, and distance and
+ * predecessor read single vertices from it, so the result is as cheap to hold as the run was.
+ * Close it when done to release the file.
+ */
+public final class ExternalShortestPaths implements Closeable
+{
+    private final int source;
+    private final int vertexCount;
+    private final Path stateFile;
+    private final boolean negativeCycle;
+    private final int passes;
+    private final long edgesScanned;
+    private final long blocksScanned;
+    private final long blocksSkipped;
+    private final long reachable;
+    private final boolean saturated;
+    // Opened on the first lookup.
+    private FileChannel state;
+    private final ByteBuffer record = ByteBuffer.allocate(4 * ExternalBellmanFord.STATE_INTS).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Constructs a result over a finished state file.
+     * @param source The source vertex.
+     * @param vertexCount The number of vertices.
+     * @param stateFile The state file holding the distances.
+     * @param negativeCycle Whether distances were still changing after V passes.
+     * @param passes The number of passes run.
+     * @param edgesScanned The number of edges streamed from segments.
+     * @param blocksScanned The number of block segments streamed, over all passes.
+     * @param blocksSkipped The number of block segments skipped because no vertex in the block changed.
+     * @param reachable The number of vertices with a finite distance.
+     * @param saturated Whether a distance didn't fit in an int.
+     */
+    ExternalShortestPaths(int source, int vertexCount, Path stateFile, boolean negativeCycle, int passes, long edgesScanned,
+        long blocksScanned, long blocksSkipped, long reachable, boolean saturated)
+    {
+        this.source = source;
+        this.vertexCount = vertexCount;
+        this.stateFile = stateFile;
+        this.negativeCycle = negativeCycle;
+        this.passes = passes;
+        this.edgesScanned = edgesScanned;
+        this.blocksScanned = blocksScanned;
+        this.blocksSkipped = blocksSkipped;
+        this.reachable = reachable;
+        this.saturated = saturated;
+    }
+
+    /**
+     * Returns the source vertex of the run.
+     * @return The source vertex.
+     */
+    public int getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the state file, which holds each vertex's distance, predecessor and last changed pass as
+     * three little-endian ints.
+     * @return The file path.
+     */
+    public Path getStateFile()
+    {
+        return stateFile;
+    }
+
+    /**
+     * Returns the shortest distance to a vertex.
+     * @param v The vertex.
+     * @return The distance, or ShortestPaths.INFINITY if the vertex is unreachable.
+     * @throws IOException If the state file can't be read.
+     */
+    public int distance(int v) throws IOException
+    {
+        read(v);
+        return record.getInt(0);
+    }
+
+    /**
+     * Returns the predecessor of a vertex on its shortest path.
+     * @param v The vertex.
+     * @return The predecessor, or ShortestPaths.NO_PREDECESSOR for the source and unreachable vertices.
+     * @throws IOException If the state file can't be read.
+     */
+    public int predecessor(int v) throws IOException
+    {
+        read(v);
+        return record.getInt(4);
+    }
+
+    /**
+     * Returns the vertices on the shortest path from the source to a vertex, in path order.
+     * @param v The destination vertex.
+     * @return The vertices from the source to v, or null if v is unreachable.
+     * @throws IOException If the state file can't be read.
+     * @throws IllegalStateException If the predecessors run into a negative cycle.
+     */
+    public int[] pathTo(int v) throws IOException
+    {
+        if (distance(v) == ShortestPaths.INFINITY)
+        {
+            return null;
+        }
+        int length = 1;
+        for (int u = v; u != source; u = predecessor(u))
+        {
+            if (length ++ > vertexCount)
+            {
+                throw new IllegalStateException("The path to " + v + " runs into a negative cycle");
+            }
+        }
+        int[] path = new int[length];
+        int u = v;
+        for (int i = length - 1; i >= 0; i --)
+        {
+            path[i] = u;
+            u = i > 0 ? predecessor(u) : u;
+        }
+        return path;
+    }
+
+    /**
+     * Returns whether the graph has a negative cycle reachable from the source.
+     * @return True if a negative cycle was detected, false otherwise.
+     */
+    public boolean hasNegativeCycle()
+    {
+        return negativeCycle;
+    }
+
+    /**
+     * Returns how many passes the run took.
+     * @return The number of passes.
+     */
+    public int getPasses()
+    {
+        return passes;
+    }
+
+    /**
+     * Returns how many edges were streamed from segment files over all passes.
+     * @return The number of edges scanned.
+     */
+    public long getEdgesScanned()
+    {
+        return edgesScanned;
+    }
+
+    /**
+     * Returns how many block segments were streamed over all passes.
+     * @return The number of segment reads.
+     */
+    public long getBlocksScanned()
+    {
+        return blocksScanned;
+    }
+
+    /**
+     * Returns how many block segments were skipped because none of the block's vertices changed in the pass before.
+     * @return The number of segment reads saved.
+     */
+    public long getBlocksSkipped()
+    {
+        return blocksSkipped;
+    }
+
+    /**
+     * Returns how many vertices have a finite distance, including the source.
+     * @return The reachable vertex count.
+     */
+    public long getReachableCount()
+    {
+        return reachable;
+    }
+
+    /**
+     * Returns whether a distance didn't fit in an int distance: it fell below the int range and was clamped, or
+     * reached Integer.MAX_VALUE and was left at INFINITY. Rerun with LongBellmanFord if so.
+     * @return True if a distance didn't fit.
+     */
+    public boolean isSaturated()
+    {
+        return saturated;
+    }
+
+    /**
+     * Closes the state file. The file itself is kept.
+     * @throws IOException If the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (state != null)
+        {
+            state.close();
+            state = null;
+        }
+    }
+
+    /**
+     * Reads a vertex's record into the record buffer.
+     * @param v The vertex.
+     * @throws IOException If the state file can't be read.
+     */
+    private void read(int v) throws IOException
+    {
+        if (v < 0 || v >= vertexCount)
+        {
+            throw new IndexOutOfBoundsException("Vertex " + v + " is outside a graph of " + vertexCount + " vertices");
+        }
+        if (state == null)
+        {
+            state = FileChannel.open(stateFile, StandardOpenOption.READ);
+        }
+        record.clear();
+        long position = (long) record.capacity() * v;
+        while (record.hasRemaining())
+        {
+            if (state.read(record, position + record.position()) < 0)
+            {
+                throw new IOException(stateFile + ": truncated at vertex " + v);
+            }
+        }
+    }
+}
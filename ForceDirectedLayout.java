@@ -0,0 +1,360 @@
+package bellman.ford;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Computes a GraphLayout for an arbitrary graph with a force-directed (Fruchterman-Reingold) simulation.
+ * Every vertex repels every other vertex and every edge pulls its two ends together; each step moves the
+ * vertices a little along the net force, with the largest move shrinking as the layout cools.
+ *
+ * Repulsion is approximated with a Barnes-Hut quadtree: a group of vertices far enough away is treated as
+ * a single mass at its centre, so a step costs O(V log V + E) instead of O(V^2). The quadtree is stored in
+ * flat arrays that are reused between steps, so stepping allocates nothing once the arrays have grown.
+ */
+public class ForceDirectedLayout
+{
+    // The preferred edge length, in world units. Nodes are 40 units across, so this leaves room for labels.
+    private static final float IDEAL_LENGTH = 90;
+    // Groups whose size divided by their distance is below this are treated as a single mass.
+    private static final float THETA = 0.8f;
+    // The quadtree stops splitting at this depth, so vertices at the same spot can't recurse forever.
+    private static final int MAX_DEPTH = 32;
+    // Forces closer than this are clamped, so two vertices on top of each other don't fly apart.
+    private static final float MIN_DISTANCE = 0.01f;
+
+    private final CompactGraph graph;
+    private final int[] edgeSources;
+    private final int vertexCount;
+    // Current positions and the displacement accumulated in the current step.
+    private final float[] x;
+    private final float[] y;
+    private final float[] moveX;
+    private final float[] moveY;
+    // The largest distance a vertex may move in one step. It shrinks each step.
+    private float temperature;
+    private final float cooling;
+    private int steps;
+
+    // Quadtree nodes, stored as parallel arrays. A node's four children are stored consecutively
+    // starting at firstChild; a leaf has firstChild == -1 and holds at most one body unless at MAX_DEPTH.
+    private float[] nodeCenterX = new float[64];
+    private float[] nodeCenterY = new float[64];
+    private float[] nodeHalf = new float[64];
+    private float[] nodeSumX = new float[64];
+    private float[] nodeSumY = new float[64];
+    private int[] nodeCount = new int[64];
+    private int[] nodeFirstChild = new int[64];
+    private int[] nodeBody = new int[64];
+    private int nodeTotal;
+    // Reused traversal stack for the force calculation.
+    private int[] stack = new int[256];
+
+    // Set from another thread to stop a background run early.
+    private volatile boolean stopped = false;
+
+    /**
+     * Constructs a layout simulation. Vertices start at random positions in a square sized for the graph.
+     * @param graph The graph to lay out. Edge directions and weights are ignored.
+     * @param iterations The number of steps the temperature is planned to cool over.
+     * @param seed The random seed for the starting positions.
+     */
+    public ForceDirectedLayout(CompactGraph graph, int iterations, long seed)
+    {
+        this.graph = graph;
+        this.edgeSources = graph.sources();
+        this.vertexCount = graph.getSize();
+        x = new float[vertexCount];
+        y = new float[vertexCount];
+        moveX = new float[vertexCount];
+        moveY = new float[vertexCount];
+
+        float side = IDEAL_LENGTH * (float) Math.sqrt(Math.max(vertexCount, 1));
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            x[v] = (float) (random.nextDouble() * side);
+            y[v] = (float) (random.nextDouble() * side);
+        }
+        temperature = side / 10;
+        // Cool geometrically to about 1% of the starting temperature over the planned iterations.
+        cooling = (float) Math.pow(0.01, 1.0 / Math.max(iterations, 1));
+    }
+
+    /**
+     * Runs one step of the simulation.
+     */
+    public void step()
+    {
+        Arrays.fill(moveX, 0);
+        Arrays.fill(moveY, 0);
+        buildQuadtree();
+
+        // Repulsion between all vertices, approximated by the quadtree.
+        float k2 = IDEAL_LENGTH * IDEAL_LENGTH;
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            repel(v, k2);
+        }
+
+        // Attraction along every edge, applied to both ends.
+        for (int e = 0; e < edgeSources.length; e ++)
+        {
+            int u = edgeSources[e];
+            int v = graph.target(e);
+            if (u == v)
+            {
+                continue;
+            }
+            float dx = x[u] - x[v];
+            float dy = y[u] - y[v];
+            float distance = Math.max(MIN_DISTANCE, (float) Math.sqrt(dx * dx + dy * dy));
+            float force = distance / IDEAL_LENGTH; // d^2 / k, divided by d to scale the unit vector.
+            moveX[u] -= dx * force;
+            moveY[u] -= dy * force;
+            moveX[v] += dx * force;
+            moveY[v] += dy * force;
+        }
+
+        // Move each vertex along its net force, limited by the temperature.
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            float length = (float) Math.sqrt(moveX[v] * moveX[v] + moveY[v] * moveY[v]);
+            if (length > 0)
+            {
+                float limit = Math.min(length, temperature) / length;
+                x[v] += moveX[v] * limit;
+                y[v] += moveY[v] * limit;
+            }
+        }
+        temperature *= cooling;
+        steps ++;
+    }
+
+    /**
+     * Returns the number of steps run so far.
+     * @return The step count.
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Copies the current positions into a new layout, shifted so every vertex has room for its node and label.
+     * @return A snapshot of the layout.
+     */
+    public GraphLayout snapshot()
+    {
+        GraphLayout layout = new GraphLayout(vertexCount);
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+        }
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            layout.setPosition(v, x[v] - minX + 100, y[v] - minY + 100);
+        }
+        return layout;
+    }
+
+    /**
+     * Runs the simulation on a daemon thread, handing a snapshot to a consumer every few steps and once at the end.
+     * The consumer is called on the background thread; Swing callers should pass the snapshot on with
+     * SwingUtilities.invokeLater.
+     * @param iterations The number of steps to run.
+     * @param framesEvery The number of steps between snapshots.
+     * @param onFrame Receives each snapshot.
+     * @param onDone Receives the final layout if the run wasn't stopped early; may be null.
+     * @return The started thread.
+     */
+    public Thread start(int iterations, int framesEvery, Consumer<GraphLayout> onFrame, Consumer<GraphLayout> onDone)
+    {
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < iterations && !stopped; i ++)
+            {
+                step();
+                if ((i + 1) % framesEvery == 0 && i + 1 < iterations)
+                {
+                    onFrame.accept(snapshot());
+                }
+            }
+            GraphLayout last = snapshot();
+            onFrame.accept(last);
+            if (onDone != null && !stopped)
+            {
+                onDone.accept(last);
+            }
+        }, "force-directed-layout");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Asks a background run to stop after its current step.
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+    /**
+     * Rebuilds the quadtree over the current positions.
+     */
+    private void buildQuadtree()
+    {
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxX = Math.max(maxX, x[v]);
+            maxY = Math.max(maxY, y[v]);
+        }
+        nodeTotal = 0;
+        float half = Math.max(maxX - minX, maxY - minY) / 2 + 1;
+        newNode((minX + maxX) / 2, (minY + maxY) / 2, half);
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            insert(v);
+        }
+    }
+
+    /**
+     * Adds an empty leaf to the quadtree.
+     * @param centerX The x coordinate of the node's square centre.
+     * @param centerY The y coordinate of the node's square centre.
+     * @param half Half the side length of the node's square.
+     * @return The new node's index.
+     */
+    private int newNode(float centerX, float centerY, float half)
+    {
+        if (nodeTotal == nodeCount.length)
+        {
+            int capacity = nodeTotal * 2;
+            nodeCenterX = Arrays.copyOf(nodeCenterX, capacity);
+            nodeCenterY = Arrays.copyOf(nodeCenterY, capacity);
+            nodeHalf = Arrays.copyOf(nodeHalf, capacity);
+            nodeSumX = Arrays.copyOf(nodeSumX, capacity);
+            nodeSumY = Arrays.copyOf(nodeSumY, capacity);
+            nodeCount = Arrays.copyOf(nodeCount, capacity);
+            nodeFirstChild = Arrays.copyOf(nodeFirstChild, capacity);
+            nodeBody = Arrays.copyOf(nodeBody, capacity);
+        }
+        int node = nodeTotal ++;
+        nodeCenterX[node] = centerX;
+        nodeCenterY[node] = centerY;
+        nodeHalf[node] = half;
+        nodeSumX[node] = 0;
+        nodeSumY[node] = 0;
+        nodeCount[node] = 0;
+        nodeFirstChild[node] = -1;
+        nodeBody[node] = -1;
+        return node;
+    }
+
+    /**
+     * Returns which child of a node a point falls in: bit 0 is set for the right half, bit 1 for the bottom half.
+     * @param node The node index.
+     * @param px The point's x coordinate.
+     * @param py The point's y coordinate.
+     * @return The child number, from 0 to 3.
+     */
+    private int quadrant(int node, float px, float py)
+    {
+        return (px >= nodeCenterX[node] ? 1 : 0) | (py >= nodeCenterY[node] ? 2 : 0);
+    }
+
+    /**
+     * Inserts a vertex into the quadtree, splitting leaves that already hold a vertex.
+     * @param v The vertex.
+     */
+    private void insert(int v)
+    {
+        int node = 0;
+        int depth = 0;
+        while (true)
+        {
+            nodeCount[node] ++;
+            nodeSumX[node] += x[v];
+            nodeSumY[node] += y[v];
+            if (nodeFirstChild[node] == -1)
+            {
+                if (nodeCount[node] == 1)
+                {
+                    nodeBody[node] = v;
+                    return;
+                }
+                if (depth >= MAX_DEPTH)
+                {
+                    // Too deep to split: the leaf keeps several vertices as one mass.
+                    return;
+                }
+                // Split the leaf and move its existing vertex into the matching child.
+                int existing = nodeBody[node];
+                nodeBody[node] = -1;
+                float half = nodeHalf[node] / 2;
+                int first = newNode(nodeCenterX[node] - half, nodeCenterY[node] - half, half);
+                newNode(nodeCenterX[node] + half, nodeCenterY[node] - half, half);
+                newNode(nodeCenterX[node] - half, nodeCenterY[node] + half, half);
+                newNode(nodeCenterX[node] + half, nodeCenterY[node] + half, half);
+                nodeFirstChild[node] = first;
+                int child = first + quadrant(node, x[existing], y[existing]);
+                nodeCount[child] = 1;
+                nodeSumX[child] = x[existing];
+                nodeSumY[child] = y[existing];
+                nodeBody[child] = existing;
+            }
+            node = nodeFirstChild[node] + quadrant(node, x[v], y[v]);
+            depth ++;
+        }
+    }
+
+    /**
+     * Adds the repulsion on one vertex from every other vertex, using the quadtree.
+     * @param v The vertex.
+     * @param k2 The square of the ideal edge length.
+     */
+    private void repel(int v, float k2)
+    {
+        int top = 0;
+        stack[top ++] = 0;
+        while (top > 0)
+        {
+            int node = stack[-- top];
+            int count = nodeCount[node];
+            if (count == 0 || (nodeFirstChild[node] == -1 && nodeBody[node] == v && count == 1))
+            {
+                continue;
+            }
+            float dx = x[v] - nodeSumX[node] / count;
+            float dy = y[v] - nodeSumY[node] / count;
+            float distance = Math.max(MIN_DISTANCE, (float) Math.sqrt(dx * dx + dy * dy));
+            if (nodeFirstChild[node] == -1 || 2 * nodeHalf[node] / distance < THETA)
+            {
+                // Treat the node as one mass. k^2 / d, divided by d to scale the unit vector.
+                float force = count * k2 / (distance * distance);
+                moveX[v] += dx * force;
+                moveY[v] += dy * force;
+                continue;
+            }
+            if (top + 4 > stack.length)
+            {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            int first = nodeFirstChild[node];
+            for (int c = 0; c < 4; c ++)
+            {
+                stack[top ++] = first + c;
+            }
+        }
+    }
+}
@@ -0,0 +1,594 @@
+package bellman.ford;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The correctness and scale corpus built on GraphGenerator's sink generators: Erdos-Renyi, road grid,
+ * R-MAT, worst-case DAG and planted negative cycle graphs.
+ *
+ * The check runs every engine, including the out-of-core one, on each seeded graph of each family and
+ * cross-checks them against BellmanFordSolver: the same distances and negative cycle verdict, also after
+ * renumbering the vertices by each built-in ordering and mapping the result back, every path
+ * summing to its distance, V - 1 passes on the worst-case DAG, a negative cycle exactly when a planted one
+ * is reachable, the negative infinity vertices the planted cycles imply whether the cycle is extracted
+ * from its own result or the queue engine's, and on graphs of ten vertices the naive approach's distances
+ * too. It exits with status 1 if anything disagrees.
+ *
+ * With --scale-edges and --out, it also streams one graph per family of about that many edges to a binary
+ * graph file with GraphFileWriter, then loads and solves it with the queue engine unless --write-only is
+ * given. The worst-case DAG is only written, since it takes V passes by design. The files never have to
+ * fit in memory while they are written.
+ *
+ * Usage: java bellman.ford.GraphCorpus [--seeds N] [--vertices N] [--scale-edges N --out DIR [--write-only]]
+ */
+public final class GraphCorpus
+{
+    // The size of the graphs the naive approach is checked on; it enumerates simple paths.
+    private static final int NAIVE_VERTICES = 10;
+    private static final int MAX_WEIGHT = 100;
+
+    private GraphCorpus()
+    {
+    }
+
+    /**
+     * The generated graph families. Each is sized from a target vertex count.
+     */
+    private enum Family
+    {
+        ERDOS_RENYI("erdos-renyi")
+        {
+            @Override
+            int[] generate(EdgeSink sink, int vertexes, long seed)
+            {
+                GraphGenerator.erdosRenyi(sink, vertexes, 4.0 / vertexes, MAX_WEIGHT, seed);
+                return null;
+            }
+        },
+        ROAD("road")
+        {
+            @Override
+            int vertexes(int target)
+            {
+                int side = side(target);
+                return side * side;
+            }
+
+            @Override
+            int[] generate(EdgeSink sink, int vertexes, long seed)
+            {
+                int side = side(vertexes);
+                GraphGenerator.road(sink, side, side, MAX_WEIGHT, seed);
+                return null;
+            }
+        },
+        RMAT("rmat")
+        {
+            @Override
+            int vertexes(int target)
+            {
+                return 1 << scale(target);
+            }
+
+            @Override
+            int[] generate(EdgeSink sink, int vertexes, long seed)
+            {
+                GraphGenerator.rmat(sink, scale(vertexes), 4 * vertexes, 0.57, 0.19, 0.19, MAX_WEIGHT, seed);
+                return null;
+            }
+        },
+        WORST_CASE_DAG("dag")
+        {
+            @Override
+            int[] generate(EdgeSink sink, int vertexes, long seed)
+            {
+                GraphGenerator.worstCaseDag(sink, vertexes, 3, MAX_WEIGHT, seed);
+                return null;
+            }
+        },
+        PLANTED_CYCLES("planted")
+        {
+            @Override
+            int[] generate(EdgeSink sink, int vertexes, long seed)
+            {
+                // One random out-edge per vertex leaves many planted cycles out of reach, so both verdicts occur.
+                return GraphGenerator.plantedNegativeCycles(sink, vertexes, 1, 2, 3, MAX_WEIGHT, seed);
+            }
+        };
+
+        final String label;
+
+        Family(String label)
+        {
+            this.label = label;
+        }
+
+        /**
+         * Returns the vertex count the family uses for a target size.
+         * @param target The requested number of vertices.
+         * @return The number of vertices generated.
+         */
+        int vertexes(int target)
+        {
+            return target;
+        }
+
+        /**
+         * Generates a graph of the family.
+         * @param sink Receives the edges.
+         * @param vertexes A vertex count returned by vertexes.
+         * @param seed The random seed.
+         * @return The planted cycle vertices, or null if the family plants none.
+         */
+        abstract int[] generate(EdgeSink sink, int vertexes, long seed);
+
+        private static int side(int vertexes)
+        {
+            return Math.max(2, (int) Math.sqrt(vertexes));
+        }
+
+        private static int scale(int vertexes)
+        {
+            return Math.max(1, 31 - Integer.numberOfLeadingZeros(vertexes));
+        }
+    }
+
+    /**
+     * Runs the correctness check and, if requested, the scale run.
+     * @param args Optional --seeds, --vertices, --scale-edges, --out and --write-only settings.
+     * @throws IOException If a scale graph can't be written or read.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int seeds = (int) longOption(args, "--seeds", 20);
+        int vertexes = (int) longOption(args, "--vertices", 2_000);
+        long scaleEdges = longOption(args, "--scale-edges", 0);
+        String out = stringOption(args, "--out");
+        boolean writeOnly = false;
+        for (String arg : args)
+        {
+            writeOnly |= arg.equals("--write-only");
+        }
+
+        ParallelBellmanFord parallel = new ParallelBellmanFord(2);
+        // Holds the files of the out-of-core engine.
+        Path scratch = Files.createTempDirectory("corpus");
+        long failures = 0;
+        try
+        {
+            System.out.printf("%-12s %8s %12s %10s %10s%n", "graph", "graphs", "edges", "cycles", "failures");
+            for (Family family : Family.values())
+            {
+                long graphs = 0;
+                long edges = 0;
+                long cycles = 0;
+                long familyFailures = 0;
+                for (int seed = 0; seed < seeds; seed ++)
+                {
+                    for (int target : new int[] { NAIVE_VERTICES, vertexes })
+                    {
+                        int n = family.vertexes(target);
+                        CompactGraphBuilder builder = new CompactGraphBuilder(n, 4 * n);
+                        int[] planted = family.generate(builder, n, seed);
+                        CompactGraph graph = builder.build();
+                        String name = family.label + " seed " + seed + " V=" + n;
+                        ShortestPaths result = BellmanFordSolver.solve(graph, 0);
+                        familyFailures += check(name, family, graph, planted, result, parallel, target == NAIVE_VERTICES);
+                        familyFailures += external(name, graph, result, scratch);
+                        graphs ++;
+                        edges += graph.getEdgeCount();
+                        cycles += result.hasNegativeCycle() ? 1 : 0;
+                    }
+                }
+                System.out.printf("%-12s %8d %12d %10d %10d%n", family.label, graphs, edges, cycles, familyFailures);
+                failures += familyFailures;
+            }
+        }
+        finally
+        {
+            parallel.shutdown();
+            try (Stream<Path> files = Files.walk(scratch))
+            {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                {
+                    Files.delete(file);
+                }
+            }
+        }
+
+        if (scaleEdges > 0 && out != null)
+        {
+            scale(Paths.get(out), scaleEdges, writeOnly);
+        }
+        if (failures > 0)
+        {
+            System.out.println(failures + " checks failed");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Cross-checks the engines on one graph.
+     * @param name The graph's description, used in failure messages.
+     * @param family The graph's family.
+     * @param graph The graph.
+     * @param planted The planted cycle vertices, or null.
+     * @param reference BellmanFordSolver's result from vertex 0.
+     * @param parallel The parallel engine to check.
+     * @param naive Whether to check the naive approach too.
+     * @return The number of failed checks.
+     */
+    private static int check(String name, Family family, CompactGraph graph, int[] planted, ShortestPaths reference,
+        ParallelBellmanFord parallel, boolean naive)
+    {
+        int failures = 0;
+        int n = graph.getSize();
+        boolean negative = reference.hasNegativeCycle();
+
+        // Every planted cycle is negative and every negative cycle uses a planted edge, so the vertices with
+        // distance negative infinity are exactly those reachable from a planted vertex the source reaches.
+        boolean[] unbounded = null;
+        if (planted != null)
+        {
+            boolean[] reachable = reachable(graph, 0);
+            int[] reached = new int[planted.length];
+            int count = 0;
+            for (int v : planted)
+            {
+                if (reachable[v])
+                {
+                    reached[count ++] = v;
+                }
+            }
+            unbounded = reachable(graph, Arrays.copyOf(reached, count));
+            failures += expect(name, "negative cycle verdict matches the planted cycles", negative == (count > 0));
+        }
+        if (family == Family.WORST_CASE_DAG && n > 1)
+        {
+            failures += expect(name, "worst-case DAG takes V - 1 relaxing passes", reference.getPasses() >= n - 1);
+        }
+
+        ShortestPaths queue = QueueBellmanFord.solve(graph, 0);
+        failures += same(name, "queue", reference, queue);
+        failures += same(name, "ordered bfs", reference, new OrderedBellmanFord(VertexOrderings.bfs()).solve(graph, 0, null));
+        failures += same(name, "ordered rcm", reference,
+            new OrderedBellmanFord(VertexOrderings.reverseCuthillMcKee()).solve(graph, 0, null));
+        failures += same(name, "parallel", reference, parallel.solve(graph, 0, null));
+        failures += renumbered(name, graph, reference, "bfs");
+        failures += renumbered(name, graph, reference, "rcm");
+        failures += renumbered(name, graph, reference, "degree");
+
+        LongShortestPaths wide = LongBellmanFord.solve(graph, 0);
+        failures += expect(name, "long engine negative cycle verdict", wide.hasNegativeCycle() == negative);
+        // The long engine copies the solver's sweep, so without saturation it must take the same passes.
+        failures += expect(name, "long engine passes and edges scanned", reference.isSaturated()
+            || (wide.getPasses() == reference.getPasses() && wide.getEdgesScanned() == reference.getEdgesScanned()));
+        if (negative)
+        {
+            NegativeCycle cycle = NegativeCycle.find(graph, reference);
+            failures += expect(name, "negative cycle extracted", cycle != null);
+            failures += unbounded(name, "queue", graph, NegativeCycle.find(graph, queue), cycle, unbounded);
+            return failures;
+        }
+
+        int[] distances = reference.getDistances();
+        long[] wideDistances = wide.getDistances();
+        for (int v = 0; v < n; v ++)
+        {
+            boolean unreachable = distances[v] == ShortestPaths.INFINITY;
+            if (unreachable ? wideDistances[v] != LongShortestPaths.INFINITY : wideDistances[v] != distances[v])
+            {
+                failures += expect(name, "long engine distance to " + v, false);
+                break;
+            }
+            int[] path = reference.pathTo(v);
+            if (unreachable != (path == null))
+            {
+                failures += expect(name, "path to " + v + " exists exactly when reachable", false);
+                break;
+            }
+            if (path != null)
+            {
+                long length = 0;
+                for (int e : path)
+                {
+                    length += graph.weight(e);
+                }
+                if (length != distances[v])
+                {
+                    failures += expect(name, "path to " + v + " sums to its distance", false);
+                    break;
+                }
+            }
+        }
+
+        if (naive)
+        {
+            adjacencyList list = new adjacencyList(graph);
+            boolean complete = list.naiveApproach(0);
+            failures += expect(name, "naive approach finishes", complete);
+            if (complete)
+            {
+                for (int v = 0; v < n; v ++)
+                {
+                    if (list.shortestPath[v] != distances[v])
+                    {
+                        failures += expect(name, "naive distance to " + v, false);
+                        break;
+                    }
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Checks that a cycle extracted from an engine's result marks the same vertices with distance negative
+     * infinity as the one extracted from the reference, and as the planted cycles imply when there are some.
+     * @param name The graph's description.
+     * @param engine The engine's name, used in failure messages.
+     * @param graph The graph.
+     * @param cycle The cycle extracted from the engine's result.
+     * @param reference The cycle extracted from BellmanFordSolver's result.
+     * @param expected A flag per vertex, set if its distance is negative infinity, or null if unknown.
+     * @return The number of failed checks.
+     */
+    private static int unbounded(String name, String engine, CompactGraph graph, NegativeCycle cycle, NegativeCycle reference,
+        boolean[] expected)
+    {
+        if (cycle == null || reference == null)
+        {
+            return expect(name, engine + " negative cycle extracted", false);
+        }
+        for (int v = 0; v < graph.getSize(); v ++)
+        {
+            boolean unbounded = reference.isNegativeInfinity(v);
+            if (expected != null && unbounded != expected[v])
+            {
+                return expect(name, "negative infinity at " + v + " matches the planted cycles", false);
+            }
+            if (cycle.isNegativeInfinity(v) != unbounded)
+            {
+                return expect(name, engine + " negative infinity at " + v, false);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks that solving the graph renumbered by an ordering and mapping the result back gives the reference
+     * distances, and that every restored predecessor edge leads from the restored predecessor to its vertex.
+     * @param name The graph's description.
+     * @param graph The graph.
+     * @param reference BellmanFordSolver's result from vertex 0.
+     * @param ordering The name of the ordering to renumber by.
+     * @return The number of failed checks.
+     */
+    private static int renumbered(String name, CompactGraph graph, ShortestPaths reference, String ordering)
+    {
+        VertexRenumbering renumbering = VertexRenumbering.of(graph, VertexOrderings.named(ordering), 0);
+        CompactGraph renumberedGraph = renumbering.getGraph();
+        for (int v = 0; v < renumberedGraph.getSize(); v ++)
+        {
+            for (int e = renumberedGraph.edgeStart(v) + 1; e < renumberedGraph.edgeEnd(v); e ++)
+            {
+                if (renumberedGraph.target(e - 1) > renumberedGraph.target(e))
+                {
+                    return expect(name, "renumbered " + ordering + " out-edges of " + v + " sorted by target", false);
+                }
+            }
+        }
+        ShortestPaths result = renumbering.restore(BellmanFordSolver.solve(renumberedGraph, renumbering.toRenumbered(0)));
+        int failures = same(name, "renumbered " + ordering, reference, result);
+        if (failures > 0 || result.hasNegativeCycle())
+        {
+            return failures;
+        }
+        int[] predecessors = result.getPredecessors();
+        int[] predecessorEdges = result.getPredecessorEdges();
+        for (int v = 0; v < predecessors.length; v ++)
+        {
+            int edge = predecessorEdges[v];
+            if (edge != ShortestPaths.NO_PREDECESSOR && (graph.target(edge) != v || graph.source(edge) != predecessors[v]))
+            {
+                return expect(name, "renumbered " + ordering + " predecessor edge of " + v + " maps back", false);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks that the out-of-core engine agrees with the reference result, with the graph split into four blocks.
+     * @param name The graph's description.
+     * @param graph The graph.
+     * @param reference BellmanFordSolver's result from vertex 0.
+     * @param scratch The directory for the graph's files.
+     * @return The number of failed checks.
+     * @throws IOException If the files can't be written.
+     */
+    private static int external(String name, CompactGraph graph, ShortestPaths reference, Path scratch) throws IOException
+    {
+        Path file = scratch.resolve("graph.bfg");
+        GraphLoader.writeBinary(graph, file);
+        SegmentedGraph segmented = SegmentedGraph.partition(file, scratch.resolve("segments"), Math.max(1, (graph.getSize() + 3) / 4));
+        try (ExternalShortestPaths result = ExternalBellmanFord.solve(segmented, 0, scratch.resolve("state")))
+        {
+            if (result.hasNegativeCycle() != reference.hasNegativeCycle())
+            {
+                return expect(name, "out-of-core negative cycle verdict", false);
+            }
+            if (reference.hasNegativeCycle())
+            {
+                return 0;
+            }
+            int[] expected = reference.getDistances();
+            for (int v = 0; v < expected.length; v ++)
+            {
+                if (result.distance(v) != expected[v])
+                {
+                    return expect(name, "out-of-core distance to " + v + " is " + result.distance(v) + ", not " + expected[v], false);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks that an engine agrees with the reference result.
+     * @param name The graph's description.
+     * @param engine The engine's name.
+     * @param reference The reference result.
+     * @param result The engine's result.
+     * @return 1 if they disagree, otherwise 0.
+     */
+    private static int same(String name, String engine, ShortestPaths reference, ShortestPaths result)
+    {
+        if (result.hasNegativeCycle() != reference.hasNegativeCycle())
+        {
+            return expect(name, engine + " negative cycle verdict", false);
+        }
+        if (reference.hasNegativeCycle())
+        {
+            return 0;
+        }
+        int[] expected = reference.getDistances();
+        int[] actual = result.getDistances();
+        for (int v = 0; v < expected.length; v ++)
+        {
+            if (expected[v] != actual[v])
+            {
+                return expect(name, engine + " distance to " + v + " is " + actual[v] + ", not " + expected[v], false);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reports a failed check.
+     * @param name The graph's description.
+     * @param what The property checked.
+     * @param ok Whether it held.
+     * @return 1 if it failed, otherwise 0.
+     */
+    private static int expect(String name, String what, boolean ok)
+    {
+        if (ok)
+        {
+            return 0;
+        }
+        System.out.println("FAILED " + name + ": " + what);
+        return 1;
+    }
+
+    /**
+     * Finds the vertices reachable from any of some sources with a breadth-first search.
+     * @param graph The graph.
+     * @param sources The source vertices.
+     * @return A flag per vertex, set if it is reachable.
+     */
+    private static boolean[] reachable(CompactGraph graph, int... sources)
+    {
+        boolean[] seen = new boolean[graph.getSize()];
+        int[] queue = new int[graph.getSize()];
+        int head = 0;
+        int tail = 0;
+        for (int src : sources)
+        {
+            if (!seen[src])
+            {
+                seen[src] = true;
+                queue[tail ++] = src;
+            }
+        }
+        while (head < tail)
+        {
+            int u = queue[head ++];
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e ++)
+            {
+                int v = graph.target(e);
+                if (!seen[v])
+                {
+                    seen[v] = true;
+                    queue[tail ++] = v;
+                }
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Streams one graph per family to a binary file and, unless writeOnly is set, loads and solves it.
+     * @param directory The directory to write the files to.
+     * @param edges The approximate number of edges per graph.
+     * @param writeOnly Whether to skip loading and solving.
+     * @throws IOException If a file can't be written or read.
+     */
+    private static void scale(Path directory, long edges, boolean writeOnly) throws IOException
+    {
+        Files.createDirectories(directory);
+        System.out.printf("%n%-12s %12s %12s %12s %10s %12s %8s%n", "graph", "vertices", "edges", "MB", "write ms", "solve ms", "passes");
+        for (Family family : Family.values())
+        {
+            int n = family.vertexes((int) Math.min(Integer.MAX_VALUE - 1, Math.max(2, edges / 4)));
+            Path path = directory.resolve(family.label + ".bfg");
+            long start = System.nanoTime();
+            long written;
+            try (GraphFileWriter writer = new GraphFileWriter(path, n))
+            {
+                family.generate(writer, n, 42L);
+                written = writer.getEdgeCount();
+            }
+            long writeNanos = System.nanoTime() - start;
+            String solveMillis = "-";
+            String passes = "-";
+            // The worst-case DAG takes V passes by design, which is out of reach at this size.
+            if (!writeOnly && family != Family.WORST_CASE_DAG)
+            {
+                CompactGraph graph = GraphLoader.readBinary(path);
+                start = System.nanoTime();
+                ShortestPaths result = QueueBellmanFord.solve(graph, 0);
+                solveMillis = String.format("%.1f", (System.nanoTime() - start) / 1e6);
+                passes = String.valueOf(result.getPasses());
+            }
+            System.out.printf("%-12s %12d %12d %12.1f %10.1f %12s %8s%n", family.label, n, written, Files.size(path) / 1e6,
+                writeNanos / 1e6, solveMillis, passes);
+        }
+    }
+
+    /**
+     * Reads a numeric command line option.
+     * @param args The command line arguments.
+     * @param name The option name, for example "--seeds".
+     * @param fallback The value to use when the option is missing.
+     * @return The option value.
+     */
+    private static long longOption(String[] args, String name, long fallback)
+    {
+        String value = stringOption(args, name);
+        return value == null ? fallback : Long.parseLong(value);
+    }
+
+    /**
+     * Reads a command line option.
+     * @param args The command line arguments.
+     * @param name The option name, for example "--out".
+     * @return The option value, or null when the option is missing.
+     */
+    private static String stringOption(String[] args, String name)
+    {
+        for (int i = 0; i + 1 < args.length; i ++)
+        {
+            if (args[i].equals(name))
+            {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+}
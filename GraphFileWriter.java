@@ -0,0 +1,198 @@
+package bellman.ford;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams edges that arrive in source order into a file in GraphLoader's binary format, so a generator
+ * can write a graph far larger than the heap. Only the vertex count must be known up front: offsets are
+ * written into their region as each source vertex is finished and targets follow them, while weights go
+ * to a temporary file beside the output that is appended on close, once the edge count is known.
+ * Memory use is three fixed buffers, whatever the size of the graph.
+ */
+public final class GraphFileWriter implements EdgeSink, Closeable
+{
+    // Size of each of the three write buffers.
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final int vertexes;
+    private final FileChannel out;
+    private final Path weightsPath;
+    private final FileChannel weightsOut;
+    private final ByteBuffer offsetBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer targetBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer weightBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    // File positions where the next buffered offsets and targets go.
+    private long offsetPosition;
+    private long targetPosition;
+    private long edgeCount;
+    // The number of offsets written so far; offsets[0] to offsets[current] are done once an edge from current arrives.
+    private int offsetsWritten;
+    private int current = -1;
+    private boolean closed;
+
+    /**
+     * Creates or replaces a binary graph file.
+     * @param path The file to write.
+     * @param vertexes The number of vertices in the graph.
+     * @throws IOException If the file can't be created.
+     */
+    public GraphFileWriter(Path path, int vertexes) throws IOException
+    {
+        if (vertexes < 0)
+        {
+            throw new IllegalArgumentException("Negative vertex count " + vertexes);
+        }
+        this.vertexes = vertexes;
+        out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Path directory = path.toAbsolutePath().getParent();
+        weightsPath = Files.createTempFile(directory, path.getFileName().toString(), ".weights");
+        weightsOut = FileChannel.open(weightsPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.DELETE_ON_CLOSE);
+        offsetPosition = GraphLoader.HEADER_BYTES;
+        targetPosition = GraphLoader.HEADER_BYTES + 4L * (vertexes + 1);
+    }
+
+    @Override
+    public void edge(int u, int v, int w)
+    {
+        if (u < 0 || u >= vertexes || v < 0 || v >= vertexes)
+        {
+            throw new IndexOutOfBoundsException("Edge " + u + "->" + v + " is outside a graph of " + vertexes + " vertices");
+        }
+        if (u < current)
+        {
+            throw new IllegalArgumentException("Edge from " + u + " added after an edge from " + current);
+        }
+        if (edgeCount == Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException("A graph file can hold at most " + Integer.MAX_VALUE + " edges");
+        }
+        try
+        {
+            // Every vertex up to u starts its range at the current edge count.
+            while (offsetsWritten <= u)
+            {
+                putOffset();
+            }
+            current = u;
+            if (!targetBuffer.hasRemaining())
+            {
+                targetPosition = flush(targetBuffer, targetPosition);
+            }
+            targetBuffer.putInt(v);
+            if (!weightBuffer.hasRemaining())
+            {
+                flushWeights();
+            }
+            weightBuffer.putInt(w);
+            edgeCount ++;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of edges written so far.
+     * @return The edge count.
+     */
+    public long getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    /**
+     * Finishes the file: writes the remaining offsets, the header and the weights, and removes the temporary file.
+     * @throws IOException If the file can't be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        try (FileChannel file = out; FileChannel weights = weightsOut)
+        {
+            while (offsetsWritten <= vertexes)
+            {
+                putOffset();
+            }
+            offsetPosition = flush(offsetBuffer, offsetPosition);
+            targetPosition = flush(targetBuffer, targetPosition);
+            flushWeights();
+
+            ByteBuffer header = ByteBuffer.allocate(GraphLoader.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(GraphLoader.MAGIC).putInt(GraphLoader.VERSION).putInt(vertexes).putInt((int) edgeCount);
+            flush(header, 0);
+
+            // The weights region starts right after the targets.
+            long done = 0;
+            long size = weights.size();
+            while (done < size)
+            {
+                done += file.transferFrom(weights.position(done), targetPosition + done, size - done);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(weightsPath);
+        }
+    }
+
+    /**
+     * Buffers the next offset, which is the current edge count.
+     * @throws IOException If a full buffer can't be written.
+     */
+    private void putOffset() throws IOException
+    {
+        if (!offsetBuffer.hasRemaining())
+        {
+            offsetPosition = flush(offsetBuffer, offsetPosition);
+        }
+        offsetBuffer.putInt((int) edgeCount);
+        offsetsWritten ++;
+    }
+
+    /**
+     * Writes a buffer's contents to the output at a position and empties it.
+     * @param buffer The filled buffer.
+     * @param position The file position of its first byte.
+     * @return The file position after its last byte.
+     * @throws IOException If the file can't be written.
+     */
+    private long flush(ByteBuffer buffer, long position) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            position += out.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    /**
+     * Appends the buffered weights to the temporary weights file.
+     * @throws IOException If the file can't be written.
+     */
+    private void flushWeights() throws IOException
+    {
+        weightBuffer.flip();
+        while (weightBuffer.hasRemaining())
+        {
+            weightsOut.write(weightBuffer);
+        }
+        weightBuffer.clear();
+    }
+}
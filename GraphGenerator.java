@@ -0,0 +1,416 @@
+package bellman.ford;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates reproducible, seeded graphs for benchmarking and testing.
+ * Every generator takes a seed, so the same arguments always produce the same graph.
+ *
+ * random, grid and scaleFree return an adjacencyList. The generators that take an EdgeSink emit
+ * every edge in source order instead, so they write straight into a CompactGraphBuilder or, for graphs
+ * bigger than the heap, a GraphFileWriter, and need memory only for the graph they produce.
+ * Unless a generator says otherwise, weights are drawn uniformly from [0, maxWeight], so its graphs
+ * never contain negative cycles.
+ */
+public final class GraphGenerator
+{
+    private GraphGenerator()
+    {
+    }
+
+    /**
+     * Generates a graph whose edges join uniformly random vertex pairs.
+     * @param vertexes The number of vertices.
+     * @param edges The number of edges.
+     * @param maxWeight The largest edge weight.
+     * @param seed The random seed.
+     * @return The generated graph.
+     */
+    public static adjacencyList random(int vertexes, int edges, int maxWeight, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        adjacencyList graph = new adjacencyList(vertexes, edges);
+        for (int i = 0; i < edges; i ++)
+        {
+            graph.addEdge(random.nextInt(vertexes), random.nextInt(vertexes), random.nextInt(maxWeight + 1));
+        }
+        return graph;
+    }
+
+    /**
+     * Generates a width x height grid where each cell has an edge to each of its four neighbours,
+     * similar to a road network. Vertex (x, y) has index y * width + x.
+     * @param width The number of columns.
+     * @param height The number of rows.
+     * @param maxWeight The largest edge weight.
+     * @param seed The random seed.
+     * @return The generated graph, with about 4 * width * height edges.
+     */
+    public static adjacencyList grid(int width, int height, int maxWeight, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        adjacencyList graph = new adjacencyList(width * height, 4 * width * height);
+        for (int y = 0; y < height; y ++)
+        {
+            for (int x = 0; x < width; x ++)
+            {
+                int u = y * width + x;
+                if (x + 1 < width)
+                {
+                    graph.addEdge(u, u + 1, random.nextInt(maxWeight + 1));
+                    graph.addEdge(u + 1, u, random.nextInt(maxWeight + 1));
+                }
+                if (y + 1 < height)
+                {
+                    graph.addEdge(u, u + width, random.nextInt(maxWeight + 1));
+                    graph.addEdge(u + width, u, random.nextInt(maxWeight + 1));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Generates a scale-free graph by preferential attachment (Barabasi-Albert).
+     * Each new vertex adds edges to earlier vertices chosen with probability proportional to their degree,
+     * so a few hub vertices end up with most of the edges. Edge directions are picked at random.
+     * @param vertexes The number of vertices.
+     * @param edgesPerVertex The number of edges each new vertex adds.
+     * @param maxWeight The largest edge weight.
+     * @param seed The random seed.
+     * @return The generated graph, with about vertexes * edgesPerVertex edges.
+     */
+    public static adjacencyList scaleFree(int vertexes, int edgesPerVertex, int maxWeight, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        adjacencyList graph = new adjacencyList(vertexes, vertexes * edgesPerVertex);
+        // Every edge endpoint is recorded once, so picking a uniform entry picks a vertex by degree.
+        int[] endpoints = new int[2 * vertexes * edgesPerVertex + 2];
+        int count = 0;
+        endpoints[count ++] = 0;
+        for (int v = 1; v < vertexes; v ++)
+        {
+            int links = Math.min(edgesPerVertex, v);
+            for (int i = 0; i < links; i ++)
+            {
+                int u = endpoints[random.nextInt(count)];
+                if (random.nextBoolean())
+                {
+                    graph.addEdge(u, v, random.nextInt(maxWeight + 1));
+                }
+                else
+                {
+                    graph.addEdge(v, u, random.nextInt(maxWeight + 1));
+                }
+                endpoints[count ++] = u;
+                endpoints[count ++] = v;
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Generates an Erdos-Renyi G(n, p) graph: each ordered pair of distinct vertices is an edge with
+     * probability p, independently. Instead of testing all n^2 pairs it jumps straight to the next edge
+     * with a geometric skip, so the time is proportional to the number of edges.
+     * @param sink Receives the edges.
+     * @param vertexes The number of vertices.
+     * @param p The edge probability.
+     * @param maxWeight The largest edge weight.
+     * @param seed The random seed.
+     */
+    public static void erdosRenyi(EdgeSink sink, int vertexes, double p, int maxWeight, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        if (p <= 0)
+        {
+            return;
+        }
+        double logMiss = Math.log1p(-Math.min(p, 1));
+        long pairs = (long) vertexes * vertexes;
+        // The index of the last pair chosen, in row-major order, so edges come out grouped by source.
+        long pair = -1;
+        while (true)
+        {
+            // The number of pairs skipped before the next edge is geometric with parameter p.
+            long skip = p >= 1 ? 0 : (long) (Math.log(1 - random.nextDouble()) / logMiss);
+            if (skip >= pairs - pair - 1)
+            {
+                return;
+            }
+            pair += skip + 1;
+            int u = (int) (pair / vertexes);
+            int v = (int) (pair % vertexes);
+            if (u != v)
+            {
+                sink.edge(u, v, random.nextInt(maxWeight + 1));
+            }
+        }
+    }
+
+    /**
+     * Generates a road-like width x height grid. Each cell has an edge to each of its four neighbours,
+     * and both directions of a street have the same length, from 1 to maxWeight, like a road network
+     * without one-way streets. Vertex (x, y) has index y * width + x.
+     * A street's length is a hash of the seed and its two cells, so cells can be emitted in order
+     * without remembering the lengths already drawn.
+     * @param sink Receives the edges.
+     * @param width The number of columns.
+     * @param height The number of rows.
+     * @param maxWeight The longest street, at least 1.
+     * @param seed The random seed.
+     */
+    public static void road(EdgeSink sink, int width, int height, int maxWeight, long seed)
+    {
+        for (int y = 0; y < height; y ++)
+        {
+            for (int x = 0; x < width; x ++)
+            {
+                int u = y * width + x;
+                // Neighbours in increasing index order: up, left, right, down.
+                if (y > 0)
+                {
+                    sink.edge(u, u - width, streetLength(seed, u - width, u, maxWeight));
+                }
+                if (x > 0)
+                {
+                    sink.edge(u, u - 1, streetLength(seed, u - 1, u, maxWeight));
+                }
+                if (x + 1 < width)
+                {
+                    sink.edge(u, u + 1, streetLength(seed, u, u + 1, maxWeight));
+                }
+                if (y + 1 < height)
+                {
+                    sink.edge(u, u + width, streetLength(seed, u, u + width, maxWeight));
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates an R-MAT power-law graph on 2^scale vertices (Chakrabarti, Zhan and Faloutsos).
+     * R-MAT drops each edge into one quadrant of the adjacency matrix with probabilities a, b, c and
+     * 1 - a - b - c, then recurses into that quadrant, so vertices with many zero bits become hubs.
+     * Rather than dropping edges in random order, this draws each source row's edge count from the row's
+     * share of the total (a binomial, one row at a time) and then the targets bit by bit given the source
+     * bits, which gives the same distribution with the edges already in source order.
+     * As in R-MAT, the graph can contain self-loops and repeated edges.
+     * @param sink Receives the edges.
+     * @param scale The base-2 logarithm of the number of vertices, from 0 to 30.
+     * @param edges The number of edges.
+     * @param a The probability of the top-left quadrant; 0.57 is the usual choice.
+     * @param b The probability of the top-right quadrant; 0.19 is the usual choice.
+     * @param c The probability of the bottom-left quadrant; 0.19 is the usual choice.
+     * @param maxWeight The largest edge weight.
+     * @param seed The random seed.
+     */
+    public static void rmat(EdgeSink sink, int scale, int edges, double a, double b, double c, int maxWeight, long seed)
+    {
+        double d = 1 - a - b - c;
+        if (scale < 0 || scale > 30 || a < 0 || b < 0 || c < 0 || d < -1e-9)
+        {
+            throw new IllegalArgumentException("Bad R-MAT parameters: scale " + scale + ", a " + a + ", b " + b + ", c " + c);
+        }
+        d = Math.max(d, 0);
+        SplittableRandom random = new SplittableRandom(seed);
+        int vertexes = 1 << scale;
+        double top = a + b;
+        // Given a source bit, the chance that the matching target bit is 0.
+        double zeroAfterZero = top > 0 ? a / top : 0.5;
+        double zeroAfterOne = c + d > 0 ? c / (c + d) : 0.5;
+        int remaining = edges;
+        // The probability mass of the rows not yet drawn.
+        double remainingMass = 1;
+        for (int u = 0; u < vertexes && remaining > 0; u ++)
+        {
+            int ones = Integer.bitCount(u);
+            double rowMass = Math.pow(top, scale - ones) * Math.pow(1 - top, ones);
+            int count = u == vertexes - 1 ? remaining : binomial(random, remaining, rowMass / remainingMass);
+            remainingMass -= rowMass;
+            remaining -= count;
+            for (int i = 0; i < count; i ++)
+            {
+                int v = 0;
+                for (int bit = scale - 1; bit >= 0; bit --)
+                {
+                    double zero = (u >>> bit & 1) == 0 ? zeroAfterZero : zeroAfterOne;
+                    if (random.nextDouble() >= zero)
+                    {
+                        v |= 1 << bit;
+                    }
+                }
+                sink.edge(u, v, random.nextInt(maxWeight + 1));
+            }
+        }
+    }
+
+    /**
+     * Generates a DAG whose edge order is the worst case for the plain Bellman-Ford sweep.
+     * The topological order is 0, n - 1, n - 2, ..., 1, the reverse of the vertex order the sweep visits,
+     * and a chain of weight -1 edges runs along it. Every chain vertex's distance from 0 is only final one
+     * pass after its predecessor's, so BellmanFordSolver needs V - 1 passes. Each vertex also has extra
+     * edges to random vertices later in the topological order, with weights from 0 to maxWeight, which hand
+     * out distances that later passes keep lowering. The graph has negative edges but no cycles.
+     * The queue engine and the BFS ordering also take time quadratic in V on it, since the chain still
+     * settles one vertex at a time.
+     * @param sink Receives the edges.
+     * @param vertexes The number of vertices.
+     * @param extraEdgesPerVertex The number of extra edges from each vertex that has a later vertex to point to.
+     * @param maxWeight The largest weight of the extra edges.
+     * @param seed The random seed.
+     */
+    public static void worstCaseDag(EdgeSink sink, int vertexes, int extraEdgesPerVertex, int maxWeight, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int u = 0; u < vertexes; u ++)
+        {
+            // The vertices after u in the topological order: all others for 0, otherwise 1 to u - 1.
+            int later = u == 0 ? vertexes - 1 : u - 1;
+            if (later == 0)
+            {
+                continue;
+            }
+            sink.edge(u, u == 0 ? vertexes - 1 : u - 1, -1);
+            for (int i = 0; i < extraEdgesPerVertex; i ++)
+            {
+                sink.edge(u, 1 + random.nextInt(later), random.nextInt(maxWeight + 1));
+            }
+        }
+    }
+
+    /**
+     * Generates a random graph with planted negative cycles. Each vertex has edgesPerVertex edges to random
+     * vertices with weights from 0 to maxWeight, and cycles disjoint cycles of cycleLength random vertices
+     * are added on top, each weighing -1 in total: all but one of a cycle's edges get a random weight from
+     * 0 to maxWeight and the last one cancels them out.
+     * Every negative cycle in the graph uses a planted edge, so a run from src finds a negative cycle
+     * exactly when a vertex of some planted cycle is reachable from src; that gives the expected answer
+     * without solving the graph.
+     * @param sink Receives the edges.
+     * @param vertexes The number of vertices.
+     * @param edgesPerVertex The number of random edges from each vertex.
+     * @param cycles The number of cycles to plant.
+     * @param cycleLength The number of vertices on each cycle, at least 1.
+     * @param maxWeight The largest weight of the random edges.
+     * @param seed The random seed.
+     * @return The planted cycles' vertices, cycleLength per cycle in cycle order.
+     */
+    public static int[] plantedNegativeCycles(EdgeSink sink, int vertexes, int edgesPerVertex, int cycles, int cycleLength,
+        int maxWeight, long seed)
+    {
+        long planted = (long) cycles * cycleLength;
+        if (cycleLength < 1 || cycles < 0 || planted > vertexes || (long) (cycleLength - 1) * maxWeight >= Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Can't plant " + cycles + " cycles of " + cycleLength + " vertices in " + vertexes);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        // Pick distinct cycle vertices, rejecting repeats with a bitset.
+        int[] cycleVertices = new int[(int) planted];
+        long[] taken = new long[(vertexes + 63) >>> 6];
+        for (int i = 0; i < cycleVertices.length; i ++)
+        {
+            int v;
+            do
+            {
+                v = random.nextInt(vertexes);
+            }
+            while ((taken[v >>> 6] & (1L << v)) != 0);
+            taken[v >>> 6] |= 1L << v;
+            cycleVertices[i] = v;
+        }
+
+        // Each cycle vertex's planted edge. The sort keys pack the vertex above the edge's index, so
+        // sorting them gives the planted edges in source order, ready to merge with the random ones.
+        int[] plantedTargets = new int[cycleVertices.length];
+        int[] plantedWeights = new int[cycleVertices.length];
+        long[] order = new long[cycleVertices.length];
+        for (int start = 0; start < cycleVertices.length; start += cycleLength)
+        {
+            int end = start + cycleLength;
+            long total = 0;
+            for (int i = start; i < end; i ++)
+            {
+                int w = i < end - 1 ? random.nextInt(maxWeight + 1) : (int) -(total + 1);
+                total += w;
+                plantedTargets[i] = cycleVertices[i + 1 < end ? i + 1 : start];
+                plantedWeights[i] = w;
+                order[i] = (long) cycleVertices[i] << 32 | i;
+            }
+        }
+        Arrays.sort(order);
+
+        int next = 0;
+        for (int u = 0; u < vertexes; u ++)
+        {
+            for (int i = 0; i < edgesPerVertex; i ++)
+            {
+                sink.edge(u, random.nextInt(vertexes), random.nextInt(maxWeight + 1));
+            }
+            if (next < order.length && (int) (order[next] >>> 32) == u)
+            {
+                int i = (int) order[next ++];
+                sink.edge(u, plantedTargets[i], plantedWeights[i]);
+            }
+        }
+        return cycleVertices;
+    }
+
+    /**
+     * Returns the length of the street between two neighbouring grid cells.
+     * @param seed The random seed.
+     * @param low The smaller cell index.
+     * @param high The larger cell index.
+     * @param maxWeight The longest street.
+     * @return A length from 1 to maxWeight.
+     */
+    private static int streetLength(long seed, int low, int high, int maxWeight)
+    {
+        long hash = CompactGraph.mix(seed ^ CompactGraph.mix((long) low << 32 | high));
+        return 1 + (int) Long.remainderUnsigned(hash, Math.max(maxWeight, 1));
+    }
+
+    /**
+     * Draws from a binomial distribution: the number of successes in n trials of probability p.
+     * Small means are drawn exactly by jumping between successes with geometric skips; large ones use
+     * the normal approximation, which is within a fraction of a percent once the mean is above 30.
+     * @param random The random source.
+     * @param n The number of trials.
+     * @param p The success probability, clamped to [0, 1].
+     * @return The number of successes, from 0 to n.
+     */
+    private static int binomial(SplittableRandom random, int n, double p)
+    {
+        if (n == 0 || p <= 0)
+        {
+            return 0;
+        }
+        if (p >= 1)
+        {
+            return n;
+        }
+        if (p > 0.5)
+        {
+            return n - binomial(random, n, 1 - p);
+        }
+        double mean = n * p;
+        if (mean < 30)
+        {
+            double logMiss = Math.log1p(-p);
+            int successes = 0;
+            long trial = -1;
+            while (true)
+            {
+                trial += 1 + (long) (Math.log(1 - random.nextDouble()) / logMiss);
+                if (trial >= n)
+                {
+                    return successes;
+                }
+                successes ++;
+            }
+        }
+        long draw = Math.round(mean + Math.sqrt(mean * (1 - p)) * random.nextGaussian());
+        return (int) Math.max(0, Math.min(n, draw));
+    }
+}
@@ -0,0 +1,134 @@
+package bellman.ford;
+
+/**
+ * Holds the position of every vertex of a graph, in world coordinates where one unit is one pixel at 100% zoom.
+ * Positions are kept in primitive arrays indexed by vertex id.
+ */
+public class GraphLayout
+{
+    // Hand-picked positions for the demo graph's nodes, keyed by label, for a clear, readable layout.
+    private static final String[] DEMO_LABELS = {"S", "E", "D", "A", "C", "B"};
+    private static final float[] DEMO_X = {100, 300, 500, 150, 350, 250};
+    private static final float[] DEMO_Y = {100, 100, 100, 300, 300, 500};
+
+    // The (x, y) coordinates of each vertex.
+    final float[] x;
+    final float[] y;
+
+    /**
+     * Constructs a layout with every vertex at the origin.
+     * @param vertexes The number of vertices.
+     */
+    public GraphLayout(int vertexes)
+    {
+        x = new float[vertexes];
+        y = new float[vertexes];
+    }
+
+    /**
+     * Places the vertices evenly around a circle, with a radius that keeps neighbouring nodes apart.
+     * @param vertexes The number of vertices.
+     * @return The circular layout.
+     */
+    public static GraphLayout circle(int vertexes)
+    {
+        GraphLayout layout = new GraphLayout(vertexes);
+        // Leave about 60 units of circumference per vertex so the 40 unit node circles don't overlap.
+        float radius = Math.max(220, 60f * vertexes / (float) (2 * Math.PI));
+        float center = Math.max(300, radius + 80);
+        for (int v = 0; v < vertexes; v ++)
+        {
+            double angle = 2 * Math.PI * v / vertexes;
+            layout.x[v] = center + (float) (radius * Math.cos(angle));
+            layout.y[v] = center + (float) (radius * Math.sin(angle));
+        }
+        return layout;
+    }
+
+    /**
+     * Uses the hand-picked positions of the demo graph for vertices labelled S, A, B, C, D and E,
+     * and a circle for the rest.
+     * @param labels The vertex labels.
+     * @param vertexes The number of vertices.
+     * @return The demo layout.
+     */
+    public static GraphLayout demo(VertexLabels labels, int vertexes)
+    {
+        GraphLayout layout = circle(vertexes);
+        for (int i = 0; i < DEMO_LABELS.length; i ++)
+        {
+            int v = labels.idOf(DEMO_LABELS[i]);
+            if (v >= 0 && v < vertexes)
+            {
+                layout.x[v] = DEMO_X[i];
+                layout.y[v] = DEMO_Y[i];
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the number of vertices in the layout.
+     * @return The number of vertices.
+     */
+    public int size()
+    {
+        return x.length;
+    }
+
+    /**
+     * Moves a vertex.
+     * @param vertex The vertex id.
+     * @param newX The new x coordinate.
+     * @param newY The new y coordinate.
+     */
+    public void setPosition(int vertex, float newX, float newY)
+    {
+        x[vertex] = newX;
+        y[vertex] = newY;
+    }
+
+    /**
+     * Returns the x coordinate of a vertex.
+     * @param vertex The vertex id.
+     * @return The x coordinate.
+     */
+    public float x(int vertex)
+    {
+        return x[vertex];
+    }
+
+    /**
+     * Returns the y coordinate of a vertex.
+     * @param vertex The vertex id.
+     * @return The y coordinate.
+     */
+    public float y(int vertex)
+    {
+        return y[vertex];
+    }
+
+    /**
+     * Computes the bounding box of all vertices.
+     * @return The box as {minX, minY, maxX, maxY}, or all zeros for an empty layout.
+     */
+    public float[] bounds()
+    {
+        if (x.length == 0)
+        {
+            return new float[4];
+        }
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int v = 0; v < x.length; v ++)
+        {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxX = Math.max(maxX, x[v]);
+            maxY = Math.max(maxY, y[v]);
+        }
+        return new float[] {minX, minY, maxX, maxY};
+    }
+}
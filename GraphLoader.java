@@ -0,0 +1,412 @@
+package bellman.ford;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads graphs from disk and saves them in a compact binary format.
+ *
+ * Text format: one edge per line as "u v w" (source, destination, weight) separated by spaces or tabs.
+ * Blank lines and lines starting with '#' or '%' are skipped. The vertex count is the largest id plus one.
+ * The text is parsed straight from the file's bytes, so no String is created per line.
+ *
+ * Binary format (little-endian): the int MAGIC, the int VERSION, the vertex count V and the edge count E,
+ * followed by the CSR arrays offsets (V + 1 ints), targets (E ints) and weights (E ints).
+ * Loading memory-maps the file and bulk-copies each array into place.
+ */
+public final class GraphLoader
+{
+    // "BFG1" in ASCII, marking a binary graph file.
+    static final int MAGIC = 0x31474642;
+    static final int VERSION = 1;
+    // Size of the binary header in bytes: magic, version, vertex count and edge count.
+    static final int HEADER_BYTES = 16;
+    // Size of the read buffer for text files.
+    private static final int BUFFER_BYTES = 1 << 20;
+    // Largest region mapped at once, kept well under the 2 GB limit of a MappedByteBuffer.
+    private static final long MAP_CHUNK_BYTES = 1L << 30;
+
+    private GraphLoader()
+    {
+    }
+
+    /**
+     * Loads a graph in either format, detecting the binary format from its header.
+     * @param path The file to read.
+     * @return The graph.
+     * @throws IOException If the file can't be read or parsed.
+     */
+    public static CompactGraph load(Path path) throws IOException
+    {
+        if (isBinary(path))
+        {
+            return readBinary(path);
+        }
+        return readEdgeList(path).freeze();
+    }
+
+    /**
+     * Checks whether a file starts with the binary graph header.
+     * @param path The file to check.
+     * @return True if the file is in the binary format.
+     * @throws IOException If the file can't be read.
+     */
+    public static boolean isBinary(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            int read = 0;
+            while (magic.hasRemaining() && read >= 0)
+            {
+                read = channel.read(magic);
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Reads a text edge list into a new adjacencyList.
+     * @param path The file to read.
+     * @return The graph, with one vertex per id from 0 to the largest id in the file.
+     * @throws IOException If the file can't be read or a line is not three integers.
+     */
+    public static adjacencyList readEdgeList(Path path) throws IOException
+    {
+        int[] sources = new int[1024];
+        int[] targets = new int[1024];
+        int[] weights = new int[1024];
+        int edgeCount = 0;
+        int maxVertex = -1;
+
+        // Parser state for the current line.
+        int[] fields = new int[3];
+        int fieldCount = 0;
+        long value = 0;
+        int digits = 0;
+        boolean inNumber = false;
+        boolean negative = false;
+        boolean comment = false;
+        boolean lineStart = true;
+        long line = 1;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            boolean endOfFile = false;
+            while (!endOfFile)
+            {
+                buffer.clear();
+                endOfFile = channel.read(buffer) < 0;
+                buffer.flip();
+                // At the end of the file, feed one final newline to finish the last line.
+                int limit = endOfFile ? 1 : buffer.limit();
+                for (int i = 0; i < limit; i ++)
+                {
+                    byte b = endOfFile ? (byte) '\n' : buffer.get(i);
+                    if (comment && b != '\n')
+                    {
+                        continue;
+                    }
+                    if (b >= '0' && b <= '9')
+                    {
+                        inNumber = true;
+                        value = value * 10 + (b - '0');
+                        digits ++;
+                        if (value > Integer.MAX_VALUE + 1L)
+                        {
+                            throw new IOException(path + ":" + line + ": number out of int range");
+                        }
+                        lineStart = false;
+                        continue;
+                    }
+                    if (b == '-' && !inNumber)
+                    {
+                        inNumber = true;
+                        negative = true;
+                        lineStart = false;
+                        continue;
+                    }
+                    if (lineStart && (b == '#' || b == '%'))
+                    {
+                        comment = true;
+                        continue;
+                    }
+                    if (b != ' ' && b != '\t' && b != ',' && b != '\r' && b != '\n')
+                    {
+                        throw new IOException(path + ":" + line + ": unexpected character '" + (char) b + "'");
+                    }
+
+                    // A separator or the end of the line finishes the current number.
+                    if (inNumber)
+                    {
+                        if (digits == 0 || fieldCount == 3)
+                        {
+                            throw new IOException(path + ":" + line + ": expected \"u v w\"");
+                        }
+                        long signed = negative ? -value : value;
+                        if (signed > Integer.MAX_VALUE)
+                        {
+                            throw new IOException(path + ":" + line + ": number out of int range");
+                        }
+                        fields[fieldCount ++] = (int) signed;
+                        inNumber = false;
+                        negative = false;
+                        value = 0;
+                        digits = 0;
+                    }
+                    if (b != '\n')
+                    {
+                        continue;
+                    }
+
+                    if (fieldCount == 3)
+                    {
+                        if (fields[0] < 0 || fields[1] < 0)
+                        {
+                            throw new IOException(path + ":" + line + ": vertex ids must not be negative");
+                        }
+                        if (fields[0] == Integer.MAX_VALUE || fields[1] == Integer.MAX_VALUE)
+                        {
+                            // The vertex count is the largest id plus one, which must fit in an int.
+                            throw new IOException(path + ":" + line + ": vertex id " + Integer.MAX_VALUE + " is too large");
+                        }
+                        if (edgeCount == sources.length)
+                        {
+                            int capacity = (int) Math.min(edgeCount * 2L, Integer.MAX_VALUE - 8);
+                            sources = Arrays.copyOf(sources, capacity);
+                            targets = Arrays.copyOf(targets, capacity);
+                            weights = Arrays.copyOf(weights, capacity);
+                        }
+                        sources[edgeCount] = fields[0];
+                        targets[edgeCount] = fields[1];
+                        weights[edgeCount] = fields[2];
+                        edgeCount ++;
+                        maxVertex = Math.max(maxVertex, Math.max(fields[0], fields[1]));
+                    }
+                    else if (fieldCount != 0)
+                    {
+                        throw new IOException(path + ":" + line + ": expected \"u v w\" but found " + fieldCount + " fields");
+                    }
+                    fieldCount = 0;
+                    comment = false;
+                    lineStart = true;
+                    line ++;
+                }
+            }
+        }
+
+        return new adjacencyList(maxVertex + 1, sources, targets, weights, edgeCount);
+    }
+
+    /**
+     * Reads a text edge list whose vertices are names instead of ids, for example "S A 10".
+     * Each new name gets the next free vertex id through VertexLabels.intern, and the names are
+     * kept in the graph's keyMap. Comment and blank lines are skipped as in readEdgeList.
+     * @param path The file to read.
+     * @return The graph, labelled with the names from the file.
+     * @throws IOException If the file can't be read or a line is not two names and an integer.
+     */
+    public static adjacencyList readNamedEdgeList(Path path) throws IOException
+    {
+        VertexLabels labels = new VertexLabels(16);
+        int[] sources = new int[1024];
+        int[] targets = new int[1024];
+        int[] weights = new int[1024];
+        int edgeCount = 0;
+        long line = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+        {
+            String text;
+            while ((text = reader.readLine()) != null)
+            {
+                line ++;
+                String trimmed = text.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("%"))
+                {
+                    continue;
+                }
+                String[] fields = trimmed.split("[\\s,]+");
+                if (fields.length != 3)
+                {
+                    throw new IOException(path + ":" + line + ": expected \"from to weight\" but found " + fields.length + " fields");
+                }
+                if (edgeCount == sources.length)
+                {
+                    sources = Arrays.copyOf(sources, edgeCount * 2);
+                    targets = Arrays.copyOf(targets, edgeCount * 2);
+                    weights = Arrays.copyOf(weights, edgeCount * 2);
+                }
+                sources[edgeCount] = labels.intern(fields[0]);
+                targets[edgeCount] = labels.intern(fields[1]);
+                try
+                {
+                    weights[edgeCount] = Integer.parseInt(fields[2]);
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IOException(path + ":" + line + ": weight is not an int: " + fields[2]);
+                }
+                edgeCount ++;
+            }
+        }
+
+        adjacencyList graph = new adjacencyList(labels.size(), sources, targets, weights, edgeCount);
+        graph.keyMap = labels;
+        return graph;
+    }
+
+    /**
+     * Writes a graph in the binary format.
+     * @param graph The graph to write.
+     * @param path The file to create or overwrite.
+     * @throws IOException If the file can't be written.
+     */
+    public static void writeBinary(CompactGraph graph, Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(graph.getSize()).putInt(graph.getEdgeCount());
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            writeInts(channel, buffer, graph.offsets);
+            writeInts(channel, buffer, graph.targets);
+            writeInts(channel, buffer, graph.weights);
+        }
+    }
+
+    /**
+     * Reads a graph in the binary format by memory-mapping the file.
+     * @param path The file to read.
+     * @return The graph.
+     * @throws IOException If the file can't be read, is not a binary graph file, or holds decreasing offsets or out-of-range targets.
+     */
+    public static CompactGraph readBinary(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_BYTES)
+            {
+                throw new IOException(path + ": too short to be a binary graph file");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC)
+            {
+                throw new IOException(path + ": not a binary graph file");
+            }
+            int version = header.getInt();
+            if (version != VERSION)
+            {
+                throw new IOException(path + ": unsupported binary graph version " + version);
+            }
+            int vertexCount = header.getInt();
+            int edgeCount = header.getInt();
+            long expected = HEADER_BYTES + 4L * (vertexCount + 1) + 8L * edgeCount;
+            if (vertexCount < 0 || edgeCount < 0 || channel.size() != expected)
+            {
+                throw new IOException(path + ": size does not match a graph of " + vertexCount + " vertices and " + edgeCount + " edges");
+            }
+
+            long position = HEADER_BYTES;
+            int[] offsets = new int[vertexCount + 1];
+            position = readInts(channel, position, offsets);
+            int[] targets = new int[edgeCount];
+            position = readInts(channel, position, targets);
+            int[] weights = new int[edgeCount];
+            readInts(channel, position, weights);
+
+            // The engines index with these arrays unchecked, so reject anything that isn't a valid CSR graph here.
+            if (offsets[0] != 0 || offsets[vertexCount] != edgeCount)
+            {
+                throw new IOException(path + ": corrupt offsets");
+            }
+            for (int u = 0; u < vertexCount; u ++)
+            {
+                if (offsets[u] > offsets[u + 1])
+                {
+                    throw new IOException(path + ": corrupt offsets, vertex " + u + " ends before it starts");
+                }
+            }
+            for (int e = 0; e < edgeCount; e ++)
+            {
+                if (targets[e] < 0 || targets[e] >= vertexCount)
+                {
+                    throw new IOException(path + ": corrupt targets, edge " + e + " leads to vertex " + targets[e]);
+                }
+            }
+            return new CompactGraph(offsets, targets, weights);
+        }
+    }
+
+    /**
+     * Copies ints from a file into an array, mapping the file one chunk at a time.
+     * @param channel The file.
+     * @param position The byte position of the first int.
+     * @param values The array to fill.
+     * @return The byte position after the last int.
+     * @throws IOException If the file can't be mapped.
+     */
+    private static long readInts(FileChannel channel, long position, int[] values) throws IOException
+    {
+        int done = 0;
+        while (done < values.length)
+        {
+            int count = (int) Math.min(values.length - done, MAP_CHUNK_BYTES / 4);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count);
+            chunk.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, done, count);
+            done += count;
+            position += 4L * count;
+        }
+        return position;
+    }
+
+    /**
+     * Writes an int array to a file through a reusable buffer.
+     * @param channel The file.
+     * @param buffer The buffer to stage ints in.
+     * @param values The ints to write.
+     * @throws IOException If the file can't be written.
+     */
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException
+    {
+        int done = 0;
+        while (done < values.length)
+        {
+            int count = Math.min(values.length - done, buffer.capacity() / 4);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, done, count);
+            buffer.limit(4 * count);
+            writeFully(channel, buffer);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer.
+     * @param channel The file.
+     * @param buffer The bytes to write.
+     * @throws IOException If the file can't be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+}
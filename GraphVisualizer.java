@@ -4,53 +4,264 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
-import java.awt.Graphics; 
+import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.Polygon;
-import java.util.HashMap;
-import java.util.Map;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 
 /**
  * The GraphVisualizer class is a JPanel that handles the graphical representation of the graph.
  * It uses JSwing to draw nodes, edges, and update the display based on the algorithm's state.
+ *
+ * The panel draws any graph given a GraphLayout. Edge geometry is precomputed into primitive arrays,
+ * the whole graph is drawn once into an off-screen image, and later changes only redraw the edges and
+ * nodes that were marked dirty. Dragging pans and the mouse wheel zooms; while the view is moving the
+ * existing image is transformed, and the graph is redrawn at full quality once the view settles.
+ *
+ * Like other Swing components, the panel must only be changed on the event dispatch thread.
+ * Engines animate it through VisualizerListener, which queues their events and plays them back there.
  */
-public class GraphVisualizer extends JPanel 
+@SuppressWarnings("serial")
+public class GraphVisualizer extends JPanel
 {
+    // Fonts, stroke and arrowhead shape are created once instead of on every paint.
+    private static final Font INFO_FONT = new Font("Arial", Font.PLAIN, 18);
+    private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Stroke EDGE_STROKE = new BasicStroke(2);
+    private static final Stroke THIN_STROKE = new BasicStroke(1);
+    private static final int NODE_RADIUS = 20;
+    private static final int ARROW_SIZE = 10;
+    private static final Polygon ARROW_HEAD = new Polygon(new int[] {0, -ARROW_SIZE, -ARROW_SIZE}, new int[] {0, -ARROW_SIZE / 2, ARROW_SIZE / 2}, 3);
+    // Below this zoom, text and arrowheads are too small to read and are skipped.
+    private static final double DETAIL_SCALE = 0.45;
+    // Below this zoom, nodes are drawn as small squares.
+    private static final double DOT_SCALE = 0.15;
+    // How long the view must stay still before the graph is redrawn at full quality.
+    private static final int SETTLE_MILLIS = 150;
+    // How far an edge's weight label and arrowhead can reach past the box around its line, in pixels.
+    private static final int EDGE_LABEL_MARGIN = 40;
 
-    // A map to store the (x, y) coordinates for each node to control the layout.
-    private final Map<String, Point> nodePositions = new HashMap<>();
-    // A map to store the color of each edge, used for highlighting.
-    private final Map<String, Color> edgeColors = new HashMap<>();
-    // A map to store the current shortest distance to each node.
-    private Map<String, Integer> nodeDistances = new HashMap<>();
+    // The graph being drawn, the labels of its vertices and their positions.
+    private final CompactGraph graph;
+    private final VertexLabels labels;
+    private final GraphLayout layout;
+    // Precomputed world geometry of each edge, indexed by CSR edge index: the line from the edge
+    // of the source circle to the edge of the target circle, and its direction.
+    private final int[] edgeSources;
+    private final float[] edgeStartX;
+    private final float[] edgeStartY;
+    private final float[] edgeEndX;
+    private final float[] edgeEndY;
+    private final float[] edgeCos;
+    private final float[] edgeSin;
+    // The color of each edge, indexed by CSR edge index, used for highlighting.
+    private final Color[] edgeColors;
+    // The current shortest distance to each node, indexed by vertex id.
+    private final int[] nodeDistances;
+    // Set for nodes whose distance is negative infinity because a negative cycle reaches them.
+    private final boolean[] nodeUnbounded;
+    // The pixel width of each node's label as last drawn, so the old label can be cleared.
+    private final int[] labelWidths;
     // A counter to track the number of cycles completed by the Bellman-Ford algorithm.
-    public int numCycles = 1; 
+    private int numCycles = 1;
+    // How fast VisualizerListener plays back relaxation steps, in steps per second; 0 plays them as fast as they arrive.
+    private volatile double playbackSpeed = 1;
+    // The vertex order the algorithm sweeps in, shown at the top of the window.
+    private String traversalOrder;
+
+    // The current view: screen = world * scale + offset.
+    private double scale = 1;
+    private double offsetX = 0;
+    private double offsetY = 0;
+    private boolean fitted = false;
+    // Set once the user pans or zooms, so later layout updates keep their view.
+    private boolean userMoved = false;
+    // The view the off-screen image was drawn with.
+    private double renderedScale;
+    private double renderedOffsetX;
+    private double renderedOffsetY;
+    // The off-screen image holding the drawn graph, and whether it matches the graph state.
+    private BufferedImage canvas;
+    private boolean canvasValid = false;
+    // Restarted on every view change; when it fires the graph is redrawn for the new view.
+    private final Timer settleTimer;
+    private boolean settling = false;
+
+    // Edges and nodes changed since the last paint. The flags stop an index being queued twice.
+    private final boolean[] edgeDirty;
+    private final boolean[] nodeDirty;
+    private int[] dirtyEdges = new int[64];
+    private int[] dirtyNodes = new int[64];
+    private int dirtyEdgeCount = 0;
+    private int dirtyNodeCount = 0;
+    // The label boxes cleared in the current partial redraw, four ints (x, y, width, height) per box.
+    private int[] clearedBoxes = new int[64];
+    private int clearedCount = 0;
+    // Reused arrowhead corner arrays, so drawing an arrow allocates nothing.
+    private final int[] arrowX = new int[3];
+    private final int[] arrowY = new int[3];
+
+    /**
+     * Constructs the GraphVisualizer for a graph using the demo layout: vertices labelled like the
+     * demo graph (S, A, B, C, D, E) use its hand-picked positions and any others are placed on a circle.
+     * @param adjList The graph to draw. Its keyMap provides the node labels.
+     */
+    public GraphVisualizer(adjacencyList adjList)
+    {
+        this(adjList, GraphLayout.demo(adjList.keyMap, adjList.getSize()));
+    }
 
     /**
-     * Constructs the GraphVisualizer and initializes the node positions and distances.
+     * Constructs the GraphVisualizer for a graph and a layout, and precomputes the edge geometry.
+     * @param adjList The graph to draw. Its keyMap provides the node labels.
+     * @param layout The position of each vertex.
      */
-    public GraphVisualizer() 
+    public GraphVisualizer(adjacencyList adjList, GraphLayout layout)
     {
         setBackground(Color.WHITE);
-        // Manually place nodes for a clear, readable graph layout.
-        nodePositions.put("S", new Point(100, 100));
-        nodePositions.put("E", new Point(300, 100));
-        nodePositions.put("D", new Point(500, 100));
-        nodePositions.put("A", new Point(150, 300));
-        nodePositions.put("C", new Point(350, 300));
-        nodePositions.put("B", new Point(250, 500));
-        
-        // Initialize distances for each node. The source node "S" is 0,
-        // while all other nodes are set to infinity (Integer.MAX_VALUE).
-        nodeDistances.put("S",0);
-        nodeDistances.put("A",Integer.MAX_VALUE);
-        nodeDistances.put("B",Integer.MAX_VALUE);
-        nodeDistances.put("C",Integer.MAX_VALUE);
-        nodeDistances.put("D",Integer.MAX_VALUE);
-        nodeDistances.put("E",Integer.MAX_VALUE);
+        this.graph = adjList.freeze();
+        this.labels = adjList.keyMap;
+        this.layout = layout;
+        int vertexCount = graph.getSize();
+        int edgeCount = graph.getEdgeCount();
+
+        edgeSources = graph.sources();
+        edgeStartX = new float[edgeCount];
+        edgeStartY = new float[edgeCount];
+        edgeEndX = new float[edgeCount];
+        edgeEndY = new float[edgeCount];
+        edgeCos = new float[edgeCount];
+        edgeSin = new float[edgeCount];
+        computeGeometry();
+
+        edgeColors = new Color[edgeCount];
+        Arrays.fill(edgeColors, Color.BLACK);
+        edgeDirty = new boolean[edgeCount];
+
+        // Initialize distances for each node to infinity (Integer.MAX_VALUE)
+        // until the algorithm reports the source.
+        nodeDistances = new int[vertexCount];
+        Arrays.fill(nodeDistances, Integer.MAX_VALUE);
+        nodeUnbounded = new boolean[vertexCount];
+        labelWidths = new int[vertexCount];
+        nodeDirty = new boolean[vertexCount];
+
+        // The default sweep visits vertices in index order; spell it out for small graphs.
+        traversalOrder = "vertex index order";
+        if (vertexCount <= 12)
+        {
+            traversalOrder = VertexOrderings.describe(VertexOrderings.identity().order(graph, 0), labels);
+        }
+
+        settleTimer = new Timer(SETTLE_MILLIS, e -> {
+            settling = false;
+            canvasValid = false;
+            repaint();
+        });
+        settleTimer.setRepeats(false);
+
+        MouseAdapter mouse = new MouseAdapter()
+        {
+            private int lastX;
+            private int lastY;
+
+            @Override
+            public void mousePressed(MouseEvent e)
+            {
+                lastX = e.getX();
+                lastY = e.getY();
+            }
 
+            @Override
+            public void mouseDragged(MouseEvent e)
+            {
+                offsetX += e.getX() - lastX;
+                offsetY += e.getY() - lastY;
+                lastX = e.getX();
+                lastY = e.getY();
+                viewChanged();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e)
+            {
+                // Zoom around the mouse pointer so the point under it stays put.
+                double factor = Math.pow(1.1, -e.getPreciseWheelRotation());
+                offsetX = e.getX() - (e.getX() - offsetX) * factor;
+                offsetY = e.getY() - (e.getY() - offsetY) * factor;
+                scale *= factor;
+                viewChanged();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Computes the world coordinates of every edge line from the layout.
+     * The line is shortened at both ends so it doesn't overlap the node circles.
+     */
+    private void computeGeometry()
+    {
+        for (int e = 0; e < edgeSources.length; e ++)
+        {
+            int from = edgeSources[e];
+            int to = graph.target(e);
+            double angle = Math.atan2(layout.y[to] - layout.y[from], layout.x[to] - layout.x[from]);
+            float cos = (float) Math.cos(angle);
+            float sin = (float) Math.sin(angle);
+            edgeCos[e] = cos;
+            edgeSin[e] = sin;
+            edgeStartX[e] = layout.x[from] + NODE_RADIUS * cos;
+            edgeStartY[e] = layout.y[from] + NODE_RADIUS * sin;
+            edgeEndX[e] = layout.x[to] - NODE_RADIUS * cos;
+            edgeEndY[e] = layout.y[to] - NODE_RADIUS * sin;
+        }
+    }
+
+    /**
+     * Called after a pan or zoom. The old image is shown transformed until the view settles.
+     */
+    private void viewChanged()
+    {
+        userMoved = true;
+        settling = true;
+        settleTimer.restart();
+        repaint();
+    }
+
+    /**
+     * Chooses the first view. Layouts that fit in the panel are shown at 100%; larger ones are scaled to fit.
+     */
+    private void fitView()
+    {
+        fitted = true;
+        float[] bounds = layout.bounds();
+        double margin = 60;
+        double width = bounds[2] + margin;
+        double height = bounds[3] + margin;
+        if (width <= getWidth() && height <= getHeight() && bounds[0] >= 0 && bounds[1] >= 0)
+        {
+            scale = 1;
+            offsetX = 0;
+            offsetY = 0;
+            return;
+        }
+        double spanX = Math.max(1, bounds[2] - bounds[0]);
+        double spanY = Math.max(1, bounds[3] - bounds[1]);
+        scale = Math.min((getWidth() - 2 * margin) / spanX, (getHeight() - 2 * margin - 40) / spanY);
+        offsetX = margin - bounds[0] * scale;
+        offsetY = margin + 40 - bounds[1] * scale;
     }
 
     /**
@@ -59,195 +270,511 @@ public class GraphVisualizer extends JPanel
      * @param g The Graphics object used for drawing.
      */
     @Override
-    protected void paintComponent(Graphics g) 
+    protected void paintComponent(Graphics g)
     {
         super.paintComponent(g);
 
         Graphics2D g2 = (Graphics2D) g;
-        
-        // Set font and color for the informational labels at the top of the window.
-        g2.setFont(new Font("Arial", Font.PLAIN, 18));
-        g2.setColor(Color.BLACK);
+        if (getWidth() <= 0 || getHeight() <= 0)
+        {
+            return;
+        }
+        if (!fitted)
+        {
+            fitView();
+        }
+        if (canvas == null || canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight())
+        {
+            canvas = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+            canvasValid = false;
+        }
+
+        if (!canvasValid && !settling)
+        {
+            renderCanvas();
+        }
+        else
+        {
+            applyDirty();
+        }
+
+        if (renderedScale == scale && renderedOffsetX == offsetX && renderedOffsetY == offsetY)
+        {
+            g2.drawImage(canvas, 0, 0, null);
+        }
+        else
+        {
+            // The view moved since the image was drawn: map the old image onto the new view.
+            double factor = scale / renderedScale;
+            AffineTransform preview = new AffineTransform();
+            preview.translate(offsetX - factor * renderedOffsetX, offsetY - factor * renderedOffsetY);
+            preview.scale(factor, factor);
+            g2.drawImage(canvas, preview, null);
+        }
 
         // Draw labels showing the current cycle number and the traversal order.
+        g2.setFont(INFO_FONT);
+        g2.setColor(Color.BLACK);
         String labelText = "Cycle # " + numCycles;
         g2.drawString(labelText, 70, 30);
-        labelText = "Traversal Order: S > A > B > C > D > E";
+        labelText = "Traversal Order: " + traversalOrder;
         g2.drawString(labelText, 220, 30);
-        g2.setStroke(new BasicStroke(2));
-        g2.setFont(new Font("Arial", Font.BOLD, 14));
-
-        // Draw all the predefined edges (arrows) for the graph.
-        drawArrow(g2, "S", "A", 10);
-        drawArrow(g2, "S", "E", 8);
-        drawArrow(g2, "A", "C", 2);
-        drawArrow(g2, "B", "A", 1);
-        drawArrow(g2, "C", "B", -2);
-        drawArrow(g2, "D", "A", -4);
-        drawArrow(g2, "D", "C", -1);
-        drawArrow(g2, "E", "D", 1);
-
-        // Iterate through each node and draw its circle and label.
-        for (String node : nodePositions.keySet()) 
-        {
-            Point p = nodePositions.get(node);
-        
-            // Draw the node circle (light gray with a black outline).
-            Color fillColor = Color.LIGHT_GRAY;
-            g2.setColor(fillColor);
-            g2.fillOval(p.x - 20, p.y - 20, 40, 40);
-            g2.setColor(Color.BLACK);
-            g2.drawOval(p.x - 20, p.y - 20, 40, 40);
-        
-            // Prepare the label text, including the current shortest distance.
-            String label = node;
-            if (nodeDistances.containsKey(node)) 
+    }
+
+    /**
+     * Redraws the whole graph into the off-screen image for the current view.
+     */
+    private void renderCanvas()
+    {
+        // Pending changes are covered by the full redraw.
+        for (int i = 0; i < dirtyEdgeCount; i ++)
+        {
+            edgeDirty[dirtyEdges[i]] = false;
+        }
+        for (int i = 0; i < dirtyNodeCount; i ++)
+        {
+            nodeDirty[dirtyNodes[i]] = false;
+        }
+        dirtyEdgeCount = 0;
+        dirtyNodeCount = 0;
+
+        renderedScale = scale;
+        renderedOffsetX = offsetX;
+        renderedOffsetY = offsetY;
+        canvasValid = true;
+
+        Graphics2D g2 = canvas.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        prepare(g2);
+        for (int e = 0; e < edgeSources.length; e ++)
+        {
+            drawEdge(g2, e);
+        }
+        for (int v = 0; v < nodeDistances.length; v ++)
+        {
+            drawNode(g2, v);
+        }
+        g2.dispose();
+    }
+
+    /**
+     * Draws the edges and nodes that changed since the last paint onto the off-screen image.
+     */
+    private void applyDirty()
+    {
+        if (dirtyEdgeCount == 0 && dirtyNodeCount == 0)
+        {
+            return;
+        }
+
+        Graphics2D g2 = canvas.createGraphics();
+        prepare(g2);
+        for (int i = 0; i < dirtyEdgeCount; i ++)
+        {
+            drawEdge(g2, dirtyEdges[i]);
+        }
+        // Redraw both ends of each changed edge so the node circles stay on top of the lines.
+        for (int i = 0; i < dirtyEdgeCount; i ++)
+        {
+            markNode(edgeSources[dirtyEdges[i]]);
+            markNode(graph.target(dirtyEdges[i]));
+            edgeDirty[dirtyEdges[i]] = false;
+        }
+        // Clear their old labels, then put back the edges that crossed them, so the image ends up as a full
+        // redraw would leave it.
+        for (int i = 0; i < dirtyNodeCount; i ++)
+        {
+            clearLabel(g2, dirtyNodes[i]);
+        }
+        redrawCleared(g2);
+        for (int i = 0; i < dirtyNodeCount; i ++)
+        {
+            drawNode(g2, dirtyNodes[i]);
+            nodeDirty[dirtyNodes[i]] = false;
+        }
+        g2.dispose();
+        dirtyEdgeCount = 0;
+        dirtyNodeCount = 0;
+    }
+
+    /**
+     * Sets the stroke, font and rendering quality used for the graph at the rendered zoom level.
+     * @param g2 The Graphics2D object for drawing.
+     */
+    private void prepare(Graphics2D g2)
+    {
+        boolean detailed = renderedScale >= DETAIL_SCALE;
+        g2.setStroke(detailed ? EDGE_STROKE : THIN_STROKE);
+        g2.setFont(LABEL_FONT);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+            detailed ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
+    /**
+     * Draws an arrow representing a directed edge between two nodes.
+     * It also draws the edge's weight and handles color highlighting.
+     * Edges entirely outside the image are skipped.
+     * @param g2 The Graphics2D object for drawing.
+     * @param edge The CSR index of the edge.
+     */
+    private void drawEdge(Graphics2D g2, int edge)
+    {
+        int startX = (int) (edgeStartX[edge] * renderedScale + renderedOffsetX);
+        int startY = (int) (edgeStartY[edge] * renderedScale + renderedOffsetY);
+        int endX = (int) (edgeEndX[edge] * renderedScale + renderedOffsetX);
+        int endY = (int) (edgeEndY[edge] * renderedScale + renderedOffsetY);
+        if (Math.max(startX, endX) < 0 || Math.min(startX, endX) > canvas.getWidth()
+            || Math.max(startY, endY) < 0 || Math.min(startY, endY) > canvas.getHeight())
+        {
+            return;
+        }
+
+        // Get the current color for the edge.
+        Color color = edgeColors[edge];
+        g2.setColor(color);
+        g2.drawLine(startX, startY, endX, endY);
+        if (renderedScale < DETAIL_SCALE)
+        {
+            return;
+        }
+
+        // Draw the weight label near the middle of the line, on the side facing up.
+        float cos = edgeCos[edge];
+        float sin = edgeSin[edge];
+        float normalX = sin;
+        float normalY = -cos;
+        if (normalY > 0 || (normalY == 0 && normalX > 0))
+        {
+            normalX = -normalX;
+            normalY = -normalY;
+        }
+        String weight = String.valueOf(graph.weight(edge));
+        int weightWidth = g2.getFontMetrics().stringWidth(weight);
+        int labelX = (startX + endX) / 2 + (int) (12 * normalX) - weightWidth / 2;
+        int labelY = (startY + endY) / 2 + (int) (12 * normalY);
+        g2.drawString(weight, labelX, labelY);
+
+        // Rotate the cached arrowhead shape to the edge's direction and place its tip at the end of the line.
+        for (int i = 0; i < 3; i ++)
+        {
+            int px = ARROW_HEAD.xpoints[i];
+            int py = ARROW_HEAD.ypoints[i];
+            arrowX[i] = endX + Math.round(px * cos - py * sin);
+            arrowY[i] = endY + Math.round(px * sin + py * cos);
+        }
+        g2.fillPolygon(arrowX, arrowY, 3);
+    }
+
+    /**
+     * Clears a node's label as last drawn, so a shorter label leaves no trace, and records the cleared box
+     * for redrawCleared. Does nothing if labels aren't drawn at this zoom or the node is outside the image.
+     * @param g2 The Graphics2D object for drawing.
+     * @param node The vertex id.
+     */
+    private void clearLabel(Graphics2D g2, int node)
+    {
+        int x = (int) (layout.x[node] * renderedScale + renderedOffsetX);
+        int y = (int) (layout.y[node] * renderedScale + renderedOffsetY);
+        int radius = (int) Math.max(1, NODE_RADIUS * renderedScale);
+        if (renderedScale < DETAIL_SCALE || labelWidths[node] == 0
+            || x + radius + 80 < 0 || x - radius - 80 > canvas.getWidth() || y + radius + 50 < 0 || y - radius > canvas.getHeight())
+        {
+            return;
+        }
+        FontMetrics metrics = g2.getFontMetrics();
+        int boxX = x - labelWidths[node] / 2 - 1;
+        int boxY = y + radius + 25 - metrics.getAscent();
+        int boxWidth = labelWidths[node] + 2;
+        int boxHeight = metrics.getHeight();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(boxX, boxY, boxWidth, boxHeight);
+        if (clearedCount * 4 == clearedBoxes.length)
+        {
+            clearedBoxes = Arrays.copyOf(clearedBoxes, clearedBoxes.length * 2);
+        }
+        clearedBoxes[clearedCount * 4] = boxX;
+        clearedBoxes[clearedCount * 4 + 1] = boxY;
+        clearedBoxes[clearedCount * 4 + 2] = boxWidth;
+        clearedBoxes[clearedCount * 4 + 3] = boxHeight;
+        clearedCount ++;
+    }
+
+    /**
+     * Redraws the parts of the edges that lie inside the label boxes cleared by clearLabel, clipped to
+     * each box so nothing outside it changes. Edges whose line, weight label and arrowhead can't reach
+     * any box are skipped by comparing bounding boxes.
+     * @param g2 The Graphics2D object for drawing.
+     */
+    private void redrawCleared(Graphics2D g2)
+    {
+        if (clearedCount == 0)
+        {
+            return;
+        }
+        for (int e = 0; e < edgeSources.length; e ++)
+        {
+            int startX = (int) (edgeStartX[e] * renderedScale + renderedOffsetX);
+            int startY = (int) (edgeStartY[e] * renderedScale + renderedOffsetY);
+            int endX = (int) (edgeEndX[e] * renderedScale + renderedOffsetX);
+            int endY = (int) (edgeEndY[e] * renderedScale + renderedOffsetY);
+            int minX = Math.min(startX, endX) - EDGE_LABEL_MARGIN;
+            int maxX = Math.max(startX, endX) + EDGE_LABEL_MARGIN;
+            int minY = Math.min(startY, endY) - EDGE_LABEL_MARGIN;
+            int maxY = Math.max(startY, endY) + EDGE_LABEL_MARGIN;
+            for (int i = 0; i < clearedCount * 4; i += 4)
             {
-                int distance = nodeDistances.get(node);
-                if (distance == Integer.MAX_VALUE) 
+                int boxX = clearedBoxes[i];
+                int boxY = clearedBoxes[i + 1];
+                if (maxX >= boxX && minX <= boxX + clearedBoxes[i + 2] && maxY >= boxY && minY <= boxY + clearedBoxes[i + 3])
                 {
-                    label += " (∞)";
-                } else {
-                    label += " (" + distance + ")";
+                    g2.setClip(boxX, boxY, clearedBoxes[i + 2], clearedBoxes[i + 3]);
+                    drawEdge(g2, e);
                 }
             }
-        
-            // Center the label horizontally and position it below the node.
-            FontMetrics metrics = g2.getFontMetrics();
-            int labelWidth = metrics.stringWidth(label);
-            int offset = 0; 
-            if (node == "S")
-            {
-                offset = -10; 
-            }
-            if (node == "C")
+        }
+        g2.setClip(null);
+        clearedCount = 0;
+    }
+
+    /**
+     * Draws a node's circle and its label, including the current shortest distance.
+     * The label is drawn over whatever is beneath it, as in a full redraw; applyDirty clears the old
+     * label first with clearLabel. Nodes outside the image are skipped.
+     * @param g2 The Graphics2D object for drawing.
+     * @param node The vertex id.
+     */
+    private void drawNode(Graphics2D g2, int node)
+    {
+        int x = (int) (layout.x[node] * renderedScale + renderedOffsetX);
+        int y = (int) (layout.y[node] * renderedScale + renderedOffsetY);
+        int radius = (int) Math.max(1, NODE_RADIUS * renderedScale);
+        if (x + radius + 80 < 0 || x - radius - 80 > canvas.getWidth() || y + radius + 50 < 0 || y - radius > canvas.getHeight())
+        {
+            return;
+        }
+        if (renderedScale < DOT_SCALE)
+        {
+            g2.setColor(Color.DARK_GRAY);
+            g2.fillRect(x - 1, y - 1, 3, 3);
+            return;
+        }
+
+        // Draw the node circle (light gray with a black outline).
+        g2.setColor(Color.LIGHT_GRAY);
+        g2.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+        g2.setColor(Color.BLACK);
+        g2.drawOval(x - radius, y - radius, radius * 2, radius * 2);
+        if (renderedScale < DETAIL_SCALE)
+        {
+            return;
+        }
+
+        // Prepare the label text, including the current shortest distance.
+        String label = labels.get(node);
+        int distance = nodeDistances[node];
+        if (nodeUnbounded[node])
+        {
+            label += " (-∞)";
+        } else if (distance == Integer.MAX_VALUE)
+        {
+            label += " (∞)";
+        } else {
+            label += " (" + distance + ")";
+        }
+
+        // Center the label horizontally and position it below the node.
+        FontMetrics metrics = g2.getFontMetrics();
+        int labelWidth = metrics.stringWidth(label);
+        int labelY = y + radius + 25;
+        labelWidths[node] = labelWidth;
+        g2.setColor(nodeUnbounded[node] ? Color.MAGENTA : Color.BLUE);
+        g2.drawString(label, x - labelWidth / 2, labelY);
+    }
+
+    /**
+     * Queues an edge to be redrawn on the next paint.
+     * @param edge The CSR index of the edge.
+     */
+    private void markEdge(int edge)
+    {
+        if (!edgeDirty[edge])
+        {
+            edgeDirty[edge] = true;
+            if (dirtyEdgeCount == dirtyEdges.length)
             {
-                offset = 5; 
+                dirtyEdges = Arrays.copyOf(dirtyEdges, dirtyEdgeCount * 2);
             }
-            if (node == "A")
+            dirtyEdges[dirtyEdgeCount ++] = edge;
+        }
+    }
+
+    /**
+     * Queues a node to be redrawn on the next paint.
+     * @param node The vertex id.
+     */
+    private void markNode(int node)
+    {
+        if (!nodeDirty[node])
+        {
+            nodeDirty[node] = true;
+            if (dirtyNodeCount == dirtyNodes.length)
             {
-                offset = -5; 
+                dirtyNodes = Arrays.copyOf(dirtyNodes, dirtyNodeCount * 2);
             }
-            int labelX = (p.x - labelWidth / 2) + offset;
-            int labelY = p.y + 45;
-            g2.setColor(Color.BLUE);
-            g2.drawString(label, labelX, labelY);
+            dirtyNodes[dirtyNodeCount ++] = node;
         }
     }
 
     /**
-     * Draws an arrow representing a directed edge between two nodes.
-     * It also draws the edge's weight and handles color highlighting.
-     * @param g2 The Graphics2D object for drawing.
-     * @param from The starting node's key.
-     * @param to The ending node's key.
-     * @param weight The weight of the edge.
-     */
-    private void drawArrow(Graphics2D g2, String from, String to, int weight) 
-    {
-        // Get coordinates of the source and destination nodes
-        Point p1 = nodePositions.get(from);
-        Point p2 = nodePositions.get(to);
-    
-        // Calculate the angle between the nodes to correctly orient the arrow.
-        double dx = p2.x - p1.x;
-        double dy = p2.y - p1.y;
-        double angle = Math.atan2(dy, dx);
-    
-        // Shorten the start and end of the line so it doesn't overlap the node circles.
-        int shorten = 20;
-        int startX = (int) (p1.x + shorten * Math.cos(angle));
-        int startY = (int) (p1.y + shorten * Math.sin(angle));
-        int endX = (int) (p2.x - shorten * Math.cos(angle));
-        int endY = (int) (p2.y - shorten * Math.sin(angle));
-    
-        // Get the current color for the edge from the edgeColors map.
-        Color color = edgeColors.getOrDefault(from + "->" + to, Color.BLACK);
-        g2.setColor(color);
-        g2.drawLine(startX, startY, endX, endY);
-        int offset = 0;
-
-        // Apply a small offset to the weight label for better readability on specific edges.
-        if((from.equals("D") && to.equals("C" ))||(from.equals("C") && to.equals("B")))
-        {
-            offset = -10; 
-        }
-        // Draw the weight label near the middle of the line.
-        int labelX = ((startX + endX) / 2) + offset;
-        int labelY = (startY + endY) / 2 - 10;
-        g2.drawString(String.valueOf(weight), labelX, labelY);
-
-        // Define the arrowhead shape.
-        int arrowSize = 10;
-        Polygon arrowHead = new Polygon();
-        arrowHead.addPoint(0, 0);
-        arrowHead.addPoint(-arrowSize, -arrowSize / 2);
-        arrowHead.addPoint(-arrowSize, arrowSize / 2);
-    
-        // Create a new graphics context for the arrowhead to apply rotation and translation.
-        Graphics2D g = (Graphics2D) g2.create();
-        g2.setColor(color);
-    
-        // Translate and rotate the graphics context to draw the arrowhead at the correct position and angle.
-        g.translate(endX, endY);
-        g.rotate(angle);
-        g.fill(arrowHead);
-        g.dispose();    
+     * Highlights the shortest path tree in green to indicate the algorithm is complete and the final paths are found.
+     * Every other edge is reset to black.
+     * @param result The finished run.
+     */
+    public void complete(ShortestPaths result)
+    {
+        Arrays.fill(edgeColors, Color.BLACK);
+        for (int edge : result.getPredecessorEdges())
+        {
+            if (edge != ShortestPaths.NO_PREDECESSOR)
+            {
+                edgeColors[edge] = Color.GREEN;
+            }
+        }
+        canvasValid = false;
+        repaint();
     }
 
     /**
-     * Highlights all edges in green to indicate the algorithm is complete and the final paths are found.
+     * Shows a negative cycle: its edges turn magenta, and every node it makes unbounded is labelled -∞.
+     * @param cycle The cycle found by NegativeCycle.find.
      */
-    public void complete()
+    public void highlightNegativeCycle(NegativeCycle cycle)
     {
-        highlightEdge("S", "A", Color.GREEN);
-        highlightEdge("S", "E", Color.GREEN);
-        highlightEdge("A", "C", Color.GREEN);
-        highlightEdge("B", "A", Color.GREEN);
-        highlightEdge("C", "B", Color.GREEN);
-        highlightEdge("D", "A", Color.GREEN);
-        highlightEdge("D", "C", Color.GREEN);
-        highlightEdge("E", "D", Color.GREEN);
+        for (int edge : cycle.getEdges())
+        {
+            highlightEdge(edge, Color.MAGENTA);
+        }
+        for (int v = 0; v < nodeUnbounded.length; v ++)
+        {
+            if (cycle.isNegativeInfinity(v))
+            {
+                nodeUnbounded[v] = true;
+                markNode(v);
+            }
+        }
+        repaint();
     }
 
     /**
      * Changes the color of a specific edge and triggers a repaint to update the display.
-     * @param from The starting node's key.
-     * @param to The ending node's key.
+     * @param edge The CSR index of the edge.
      * @param color The new color for the edge.
      */
-    public void highlightEdge(String from, String to, Color color) 
+    public void highlightEdge(int edge, Color color)
     {
-        edgeColors.put(from + "->" + to, color);
+        edgeColors[edge] = color;
+        markEdge(edge);
         repaint();
     }
 
     /**
-     * Pauses the program's execution for a specified number of milliseconds.
-     * This is used to slow down the visualization for better viewing.
-     * @param milliseconds The duration to pause in milliseconds.
+     * Moves the vertices to new positions, for example a frame streamed from ForceDirectedLayout,
+     * and redraws the graph. Until the user pans or zooms, the view is refitted to the new layout.
+     * Must be called on the event dispatch thread.
+     * @param positions The new position of each vertex.
      */
-    public static void pause(int milliseconds) 
+    public void updatePositions(GraphLayout positions)
     {
-        try 
-        {
-            Thread.sleep(milliseconds);
-        } catch (InterruptedException e) 
+        System.arraycopy(positions.x, 0, layout.x, 0, layout.x.length);
+        System.arraycopy(positions.y, 0, layout.y, 0, layout.y.length);
+        computeGeometry();
+        if (!userMoved)
         {
-            e.printStackTrace();
-            Thread.currentThread().interrupt(); 
+            fitted = false;
         }
+        canvasValid = false;
+        repaint();
+    }
+
+    /**
+     * Resets every edge to black, removing all highlights.
+     */
+    public void clearHighlights()
+    {
+        Arrays.fill(edgeColors, Color.BLACK);
+        canvasValid = false;
+        repaint();
+    }
+
+    /**
+     * Returns the graph being drawn. It is immutable, so any thread may read it.
+     * @return The graph.
+     */
+    CompactGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * Returns the vertex an edge points to.
+     * @param edge The CSR index of the edge.
+     * @return The target vertex id.
+     */
+    public int edgeTarget(int edge)
+    {
+        return graph.target(edge);
+    }
+
+    /**
+     * Sets the cycle number shown at the top of the window and repaints the graph.
+     * @param cycle The cycle number.
+     */
+    public void setCycle(int cycle)
+    {
+        numCycles = cycle;
+        repaint();
+    }
+
+    /**
+     * Returns the playback speed of the animation.
+     * @return The number of relaxation steps shown per second, or 0 to show them as fast as they arrive.
+     */
+    public double getPlaybackSpeed()
+    {
+        return playbackSpeed;
+    }
+
+    /**
+     * Sets the playback speed of the animation. It can be changed while an animation is playing.
+     * At the default of 1, each relaxed edge is shown for one second.
+     * @param stepsPerSecond The number of relaxation steps shown per second, or 0 to show them as fast as they arrive.
+     */
+    public void setPlaybackSpeed(double stepsPerSecond)
+    {
+        playbackSpeed = stepsPerSecond;
+    }
+
+    /**
+     * Sets the traversal order label shown at the top of the window and repaints the graph.
+     * @param order The order to display, for example "S > A > B".
+     */
+    public void setTraversalOrder(String order)
+    {
+        traversalOrder = order;
+        repaint();
     }
 
     /**
      * Updates the displayed distance for a specific node and repaints the graph.
-     * @param node The node's key to update.
+     * @param node The node's vertex id.
      * @param distance The new shortest distance value.
      */
-    public void updateNodeDistance(String node, int distance) 
+    public void updateNodeDistance(int node, int distance)
     {
-        nodeDistances.put(node, distance);
+        nodeDistances[node] = distance;
+        markNode(node);
         repaint();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package bellman.ford;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Reports the per-pass metrics of each run as Java Flight Recorder events, so passes show up on the
+ * same timeline as GC pauses and allocation in JDK Mission Control or `jfr print`.
+ * Start the JVM with -XX:StartFlightRecording (or start a recording with jcmd) to capture them; while
+ * no recording is enabled for the event, committing one costs little more than a flag check.
+ * Each pass becomes one bellman.ford.Pass event whose duration covers the pass and the engine's callbacks.
+ */
+public class JfrMetrics implements RelaxationListener
+{
+    // The event of the pass in progress.
+    private PassEvent current;
+    private int source;
+
+    @Override
+    public boolean wantsEdgeEvents()
+    {
+        return false;
+    }
+
+    @Override
+    public void started(int src)
+    {
+        source = src;
+        current = new PassEvent();
+        current.begin();
+    }
+
+    @Override
+    public void passMeasured(PassMetrics metrics)
+    {
+        PassEvent event = current;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.source = source;
+            event.pass = metrics.getPass();
+            event.edgesScanned = metrics.getEdgesScanned();
+            event.relaxations = metrics.getRelaxations();
+            event.verticesChanged = metrics.getVerticesChanged();
+            event.passTime = metrics.getNanos();
+            event.allocatedBytes = metrics.getAllocatedBytes();
+            event.commit();
+        }
+        current = new PassEvent();
+        current.begin();
+    }
+
+    /**
+     * One pass of a shortest path run.
+     */
+    @Name("bellman.ford.Pass")
+    @Label("Bellman-Ford Pass")
+    @Category("Bellman-Ford")
+    @Description("Counters of one pass of a shortest path engine")
+    static final class PassEvent extends Event
+    {
+        @Label("Source")
+        int source;
+
+        @Label("Pass")
+        int pass;
+
+        @Label("Edges Scanned")
+        long edgesScanned;
+
+        @Label("Relaxations")
+        @Description("Relaxations that lowered a distance")
+        long relaxations;
+
+        @Label("Vertices Changed")
+        int verticesChanged;
+
+        @Label("Pass Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long passTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+}
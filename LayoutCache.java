@@ -0,0 +1,146 @@
+package bellman.ford;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Stores computed layouts on disk so a graph is only laid out once.
+ * Each layout is saved in its own file named after a hash of the graph's structure (vertex count,
+ * offsets and targets). Weights don't affect the layout, so reweighting a graph keeps its cached layout.
+ *
+ * File format: the magic number "BFL1", a version int, the vertex count, the graph hash,
+ * then the x and y coordinate of each vertex as floats.
+ */
+public final class LayoutCache
+{
+    static final int MAGIC = 0x42464C31; // "BFL1"
+    static final int VERSION = 1;
+
+    private LayoutCache()
+    {
+    }
+
+    /**
+     * Returns the default cache directory, .bellman-ford/layouts in the user's home directory.
+     * @return The cache directory.
+     */
+    public static Path defaultDirectory()
+    {
+        return Paths.get(System.getProperty("user.home"), ".bellman-ford", "layouts");
+    }
+
+    /**
+     * Computes a 64-bit hash of a graph's structure.
+     * @param graph The graph.
+     * @return The hash.
+     */
+    public static long hash(CompactGraph graph)
+    {
+        long h = CompactGraph.mix(graph.getSize());
+        for (int value : graph.offsets)
+        {
+            h = CompactGraph.mix(h ^ value);
+        }
+        for (int value : graph.targets)
+        {
+            h = CompactGraph.mix(h ^ value);
+        }
+        return h;
+    }
+
+    /**
+     * Reads the cached layout of a graph.
+     * @param directory The cache directory.
+     * @param graph The graph.
+     * @return The layout, or null if none is cached or the cached file doesn't match the graph.
+     * @throws IOException If the cache file exists but can't be read.
+     */
+    public static GraphLayout load(Path directory, CompactGraph graph) throws IOException
+    {
+        long hash = hash(graph);
+        Path file = directory.resolve(fileName(hash));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            int vertexes = graph.getSize();
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != vertexes || in.readLong() != hash)
+            {
+                return null;
+            }
+            GraphLayout layout = new GraphLayout(vertexes);
+            for (int v = 0; v < vertexes; v ++)
+            {
+                layout.x[v] = in.readFloat();
+            }
+            for (int v = 0; v < vertexes; v ++)
+            {
+                layout.y[v] = in.readFloat();
+            }
+            return layout;
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the layout of a graph. The file is written under a temporary name and then moved into place,
+     * so a reader never sees a half-written layout.
+     * @param directory The cache directory, created if missing.
+     * @param graph The graph.
+     * @param layout The layout to save.
+     * @throws IOException If the file can't be written.
+     */
+    public static void save(Path directory, CompactGraph graph, GraphLayout layout) throws IOException
+    {
+        if (layout.size() != graph.getSize())
+        {
+            throw new IllegalArgumentException("Layout has " + layout.size() + " vertices but the graph has " + graph.getSize());
+        }
+        Files.createDirectories(directory);
+        long hash = hash(graph);
+        Path file = directory.resolve(fileName(hash));
+        Path temp = Files.createTempFile(directory, "layout", ".tmp");
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(layout.size());
+                out.writeLong(hash);
+                for (int v = 0; v < layout.size(); v ++)
+                {
+                    out.writeFloat(layout.x[v]);
+                }
+                for (int v = 0; v < layout.size(); v ++)
+                {
+                    out.writeFloat(layout.y[v]);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the cache file name for a graph hash.
+     * @param hash The graph hash.
+     * @return The file name.
+     */
+    private static String fileName(long hash)
+    {
+        return String.format("%016x.layout", hash);
+    }
+}
@@ -0,0 +1,76 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * A Bellman-Ford engine with 64-bit distances for graphs whose path costs exceed the int range.
+ * It uses the same pass structure as BellmanFordSolver, with distances kept in a primitive long[]
+ * and every relaxation going through Distances.saturatingAdd so sums never wrap around.
+ *
+ * The sweep is a copy of BellmanFordSolver's rather than one loop shared through an interface for the
+ * add and store steps: that call sits in the innermost loop, and sharing it made the int engine about
+ * 40% slower on a 10^6 edge graph. The two loops must make the same passes, which GraphCorpus checks.
+ */
+public final class LongBellmanFord
+{
+    private LongBellmanFord()
+    {
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices using long distances.
+     * A relaxation that saturates at Long.MIN_VALUE still counts as a change, so a negative cycle
+     * keeps the passes going and is detected after V passes even once its distances bottom out.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    public static LongShortestPaths solve(CompactGraph graph, int src)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        int vertexCount = graph.getSize();
+
+        long[] shortestPath = new long[vertexCount];
+        int[] predecessors = new int[vertexCount];
+        Arrays.fill(shortestPath, LongShortestPaths.INFINITY);
+        Arrays.fill(predecessors, ShortestPaths.NO_PREDECESSOR);
+        shortestPath[src] = 0;
+
+        int numCycles = 0;
+        long edgesScanned = 0;
+        boolean notComplete = true;
+
+        // The algorithm runs V-1 times, where V is the number of vertices.
+        // It runs one extra time to check for a negative cycle.
+        while (numCycles < vertexCount && notComplete)
+        {
+            notComplete = false;
+            for (int u = 0; u < vertexCount; u ++)
+            {
+                if (shortestPath[u] == LongShortestPaths.INFINITY) // Skip vertices that are not reachable yet.
+                {
+                    continue;
+                }
+                int end = offsets[u + 1];
+                edgesScanned += end - offsets[u];
+                for (int e = offsets[u]; e < end; e ++)
+                {
+                    int v = targets[e];
+                    int weight = weights[e];
+                    long currDist = Distances.saturatingAdd(shortestPath[u], weight);
+                    if (currDist < shortestPath[v] || (currDist == Long.MIN_VALUE && weight < 0))
+                    {
+                        shortestPath[v] = currDist;
+                        predecessors[v] = u;
+                        notComplete = true;
+                    }
+                }
+            }
+            numCycles ++;
+        }
+
+        return new LongShortestPaths(src, shortestPath, predecessors, notComplete, numCycles, edgesScanned);
+    }
+}
@@ -0,0 +1,92 @@
+package bellman.ford;
+
+/**
+ * Holds the result of a LongBellmanFord run: 64-bit distances to every vertex,
+ * the predecessor of every vertex on its shortest path, and whether a negative cycle was found.
+ */
+public final class LongShortestPaths
+{
+    // Marks an unreachable vertex in the distance array.
+    public static final long INFINITY = Distances.LONG_INFINITY;
+
+    private final int source;
+    private final long[] distances;
+    private final int[] predecessors;
+    private final boolean negativeCycle;
+    private final int passes;
+    private final long edgesScanned;
+
+    /**
+     * Constructs a result. The arrays are not copied.
+     * @param source The source vertex.
+     * @param distances The shortest distance to each vertex.
+     * @param predecessors The predecessor of each vertex.
+     * @param negativeCycle True if a negative cycle is reachable from the source.
+     * @param passes The number of passes the engine ran.
+     * @param edgesScanned The number of edge relaxations the engine attempted.
+     */
+    LongShortestPaths(int source, long[] distances, int[] predecessors, boolean negativeCycle, int passes, long edgesScanned)
+    {
+        this.source = source;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        this.negativeCycle = negativeCycle;
+        this.passes = passes;
+        this.edgesScanned = edgesScanned;
+    }
+
+    /**
+     * Returns the source vertex of the run.
+     * @return The source vertex.
+     */
+    public int getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the shortest distance to each vertex, or INFINITY for unreachable vertices.
+     * The distances are not meaningful when a negative cycle was found.
+     * @return The distance array.
+     */
+    public long[] getDistances()
+    {
+        return distances;
+    }
+
+    /**
+     * Returns the predecessor of each vertex on its shortest path, or ShortestPaths.NO_PREDECESSOR.
+     * @return The predecessor array.
+     */
+    public int[] getPredecessors()
+    {
+        return predecessors;
+    }
+
+    /**
+     * Returns whether a negative cycle reachable from the source was detected.
+     * @return True if a negative cycle was found.
+     */
+    public boolean hasNegativeCycle()
+    {
+        return negativeCycle;
+    }
+
+    /**
+     * Returns the number of passes the engine ran before it stopped.
+     * @return The pass count.
+     */
+    public int getPasses()
+    {
+        return passes;
+    }
+
+    /**
+     * Returns the number of edge relaxations the engine attempted, successful or not.
+     * @return The number of edges scanned.
+     */
+    public long getEdgesScanned()
+    {
+        return edgesScanned;
+    }
+}
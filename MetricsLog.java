@@ -0,0 +1,118 @@
+package bellman.ford;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the per-pass metrics of each run as JSON lines, one object per line, for plotting
+ * convergence curves or loading into any tool that reads JSON lines.
+ * Each pass gives a line like
+ * {"event":"pass","source":0,"pass":3,"edgesScanned":1000,"relaxations":42,"verticesChanged":40,"nanos":81000,"allocatedBytes":0}
+ * and each run ends with
+ * {"event":"completed","source":0,"passes":5,"edgesScanned":5000,"negativeCycle":false}.
+ * One log can be attached to several runs in turn; output is flushed at the end of every run.
+ */
+public class MetricsLog implements RelaxationListener, Closeable
+{
+    private final Writer out;
+    // Reused for every line.
+    private final StringBuilder line = new StringBuilder(192);
+    private int source;
+
+    /**
+     * Creates a log that writes to a file.
+     * @param path The file to write, replaced if it exists.
+     * @throws IOException If the file can't be created.
+     */
+    public MetricsLog(Path path) throws IOException
+    {
+        this(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a log that writes to a writer.
+     * @param out The writer, closed when the log is closed.
+     */
+    public MetricsLog(Writer out)
+    {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+    }
+
+    @Override
+    public boolean wantsEdgeEvents()
+    {
+        return false;
+    }
+
+    @Override
+    public void started(int src)
+    {
+        source = src;
+    }
+
+    @Override
+    public void passMeasured(PassMetrics metrics)
+    {
+        line.setLength(0);
+        line.append("{\"event\":\"pass\",\"source\":").append(source)
+            .append(",\"pass\":").append(metrics.getPass())
+            .append(",\"edgesScanned\":").append(metrics.getEdgesScanned())
+            .append(",\"relaxations\":").append(metrics.getRelaxations())
+            .append(",\"verticesChanged\":").append(metrics.getVerticesChanged())
+            .append(",\"nanos\":").append(metrics.getNanos())
+            .append(",\"allocatedBytes\":").append(metrics.getAllocatedBytes())
+            .append("}\n");
+        write();
+    }
+
+    @Override
+    public void completed(ShortestPaths result)
+    {
+        line.setLength(0);
+        line.append("{\"event\":\"completed\",\"source\":").append(result.getSource())
+            .append(",\"passes\":").append(result.getPasses())
+            .append(",\"edgesScanned\":").append(result.getEdgesScanned())
+            .append(",\"negativeCycle\":").append(result.hasNegativeCycle())
+            .append("}\n");
+        write();
+        try
+        {
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes and closes the output.
+     * @throws IOException If the output can't be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+    /**
+     * Writes the current line.
+     */
+    private void write()
+    {
+        try
+        {
+            out.append(line);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
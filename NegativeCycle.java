@@ -0,0 +1,331 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * A negative cycle found by a shortest path run, and the vertices whose distance it makes unbounded.
+ * When an engine reports a negative cycle, its predecessor array still holds the evidence: following
+ * predecessors back from a vertex that was lowered in the final pass leads onto a cycle, and every cycle
+ * among the predecessors has negative weight. NegativeCycle.find walks them in O(V) time.
+ *
+ * A vertex has distance negative infinity if it can be reached from a negative cycle, because going around
+ * the cycle once more always gives a shorter path. The vertices reachable from any cycle among the
+ * predecessors are marked first. An engine that stops at the first cycle it sees, like QueueBellmanFord,
+ * can leave other negative cycles out of the predecessors, so find then finishes the relaxation on the
+ * unmarked vertices and marks everything still being lowered after V - 1 passes. The marked set is exact
+ * for every engine. Finishing usually converges after a few passes; only a second negative cycle the
+ * engine never reached makes it take V passes, O(VE) time.
+ */
+public final class NegativeCycle
+{
+    private final int[] vertices;
+    private final int[] edges;
+    private final long weight;
+    private final int cycleCount;
+    // One bit per vertex, set if its distance is negative infinity.
+    private final long[] negativeInfinity;
+    private final int negativeInfinityCount;
+
+    /**
+     * Constructs a result. The arrays are not copied.
+     */
+    private NegativeCycle(int[] vertices, int[] edges, long weight, int cycleCount, long[] negativeInfinity, int negativeInfinityCount)
+    {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.weight = weight;
+        this.cycleCount = cycleCount;
+        this.negativeInfinity = negativeInfinity;
+        this.negativeInfinityCount = negativeInfinityCount;
+    }
+
+    /**
+     * Extracts the negative cycle from a run that detected one.
+     * @param graph The graph the run was on.
+     * @param result The result of the run.
+     * @return The cycle, or null if the run found no negative cycle.
+     * @throws IllegalStateException If no negative cycle is reachable from the run's source after all, which a
+     *     correct engine never reports.
+     */
+    public static NegativeCycle find(CompactGraph graph, ShortestPaths result)
+    {
+        if (!result.hasNegativeCycle())
+        {
+            return null;
+        }
+        int vertexCount = graph.getSize();
+        int[] predecessors = result.getPredecessors();
+        int[] predecessorEdges = result.getPredecessorEdges();
+        int[] cycleStarts = cycles(predecessors, result.getCycleVertex());
+
+        // Everything reachable from any of the cycles has distance negative infinity.
+        long[] negativeInfinity = new long[(vertexCount + 63) >>> 6];
+        int[] queue = new int[vertexCount];
+        int tail = mark(predecessors, cycleStarts, negativeInfinity, queue, 0);
+        int marked = spread(graph, negativeInfinity, queue, 0, tail);
+        if (cycleStarts.length == 0)
+        {
+            // The queue engine stops on a path of V edges, and by then the predecessors along it may have been
+            // overwritten, leaving no cycle. Finishing the relaxation on copies puts one back.
+            predecessors = predecessors.clone();
+            predecessorEdges = predecessorEdges.clone();
+            tail = finish(graph, result.getDistances(), predecessors, predecessorEdges, negativeInfinity, queue, marked);
+            cycleStarts = cycles(predecessors, tail > marked ? queue[marked] : ShortestPaths.NO_PREDECESSOR);
+            if (cycleStarts.length == 0)
+            {
+                throw new IllegalStateException("The run reported a negative cycle but none is reachable from its source");
+            }
+            tail = mark(predecessors, cycleStarts, negativeInfinity, queue, tail);
+        }
+        else
+        {
+            tail = finish(graph, result.getDistances(), null, null, negativeInfinity, queue, marked);
+        }
+        tail = spread(graph, negativeInfinity, queue, marked, tail);
+
+        // Collect the reported cycle. Predecessors run against the edges, so fill the arrays from the back.
+        int first = cycleStarts[0];
+        int length = 1;
+        for (int v = predecessors[first]; v != first; v = predecessors[v])
+        {
+            length ++;
+        }
+        int[] vertices = new int[length];
+        int[] edges = new int[length];
+        long weight = 0;
+        int v = first;
+        for (int i = length - 1; i >= 0; i --)
+        {
+            int u = predecessors[v];
+            vertices[i] = u;
+            edges[i] = predecessorEdges[v];
+            weight += graph.weight(edges[i]);
+            v = u;
+        }
+        return new NegativeCycle(vertices, edges, weight, cycleStarts.length, negativeInfinity, tail);
+    }
+
+    /**
+     * Finds the cycles among the predecessors. Walks predecessors from each vertex, stamping the vertices of
+     * each walk with its own number. Meeting the current walk's stamp again means the walk went round a cycle;
+     * meeting an older stamp or the end of a chain means there is nothing new ahead. Every vertex is stamped
+     * once, so this is O(V). The walk from the hint goes first, so its cycle comes first.
+     * @param predecessors The predecessor of each vertex.
+     * @param hint The vertex to walk from first, or NO_PREDECESSOR.
+     * @return One vertex on each cycle.
+     */
+    private static int[] cycles(int[] predecessors, int hint)
+    {
+        int vertexCount = predecessors.length;
+        int[] stamp = new int[vertexCount];
+        int[] cycleStarts = new int[8];
+        int cycleCount = 0;
+        int walk = 0;
+        for (int i = -1; i < vertexCount; i ++)
+        {
+            int start = i < 0 ? hint : i;
+            if (start == ShortestPaths.NO_PREDECESSOR || stamp[start] != 0)
+            {
+                continue;
+            }
+            walk ++;
+            int v = start;
+            while (v != ShortestPaths.NO_PREDECESSOR && stamp[v] == 0)
+            {
+                stamp[v] = walk;
+                v = predecessors[v];
+            }
+            if (v != ShortestPaths.NO_PREDECESSOR && stamp[v] == walk)
+            {
+                if (cycleCount == cycleStarts.length)
+                {
+                    cycleStarts = Arrays.copyOf(cycleStarts, cycleCount * 2);
+                }
+                cycleStarts[cycleCount ++] = v;
+            }
+        }
+        return Arrays.copyOf(cycleStarts, cycleCount);
+    }
+
+    /**
+     * Marks and queues the vertices of the cycles that aren't marked yet.
+     * @param predecessors The predecessor of each vertex.
+     * @param cycleStarts One vertex on each cycle.
+     * @param marked One bit per vertex, set for the vertices already marked.
+     * @param queue The marked vertices in the order they were marked.
+     * @param tail The number of queued vertices.
+     * @return The number of queued vertices afterwards.
+     */
+    private static int mark(int[] predecessors, int[] cycleStarts, long[] marked, int[] queue, int tail)
+    {
+        for (int start : cycleStarts)
+        {
+            int u = start;
+            do
+            {
+                if ((marked[u >>> 6] & (1L << u)) == 0)
+                {
+                    marked[u >>> 6] |= 1L << u;
+                    queue[tail ++] = u;
+                }
+                u = predecessors[u];
+            } while (u != start);
+        }
+        return tail;
+    }
+
+    /**
+     * Marks everything reachable from the queued vertices, breadth first.
+     * @param graph The graph.
+     * @param marked One bit per vertex, set for the vertices already marked.
+     * @param queue The marked vertices in the order they were marked.
+     * @param head The first queued vertex whose edges haven't been followed.
+     * @param tail The number of queued vertices.
+     * @return The number of queued vertices afterwards.
+     */
+    private static int spread(CompactGraph graph, long[] marked, int[] queue, int head, int tail)
+    {
+        for (; head < tail; head ++)
+        {
+            int u = queue[head];
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e ++)
+            {
+                int t = graph.target(e);
+                if ((marked[t >>> 6] & (1L << t)) == 0)
+                {
+                    marked[t >>> 6] |= 1L << t;
+                    queue[tail ++] = t;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Finishes the relaxation on the unmarked vertices and queues the ones it proves unbounded.
+     * No edge leads from a marked vertex to an unmarked one, so the unmarked distances converge unless
+     * another negative cycle is among them. Otherwise, after V - 1 passes every unmarked vertex with a
+     * finite distance has it exactly, and any vertex lowered in pass V has distance negative infinity.
+     * The engine's distances are upper bounds, so they are a valid place to continue from.
+     * @param graph The graph.
+     * @param distances The engine's distances, which are not changed.
+     * @param predecessors The predecessors to update along with the distances, or null to leave them.
+     * @param predecessorEdges The predecessor edges to update, or null.
+     * @param marked One bit per vertex, set for the vertices already marked.
+     * @param queue The marked vertices in the order they were marked.
+     * @param tail The number of queued vertices.
+     * @return The number of queued vertices afterwards.
+     */
+    private static int finish(CompactGraph graph, int[] distances, int[] predecessors, int[] predecessorEdges, long[] marked,
+        int[] queue, int tail)
+    {
+        int vertexCount = graph.getSize();
+        // Long arithmetic can't overflow here: V passes lower a distance by at most V times the largest negative weight.
+        long[] bounds = new long[vertexCount];
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            bounds[v] = distances[v] == ShortestPaths.INFINITY ? Long.MAX_VALUE : distances[v];
+        }
+        boolean changed = true;
+        for (int pass = 1; pass <= vertexCount && changed; pass ++)
+        {
+            changed = false;
+            for (int u = 0; u < vertexCount; u ++)
+            {
+                if (bounds[u] == Long.MAX_VALUE || (marked[u >>> 6] & (1L << u)) != 0)
+                {
+                    continue;
+                }
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e ++)
+                {
+                    int t = graph.target(e);
+                    long candidate = bounds[u] + graph.weight(e);
+                    if (candidate < bounds[t] && (marked[t >>> 6] & (1L << t)) == 0)
+                    {
+                        bounds[t] = candidate;
+                        changed = true;
+                        if (predecessors != null)
+                        {
+                            predecessors[t] = u;
+                            predecessorEdges[t] = e;
+                        }
+                        if (pass == vertexCount)
+                        {
+                            marked[t >>> 6] |= 1L << t;
+                            queue[tail ++] = t;
+                        }
+                    }
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Returns the vertices of the cycle in edge order: each vertex has an edge to the next, and the last to the first.
+     * @return The cycle's vertices.
+     */
+    public int[] getVertices()
+    {
+        return vertices;
+    }
+
+    /**
+     * Returns the edges of the cycle in order; edge i goes from vertex i to vertex i + 1.
+     * @return The CSR indexes of the cycle's edges.
+     */
+    public int[] getEdges()
+    {
+        return edges;
+    }
+
+    /**
+     * Returns the total weight of the cycle, which is negative.
+     * @return The cycle weight.
+     */
+    public long getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Returns the number of separate cycles among the predecessors. Only the first is returned by
+     * getVertices, but the vertices reachable from all of them are marked.
+     * @return The cycle count, at least 1.
+     */
+    public int getCycleCount()
+    {
+        return cycleCount;
+    }
+
+    /**
+     * Returns whether a vertex's distance is negative infinity.
+     * @param v The vertex.
+     * @return True if the vertex can be reached from a negative cycle.
+     */
+    public boolean isNegativeInfinity(int v)
+    {
+        return (negativeInfinity[v >>> 6] & (1L << v)) != 0;
+    }
+
+    /**
+     * Returns the number of vertices whose distance is negative infinity.
+     * @return The vertex count.
+     */
+    public int getNegativeInfinityCount()
+    {
+        return negativeInfinityCount;
+    }
+
+    /**
+     * Describes the cycle with vertex labels, for example "A > C > B > A (weight -1)".
+     * @param labels The vertex labels.
+     * @return The description.
+     */
+    public String describe(VertexLabels labels)
+    {
+        int[] closed = Arrays.copyOf(vertices, vertices.length + 1);
+        closed[vertices.length] = vertices[0];
+        return VertexOrderings.describe(closed, labels) + " (weight " + weight + ")";
+    }
+}
@@ -0,0 +1,213 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * A Bellman-Ford engine using Yen's improvement.
+ * A VertexOrdering ranks the vertices, and the edges are split into a forward set (towards a higher
+ * or equal rank) and a backward set (towards a lower rank). Each pass sweeps the forward edges in
+ * increasing rank and then the backward edges in decreasing rank, so any chain of edges that keeps
+ * the same direction is settled within a single sweep. When the ordering follows the graph's topology
+ * this needs far fewer passes than the fixed index order of BellmanFordSolver.
+ */
+public final class OrderedBellmanFord implements ShortestPathEngine
+{
+    private final VertexOrdering ordering;
+
+    /**
+     * Constructs an engine that ranks vertices with the given ordering.
+     * @param ordering The ordering used to split edges into forward and backward sets,
+     *                 for example VertexOrderings.bfs().
+     */
+    public OrderedBellmanFord(VertexOrdering ordering)
+    {
+        this.ordering = ordering;
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices.
+     * Every pass still relaxes every edge once, so the usual bound holds: if the V-th pass
+     * changes a distance, a negative cycle is reachable from the source.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @param listener The listener to notify of each relaxation, or null to run headless.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    @Override
+    public ShortestPaths solve(CompactGraph graph, int src, RelaxationListener listener)
+    {
+        int vertexCount = graph.getSize();
+        int[] order = ordering.order(graph, src);
+        int[] rank = VertexOrderings.ranks(order);
+
+        // Split each vertex's out-edges into forward and backward CSR arrays. Each entry holds
+        // the original edge index, so targets and weights are read from the graph itself.
+        int[] forwardOffsets = new int[vertexCount + 1];
+        int[] backwardOffsets = new int[vertexCount + 1];
+        for (int u = 0; u < vertexCount; u ++)
+        {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e ++)
+            {
+                if (rank[graph.targets[e]] >= rank[u])
+                {
+                    forwardOffsets[u + 1] ++;
+                }
+                else
+                {
+                    backwardOffsets[u + 1] ++;
+                }
+            }
+        }
+        for (int u = 0; u < vertexCount; u ++)
+        {
+            forwardOffsets[u + 1] += forwardOffsets[u];
+            backwardOffsets[u + 1] += backwardOffsets[u];
+        }
+        int[] forwardEdges = new int[forwardOffsets[vertexCount]];
+        int[] backwardEdges = new int[backwardOffsets[vertexCount]];
+        for (int u = 0; u < vertexCount; u ++)
+        {
+            int f = forwardOffsets[u];
+            int b = backwardOffsets[u];
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e ++)
+            {
+                if (rank[graph.targets[e]] >= rank[u])
+                {
+                    forwardEdges[f ++] = e;
+                }
+                else
+                {
+                    backwardEdges[b ++] = e;
+                }
+            }
+        }
+
+        int[] shortestPath = new int[vertexCount];
+        // Each improvement records the predecessor and its edge in one long, so it touches one array entry.
+        long[] predecessorLinks = new long[vertexCount];
+        Arrays.fill(shortestPath, ShortestPaths.INFINITY);
+        Arrays.fill(predecessorLinks, ShortestPaths.NO_LINK);
+        shortestPath[src] = 0;
+
+        PassMeter meter = null;
+        if (listener != null)
+        {
+            listener.started(src);
+            // Started after the listener, so the first pass isn't charged for the listener's setup.
+            meter = new PassMeter(vertexCount);
+        }
+        Sweep sweep = new Sweep(graph, shortestPath, predecessorLinks, listener, meter);
+
+        int numCycles = 0;
+        boolean notComplete = true;
+        while (numCycles < vertexCount && notComplete)
+        {
+            notComplete = false;
+            for (int i = 0; i < vertexCount; i ++)
+            {
+                notComplete |= sweep.relax(order[i], forwardOffsets, forwardEdges);
+            }
+            for (int i = vertexCount - 1; i >= 0; i --)
+            {
+                notComplete |= sweep.relax(order[i], backwardOffsets, backwardEdges);
+            }
+            numCycles ++;
+            if (listener != null)
+            {
+                PassMetrics metrics = meter.passCompleted(sweep.edgesScanned);
+                listener.passCompleted(numCycles);
+                listener.passMeasured(metrics);
+                meter.startPass();
+            }
+        }
+
+        int[] predecessors = new int[vertexCount];
+        int[] predecessorEdges = new int[vertexCount];
+        ShortestPaths.unlink(predecessorLinks, predecessors, predecessorEdges);
+        ShortestPaths result = new ShortestPaths(src, shortestPath, predecessors, predecessorEdges, notComplete, numCycles, sweep.edgesScanned, sweep.saturated,
+            notComplete ? sweep.lastImproved : ShortestPaths.NO_PREDECESSOR);
+        if (listener != null)
+        {
+            listener.completed(result);
+        }
+        return result;
+    }
+
+    /**
+     * Holds the state shared by the forward and backward sweeps of one run.
+     */
+    private static final class Sweep
+    {
+        private final int[] targets;
+        private final int[] weights;
+        private final int[] shortestPath;
+        private final long[] predecessorLinks;
+        private final RelaxationListener listener;
+        private final PassMeter meter;
+        private final boolean edgeEvents;
+        private long edgesScanned;
+        private boolean saturated;
+        // The last vertex lowered, so a negative cycle can be traced back from the final sweep.
+        private int lastImproved = ShortestPaths.NO_PREDECESSOR;
+
+        Sweep(CompactGraph graph, int[] shortestPath, long[] predecessorLinks, RelaxationListener listener, PassMeter meter)
+        {
+            this.targets = graph.targets;
+            this.weights = graph.weights;
+            this.shortestPath = shortestPath;
+            this.predecessorLinks = predecessorLinks;
+            this.listener = listener;
+            this.meter = meter;
+            this.edgeEvents = listener != null && listener.wantsEdgeEvents();
+        }
+
+        /**
+         * Relaxes one vertex's edges from either the forward or the backward set.
+         * @param u The vertex whose edges are relaxed.
+         * @param offsets The offsets of the edge set.
+         * @param edges The original edge indexes of the edge set.
+         * @return True if any distance was lowered.
+         */
+        boolean relax(int u, int[] offsets, int[] edges)
+        {
+            if (shortestPath[u] == ShortestPaths.INFINITY) // Skip vertices that are not reachable yet.
+            {
+                return false;
+            }
+            boolean changed = false;
+            int end = offsets[u + 1];
+            edgesScanned += end - offsets[u];
+            for (int i = offsets[u]; i < end; i ++)
+            {
+                int e = edges[i];
+                int v = targets[e];
+                if (edgeEvents)
+                {
+                    listener.edgeScanned(u, v, e);
+                }
+                long currDist = (long) shortestPath[u] + weights[e]; // Computed in long so it cannot wrap.
+                saturated |= Distances.saturates(currDist); // The true distance does not fit in an int distance.
+                if (currDist < shortestPath[v])
+                {
+                    shortestPath[v] = Distances.clamp(currDist);
+                    predecessorLinks[v] = ShortestPaths.link(u, e);
+                    lastImproved = v;
+                    changed = true;
+                    if (meter != null)
+                    {
+                        meter.improved(v);
+                        if (edgeEvents)
+                        {
+                            listener.distanceImproved(u, v, e, shortestPath[v]);
+                        }
+                    }
+                }
+                if (edgeEvents)
+                {
+                    listener.edgeFinished(u, v, e);
+                }
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package bellman.ford;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A multi-core Bellman-Ford engine.
+ * Each pass splits the vertex range across a ForkJoinPool and relaxes the out-edges of every range
+ * concurrently. Distances are updated with lock-free compare-and-set minimums on a shared array, and
+ * the per-range "changed" flags and edge counts are merged as the fork-join tasks complete.
+ * Listeners only receive started, passCompleted and completed callbacks, always from the calling thread;
+ * per-edge callbacks are not delivered because edges are relaxed on many threads at once.
+ */
+public final class ParallelBellmanFord implements ShortestPathEngine
+{
+    // Gives atomic access to the elements of a plain long[].
+    private static final VarHandle STATE = MethodHandles.arrayElementVarHandle(long[].class);
+    // Ranges with fewer out-edges than this are relaxed without splitting further.
+    private static final int DEFAULT_GRAIN = 4096;
+    // The low bits of a RelaxRange outcome; the edges scanned are stored above them.
+    private static final long CHANGED = 1;
+    private static final long SATURATED = 2;
+    private static final int OUTCOME_BITS = 2;
+
+    private final ForkJoinPool pool;
+    private final int grain;
+
+    /**
+     * Constructs an engine that uses a given number of worker threads.
+     * @param parallelism The number of worker threads.
+     */
+    public ParallelBellmanFord(int parallelism)
+    {
+        this(parallelism, DEFAULT_GRAIN);
+    }
+
+    /**
+     * Constructs an engine that uses a given number of worker threads and split size.
+     * @param parallelism The number of worker threads.
+     * @param grain The number of edges below which a vertex range is not split further.
+     */
+    public ParallelBellmanFord(int parallelism, int grain)
+    {
+        if (parallelism < 1 || grain < 1)
+        {
+            throw new IllegalArgumentException("parallelism and grain must be at least 1");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.grain = grain;
+    }
+
+    /**
+     * Returns the number of worker threads used by this engine.
+     * @return The parallelism level.
+     */
+    public int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stops the worker threads. The engine cannot be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices.
+     * The distance and predecessor edge of each vertex are packed into one long (distance in the high
+     * 32 bits) so a single compare-and-set keeps them consistent with each other. The predecessor
+     * vertices are looked up from the edges once the run ends.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @param listener The listener to notify of each pass, or null to run headless.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    @Override
+    public ShortestPaths solve(CompactGraph graph, int src, RelaxationListener listener)
+    {
+        int vertexCount = graph.getSize();
+        long[] state = new long[vertexCount];
+        long unreached = pack(ShortestPaths.INFINITY, ShortestPaths.NO_PREDECESSOR);
+        for (int i = 0; i < vertexCount; i ++)
+        {
+            state[i] = unreached;
+        }
+        state[src] = pack(0, ShortestPaths.NO_PREDECESSOR);
+
+        PassMeter meter = null;
+        if (listener != null)
+        {
+            listener.started(src);
+            // Started after the listener, so the first pass isn't charged for the listener's setup.
+            meter = new PassMeter(vertexCount);
+        }
+
+        int numCycles = 0;
+        long edgesScanned = 0;
+        boolean notComplete = true;
+        boolean saturated = false;
+
+        // Same pass structure as BellmanFordSolver: stop when a pass changes nothing,
+        // and report a negative cycle if the V-th pass still changed something.
+        while (numCycles < vertexCount && notComplete)
+        {
+            long outcome = pool.invoke(new RelaxRange(graph, state, 0, vertexCount, grain, meter));
+            notComplete = (outcome & CHANGED) != 0;
+            saturated |= (outcome & SATURATED) != 0;
+            edgesScanned += outcome >>> OUTCOME_BITS;
+            numCycles ++;
+            if (listener != null)
+            {
+                PassMetrics metrics = meter.passCompleted(edgesScanned);
+                listener.passCompleted(numCycles);
+                listener.passMeasured(metrics);
+                meter.startPass();
+            }
+        }
+
+        int[] shortestPath = new int[vertexCount];
+        int[] predecessorEdges = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i ++)
+        {
+            shortestPath[i] = distance(state[i]);
+            predecessorEdges[i] = (int) state[i];
+        }
+
+        int[] predecessors = ShortestPaths.predecessorsOf(graph, predecessorEdges);
+        ShortestPaths result = new ShortestPaths(src, shortestPath, predecessors, predecessorEdges, notComplete, numCycles, edgesScanned, saturated, ShortestPaths.NO_PREDECESSOR);
+        if (listener != null)
+        {
+            listener.completed(result);
+        }
+        return result;
+    }
+
+    /**
+     * Packs a distance and a predecessor edge into one long.
+     * @param distance The distance, stored in the high 32 bits.
+     * @param predecessorEdge The predecessor edge, stored in the low 32 bits.
+     * @return The packed value.
+     */
+    private static long pack(int distance, int predecessorEdge)
+    {
+        return ((long) distance << 32) | (predecessorEdge & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Extracts the distance from a packed value.
+     * @param packed The packed distance and predecessor edge.
+     * @return The distance.
+     */
+    private static int distance(long packed)
+    {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * Relaxes the out-edges of a contiguous range of vertices, splitting the range in half
+     * while it holds more than grain edges. The task returns the number of edges scanned shifted
+     * left by OUTCOME_BITS, with the CHANGED bit set if any distance changed and the SATURATED bit
+     * set if any candidate didn't fit in an int distance, so all three merge in a single long.
+     */
+    @SuppressWarnings("serial")
+    private static final class RelaxRange extends RecursiveTask<Long>
+    {
+        private final CompactGraph graph;
+        private final long[] state;
+        private final int from;
+        private final int to;
+        private final int grain;
+        // Counts relaxations when a listener is attached, or null.
+        private final PassMeter meter;
+
+        RelaxRange(CompactGraph graph, long[] state, int from, int to, int grain, PassMeter meter)
+        {
+            this.graph = graph;
+            this.state = state;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.meter = meter;
+        }
+
+        @Override
+        protected Long compute()
+        {
+            int[] offsets = graph.offsets;
+            if (to - from > 1 && offsets[to] - offsets[from] > grain)
+            {
+                int mid = (from + to) >>> 1;
+                RelaxRange left = new RelaxRange(graph, state, from, mid, grain, meter);
+                RelaxRange right = new RelaxRange(graph, state, mid, to, grain, meter);
+                left.fork();
+                long rightOutcome = right.compute();
+                long leftOutcome = left.join();
+                return ((leftOutcome >>> OUTCOME_BITS) + (rightOutcome >>> OUTCOME_BITS)) << OUTCOME_BITS
+                    | ((leftOutcome | rightOutcome) & (CHANGED | SATURATED));
+            }
+            return relax();
+        }
+
+        /**
+         * Relaxes every out-edge of the range on the current thread.
+         * @return The number of edges scanned shifted left by OUTCOME_BITS, with the CHANGED and SATURATED bits.
+         */
+        private long relax()
+        {
+            int[] offsets = graph.offsets;
+            int[] targets = graph.targets;
+            int[] weights = graph.weights;
+            boolean changed = false;
+            boolean saturated = false;
+            long scanned = 0;
+            // Counted locally and added to the meter once, so the tasks don't contend on it.
+            long relaxations = 0;
+            int verticesChanged = 0;
+            for (int u = from; u < to; u ++)
+            {
+                int du = distance((long) STATE.getOpaque(state, u));
+                if (du == ShortestPaths.INFINITY) // Skip vertices that are not reachable yet.
+                {
+                    continue;
+                }
+                int end = offsets[u + 1];
+                scanned += end - offsets[u];
+                for (int e = offsets[u]; e < end; e ++)
+                {
+                    int v = targets[e];
+                    long currDist = (long) du + weights[e]; // Computed in long so it cannot wrap.
+                    saturated |= Distances.saturates(currDist); // The true distance does not fit in an int distance.
+                    long packed = pack(Distances.clamp(currDist), e);
+                    // Lower the target's distance with a compare-and-set loop, retrying only
+                    // while another thread has changed it to something still larger.
+                    long current = (long) STATE.getOpaque(state, v);
+                    while (currDist < distance(current))
+                    {
+                        if (STATE.compareAndSet(state, v, current, packed))
+                        {
+                            changed = true;
+                            if (meter != null)
+                            {
+                                relaxations ++;
+                                if (meter.markChanged(v))
+                                {
+                                    verticesChanged ++;
+                                }
+                            }
+                            break;
+                        }
+                        current = (long) STATE.getOpaque(state, v);
+                    }
+                }
+            }
+            if (meter != null)
+            {
+                meter.add(relaxations, verticesChanged);
+            }
+            return scanned << OUTCOME_BITS | (changed ? CHANGED : 0) | (saturated ? SATURATED : 0);
+        }
+    }
+}
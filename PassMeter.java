@@ -0,0 +1,123 @@
+package bellman.ford;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects PassMetrics for an engine. Engines only create one when a listener is attached, so headless
+ * runs pay nothing. The sequential engines call improved from their relaxation loop, which costs one
+ * counter increment and one stamp check. The parallel engine's tasks count into locals and add them to
+ * striped LongAdder counters once per task, so the threads never contend on a shared counter.
+ */
+final class PassMeter
+{
+    // Used to read per-thread allocation counters.
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final VarHandle STAMP = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // The pass in which each vertex was last counted as changed, so a vertex counts once per pass.
+    private final int[] changedIn;
+    private final boolean allocationCounted;
+    private final long thread;
+    // The pass being measured, starting at 1.
+    private int pass = 1;
+    // Counters of the sequential engines.
+    private long relaxations;
+    private int verticesChanged;
+    // Counters of the parallel engine.
+    private final LongAdder concurrentRelaxations = new LongAdder();
+    private final LongAdder concurrentChanged = new LongAdder();
+    // Totals at the start of the pass.
+    private long edgesScannedBefore;
+    private long startNanos;
+    private long startBytes;
+
+    /**
+     * Constructs a meter and starts timing the first pass.
+     * @param vertexCount The number of vertices in the graph.
+     */
+    PassMeter(int vertexCount)
+    {
+        changedIn = new int[vertexCount];
+        allocationCounted = THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+        thread = Thread.currentThread().getId();
+        startPass();
+    }
+
+    /**
+     * Counts a relaxation that lowered a vertex's distance. Only for engines running on one thread.
+     * @param v The vertex.
+     */
+    void improved(int v)
+    {
+        relaxations ++;
+        if (changedIn[v] != pass)
+        {
+            changedIn[v] = pass;
+            verticesChanged ++;
+        }
+    }
+
+    /**
+     * Marks a vertex as changed in the current pass from any thread.
+     * @param v The vertex.
+     * @return True if this is the first time the vertex changed in the pass.
+     */
+    boolean markChanged(int v)
+    {
+        int stamp = (int) STAMP.getOpaque(changedIn, v);
+        return stamp != pass && STAMP.compareAndSet(changedIn, v, stamp, pass);
+    }
+
+    /**
+     * Adds a task's counts from the parallel engine.
+     * @param taskRelaxations The relaxations the task made.
+     * @param taskChanged The vertices the task marked as changed first.
+     */
+    void add(long taskRelaxations, int taskChanged)
+    {
+        concurrentRelaxations.add(taskRelaxations);
+        concurrentChanged.add(taskChanged);
+    }
+
+    /**
+     * Ends the current pass. The engine calls startPass once it has notified its listener, so the
+     * listener's own time and garbage are not charged to either pass.
+     * @param edgesScanned The total number of edges the engine has scanned so far.
+     * @return The counters of the pass that ended.
+     */
+    PassMetrics passCompleted(long edgesScanned)
+    {
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        PassMetrics metrics = new PassMetrics(pass, edgesScanned - edgesScannedBefore,
+            relaxations + concurrentRelaxations.sumThenReset(), verticesChanged + (int) concurrentChanged.sumThenReset(),
+            now - startNanos, allocationCounted ? bytes - startBytes : -1);
+        pass ++;
+        relaxations = 0;
+        verticesChanged = 0;
+        edgesScannedBefore = edgesScanned;
+        return metrics;
+    }
+
+    /**
+     * Starts timing the next pass.
+     */
+    void startPass()
+    {
+        startBytes = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the bytes allocated so far by the thread that created the meter.
+     * @return The byte count, or 0 if allocation counting is unavailable.
+     */
+    private long allocatedBytes()
+    {
+        return allocationCounted ? THREADS.getThreadAllocatedBytes(thread) : 0;
+    }
+}
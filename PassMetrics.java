@@ -0,0 +1,92 @@
+package bellman.ford;
+
+/**
+ * The counters of one pass of a shortest path run, reported to RelaxationListener.passMeasured.
+ * Printing them pass by pass shows the convergence curve of a run: on a healthy input the number of
+ * vertices changed falls off quickly, while a pass count near V or a long flat tail points at a
+ * pathological edge order or a negative cycle.
+ */
+public final class PassMetrics
+{
+    private final int pass;
+    private final long edgesScanned;
+    private final long relaxations;
+    private final int verticesChanged;
+    private final long nanos;
+    private final long allocatedBytes;
+
+    /**
+     * Constructs the counters of a pass.
+     * @param pass The pass number, starting at 1.
+     * @param edgesScanned The number of edge relaxations attempted in the pass.
+     * @param relaxations The number of those that lowered a distance.
+     * @param verticesChanged The number of distinct vertices whose distance was lowered.
+     * @param nanos The wall time of the pass in nanoseconds.
+     * @param allocatedBytes The bytes allocated by the thread running the engine during the pass, or -1 if unknown.
+     */
+    PassMetrics(int pass, long edgesScanned, long relaxations, int verticesChanged, long nanos, long allocatedBytes)
+    {
+        this.pass = pass;
+        this.edgesScanned = edgesScanned;
+        this.relaxations = relaxations;
+        this.verticesChanged = verticesChanged;
+        this.nanos = nanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Returns the pass number.
+     * @return The pass number, starting at 1.
+     */
+    public int getPass()
+    {
+        return pass;
+    }
+
+    /**
+     * Returns the number of edge relaxations attempted in the pass, successful or not.
+     * @return The number of edges scanned.
+     */
+    public long getEdgesScanned()
+    {
+        return edgesScanned;
+    }
+
+    /**
+     * Returns the number of relaxations that lowered a distance.
+     * @return The number of successful relaxations.
+     */
+    public long getRelaxations()
+    {
+        return relaxations;
+    }
+
+    /**
+     * Returns the number of distinct vertices whose distance was lowered. A vertex lowered several times
+     * in the pass counts once.
+     * @return The number of vertices changed.
+     */
+    public int getVerticesChanged()
+    {
+        return verticesChanged;
+    }
+
+    /**
+     * Returns the wall time of the pass.
+     * @return The time in nanoseconds.
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    /**
+     * Returns the bytes allocated during the pass by the thread running the engine. The parallel engine's
+     * worker threads are not included.
+     * @return The allocated bytes, or -1 if the JVM doesn't support allocation counting.
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+}
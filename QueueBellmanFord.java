@@ -0,0 +1,200 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * A queue-based Bellman-Ford engine (often called SPFA).
+ * Instead of sweeping every vertex on every pass, it keeps a work queue of vertices whose
+ * distance changed and only relaxes their out-edges. On sparse graphs most vertices settle early,
+ * so far fewer edges are scanned than with BellmanFordSolver.
+ */
+public final class QueueBellmanFord
+{
+    private QueueBellmanFord()
+    {
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices without a listener.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    public static ShortestPaths solve(CompactGraph graph, int src)
+    {
+        return solve(graph, src, null);
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices.
+     * A vertex is queued at most once at a time, tracked by an in-queue bitset. Each vertex also
+     * records how many edges the path behind its latest relaxation has; once that reaches V the path
+     * repeats a vertex, which can only happen around a negative cycle, and the run stops.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @param listener The listener to notify of each relaxation, or null to run headless.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    public static ShortestPaths solve(CompactGraph graph, int src, RelaxationListener listener)
+    {
+        return solve(graph, src, listener, new Workspace(graph.getSize()));
+    }
+
+    /**
+     * Finds the shortest path from a source vertex to all other vertices, using caller-owned scratch arrays
+     * so a worker answering many sources doesn't allocate them per run.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @param listener The listener to notify of each relaxation, or null to run headless.
+     * @param workspace The scratch arrays, sized for the graph. Must not be shared between threads.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    static ShortestPaths solve(CompactGraph graph, int src, RelaxationListener listener, Workspace workspace)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        int vertexCount = graph.getSize();
+
+        int[] shortestPath = new int[vertexCount];
+        // Each improvement records the predecessor and its edge in one long, so it touches one array entry.
+        long[] predecessorLinks = new long[vertexCount];
+        Arrays.fill(shortestPath, ShortestPaths.INFINITY);
+        Arrays.fill(predecessorLinks, ShortestPaths.NO_LINK);
+        shortestPath[src] = 0;
+
+        int[] relaxCount = workspace.relaxCount;
+        long[] inQueue = workspace.inQueue;
+        int[] queue = workspace.queue;
+        // A run stopped by a negative cycle can leave vertices marked as queued.
+        Arrays.fill(inQueue, 0);
+        relaxCount[src] = 0;
+        int head = 0;
+        int size = 0;
+
+        boolean saturated = false;
+        boolean listening = listener != null;
+        boolean edgeEvents = listening && listener.wantsEdgeEvents();
+        PassMeter meter = null;
+        if (listening)
+        {
+            listener.started(src);
+            // Started after the listener, so the first pass isn't charged for the listener's setup.
+            meter = new PassMeter(vertexCount);
+        }
+
+        queue[0] = src;
+        size = 1;
+        inQueue[src >>> 6] |= 1L << src;
+
+        // A pass ends when every vertex that was queued at the start of it has been processed.
+        int passRemaining = 1;
+        int numCycles = 0;
+        long edgesScanned = 0;
+        boolean negativeCycle = false;
+        int cycleVertex = ShortestPaths.NO_PREDECESSOR;
+
+        while (size > 0 && !negativeCycle)
+        {
+            int u = queue[head];
+            head = head + 1 == vertexCount ? 0 : head + 1;
+            size --;
+            inQueue[u >>> 6] &= ~(1L << u);
+
+            int end = offsets[u + 1];
+            edgesScanned += end - offsets[u];
+            for (int e = offsets[u]; e < end; e ++)
+            {
+                int v = targets[e];
+                if (edgeEvents)
+                {
+                    listener.edgeScanned(u, v, e);
+                }
+                long currDist = (long) shortestPath[u] + weights[e]; // Computed in long so it cannot wrap.
+                saturated |= Distances.saturates(currDist); // The true distance does not fit in an int distance.
+                if (currDist < shortestPath[v])
+                {
+                    shortestPath[v] = Distances.clamp(currDist);
+                    predecessorLinks[v] = ShortestPaths.link(u, e);
+                    relaxCount[v] = relaxCount[u] + 1;
+                    if (listening)
+                    {
+                        meter.improved(v);
+                        if (edgeEvents)
+                        {
+                            listener.distanceImproved(u, v, e, shortestPath[v]);
+                        }
+                    }
+                    if (relaxCount[v] >= vertexCount)
+                    {
+                        negativeCycle = true;
+                        cycleVertex = v;
+                    }
+                    else if ((inQueue[v >>> 6] & (1L << v)) == 0)
+                    {
+                        int tail = head + size;
+                        queue[tail >= vertexCount ? tail - vertexCount : tail] = v;
+                        size ++;
+                        inQueue[v >>> 6] |= 1L << v;
+                    }
+                }
+                if (edgeEvents)
+                {
+                    listener.edgeFinished(u, v, e);
+                }
+                if (negativeCycle)
+                {
+                    break;
+                }
+            }
+
+            passRemaining --;
+            if (passRemaining == 0)
+            {
+                numCycles ++;
+                passRemaining = size;
+                if (listening)
+                {
+                    PassMetrics metrics = meter.passCompleted(edgesScanned);
+                    listener.passCompleted(numCycles);
+                    listener.passMeasured(metrics);
+                    meter.startPass();
+                }
+            }
+        }
+
+        int[] predecessors = new int[vertexCount];
+        int[] predecessorEdges = new int[vertexCount];
+        ShortestPaths.unlink(predecessorLinks, predecessors, predecessorEdges);
+        ShortestPaths result = new ShortestPaths(src, shortestPath, predecessors, predecessorEdges, negativeCycle, numCycles, edgesScanned, saturated, cycleVertex);
+        if (listening)
+        {
+            listener.completed(result);
+        }
+        return result;
+    }
+
+    /**
+     * The scratch arrays of one run, which a caller can keep and pass to the next run on a graph of the same size.
+     */
+    static final class Workspace
+    {
+        // Number of edges on the path behind each vertex's latest relaxation.
+        final int[] relaxCount;
+        // One bit per vertex, set while the vertex is waiting in the queue.
+        final long[] inQueue;
+        // Circular queue. A vertex is never queued twice, so V slots are enough.
+        final int[] queue;
+
+        /**
+         * Allocates the scratch arrays for a graph.
+         * @param vertexCount The number of vertices in the graph.
+         */
+        Workspace(int vertexCount)
+        {
+            relaxCount = new int[vertexCount];
+            inQueue = new long[(vertexCount + 63) >>> 6];
+            queue = new int[vertexCount];
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package bellman.ford;
+
+/**
+ * Receives callbacks from a shortest path engine while it runs.
+ * Engines only invoke a listener when one is supplied, so headless runs pay nothing for it.
+ * Every method has an empty default so an implementation only overrides what it needs.
+ */
+public interface RelaxationListener
+{
+    /**
+     * Tells the engine whether to call edgeScanned, distanceImproved and edgeFinished. A listener that
+     * only needs the per-pass callbacks returns false, so the engine's inner loop runs at headless speed.
+     * @return True to receive the per-edge callbacks.
+     */
+    default boolean wantsEdgeEvents()
+    {
+        return true;
+    }
+
+    /**
+     * Called once before the first pass, after the source distance has been set to 0.
+     * @param src The source vertex.
+     */
+    default void started(int src)
+    {
+    }
+
+    /**
+     * Called when an edge is about to be relaxed.
+     * @param from The source vertex of the edge.
+     * @param to The destination vertex of the edge.
+     * @param edge The CSR index of the edge.
+     */
+    default void edgeScanned(int from, int to, int edge)
+    {
+    }
+
+    /**
+     * Called when relaxing an edge found a shorter path to its destination.
+     * @param from The source vertex of the edge.
+     * @param to The destination vertex of the edge.
+     * @param edge The CSR index of the edge.
+     * @param distance The new shortest known distance to the destination.
+     */
+    default void distanceImproved(int from, int to, int edge, int distance)
+    {
+    }
+
+    /**
+     * Called when the engine is finished with an edge for the current pass.
+     * @param from The source vertex of the edge.
+     * @param to The destination vertex of the edge.
+     * @param edge The CSR index of the edge.
+     */
+    default void edgeFinished(int from, int to, int edge)
+    {
+    }
+
+    /**
+     * Called at the end of every pass over the edges.
+     * @param pass The number of passes completed so far.
+     */
+    default void passCompleted(int pass)
+    {
+    }
+
+    /**
+     * Called at the end of every pass, just after passCompleted, with the counters of the pass.
+     * @param metrics The edges scanned, relaxations, vertices changed, wall time and allocation of the pass.
+     */
+    default void passMeasured(PassMetrics metrics)
+    {
+    }
+
+    /**
+     * Called once when the engine returns.
+     * @param result The final result of the run.
+     */
+    default void completed(ShortestPaths result)
+    {
+    }
+}
@@ -0,0 +1,306 @@
+package bellman.ford;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Replays a trace file written by TraceRecorder.
+ * The file is memory-mapped. The distances at the start of any pass are found by copying the nearest
+ * earlier checkpoint and replaying at most one checkpoint interval of passes, and a single pass can be
+ * applied forwards or undone backwards, so a viewer can seek and scrub in either direction.
+ * A trace is not thread-safe; each thread should open its own.
+ */
+public class RelaxationTrace
+{
+    private final CompactGraph graph;
+    private final MappedByteBuffer data;
+    private final int vertexCount;
+    private final int source;
+    private final int checkpointInterval;
+    // The file offset of each pass block.
+    private final long[] passOffsets;
+    // Reused for undoing a pass, which has to decode its records before applying them in reverse.
+    private int[] edgeScratch = new int[64];
+    private long[] deltaScratch = new long[64];
+    // The file offset the next varint is read from.
+    private int cursor;
+
+    /**
+     * Constructs a trace over a mapped file.
+     */
+    private RelaxationTrace(CompactGraph graph, MappedByteBuffer data, int source, int checkpointInterval, long[] passOffsets)
+    {
+        this.graph = graph;
+        this.data = data;
+        this.vertexCount = graph.getSize();
+        this.source = source;
+        this.checkpointInterval = checkpointInterval;
+        this.passOffsets = passOffsets;
+    }
+
+    /**
+     * Opens a trace file recorded on a graph.
+     * @param path The trace file.
+     * @param graph The graph the trace was recorded on.
+     * @return The trace.
+     * @throws IOException If the file can't be read, isn't a trace, or was recorded on a different graph.
+     */
+    public static RelaxationTrace open(Path path, CompactGraph graph) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException(path + ": traces larger than 2 GB are not supported");
+            }
+            if (size < TraceRecorder.HEADER_BYTES + 12)
+            {
+                throw new IOException(path + ": too short to be a trace file");
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (data.getInt(0) != TraceRecorder.MAGIC)
+            {
+                throw new IOException(path + ": not a trace file");
+            }
+            if (data.getInt(4) != TraceRecorder.VERSION)
+            {
+                throw new IOException(path + ": unsupported trace version " + data.getInt(4));
+            }
+            if (data.getInt(8) != graph.getSize() || data.getInt(12) != graph.getEdgeCount() || data.getLong(16) != graph.version())
+            {
+                throw new IOException(path + ": recorded on a different graph");
+            }
+            int source = data.getInt(24);
+            int checkpointInterval = data.getInt(28);
+
+            long footer = data.getLong((int) size - 8);
+            if (footer < TraceRecorder.HEADER_BYTES || footer > size - 12)
+            {
+                throw new IOException(path + ": corrupt footer");
+            }
+            int passCount = data.getInt((int) footer);
+            if (passCount < 0 || footer + 4 + 8L * passCount + 8 != size)
+            {
+                throw new IOException(path + ": corrupt footer");
+            }
+            long[] passOffsets = new long[passCount];
+            for (int p = 0; p < passCount; p ++)
+            {
+                passOffsets[p] = data.getLong((int) footer + 4 + 8 * p);
+            }
+            return new RelaxationTrace(graph, data, source, checkpointInterval, passOffsets);
+        }
+    }
+
+    /**
+     * Returns the source vertex of the recorded run.
+     * @return The source vertex.
+     */
+    public int getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the number of vertices in the recorded graph.
+     * @return The number of vertices.
+     */
+    public int getVertexCount()
+    {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the number of recorded passes.
+     * @return The pass count.
+     */
+    public int getPassCount()
+    {
+        return passOffsets.length;
+    }
+
+    /**
+     * Returns the number of distance improvements recorded in a pass.
+     * @param pass The pass, from 0 to getPassCount() - 1.
+     * @return The record count.
+     */
+    public int recordCount(int pass)
+    {
+        cursor = recordsOffset(pass);
+        return (int) readVarint();
+    }
+
+    /**
+     * Lists the edges that improved a distance in a pass, without applying them.
+     * @param pass The pass, from 0 to getPassCount() - 1.
+     * @param edges Receives the CSR index of each improving edge in order; must hold recordCount(pass) entries.
+     * @return The number of edges listed.
+     */
+    public int edgesOf(int pass, int[] edges)
+    {
+        checkPass(pass, getPassCount() - 1);
+        cursor = recordsOffset(pass);
+        int count = (int) readVarint();
+        int edge = 0;
+        for (int i = 0; i < count; i ++)
+        {
+            edge += (int) unzigzag(readVarint());
+            readVarint();
+            edges[i] = edge;
+        }
+        return count;
+    }
+
+    /**
+     * Fills in the distances at the start of a pass.
+     * @param pass The pass, from 0 to getPassCount(); getPassCount() gives the final distances.
+     * @param distances Receives the distance of every vertex.
+     */
+    public void seek(int pass, int[] distances)
+    {
+        checkPass(pass, getPassCount());
+        if (getPassCount() == 0)
+        {
+            Arrays.fill(distances, ShortestPaths.INFINITY);
+            distances[source] = 0;
+            return;
+        }
+        // The last pass may have no checkpoint block after it, so start from the one before.
+        int checkpoint = Math.min(pass, getPassCount() - 1) / checkpointInterval * checkpointInterval;
+        int offset = (int) passOffsets[checkpoint];
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            distances[v] = data.getInt(offset + 4 * v);
+        }
+        for (int p = checkpoint; p < pass; p ++)
+        {
+            forward(p, distances, null);
+        }
+    }
+
+    /**
+     * Applies the improvements of a pass, turning the distances at its start into the distances at its end.
+     * @param pass The pass, from 0 to getPassCount() - 1.
+     * @param distances The distances at the start of the pass, updated in place.
+     * @param edges Receives the CSR index of each improving edge in order, or null; must hold recordCount(pass) entries.
+     * @return The number of improvements applied.
+     */
+    public int forward(int pass, int[] distances, int[] edges)
+    {
+        checkPass(pass, getPassCount() - 1);
+        cursor = recordsOffset(pass);
+        int count = (int) readVarint();
+        int edge = 0;
+        for (int i = 0; i < count; i ++)
+        {
+            edge += (int) unzigzag(readVarint());
+            int to = graph.target(edge);
+            distances[to] = (int) (distances[to] + unzigzag(readVarint()));
+            if (edges != null)
+            {
+                edges[i] = edge;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Undoes the improvements of a pass, turning the distances at its end into the distances at its start.
+     * @param pass The pass, from 0 to getPassCount() - 1.
+     * @param distances The distances at the end of the pass, updated in place.
+     * @param edges Receives the CSR index of each improving edge in recorded order, or null; must hold recordCount(pass) entries.
+     * @return The number of improvements undone.
+     */
+    public int backward(int pass, int[] distances, int[] edges)
+    {
+        checkPass(pass, getPassCount() - 1);
+        cursor = recordsOffset(pass);
+        int count = (int) readVarint();
+        if (edgeScratch.length < count)
+        {
+            edgeScratch = new int[Math.max(count, edgeScratch.length * 2)];
+            deltaScratch = new long[edgeScratch.length];
+        }
+        int edge = 0;
+        for (int i = 0; i < count; i ++)
+        {
+            edge += (int) unzigzag(readVarint());
+            edgeScratch[i] = edge;
+            deltaScratch[i] = unzigzag(readVarint());
+        }
+        // Undo in reverse, so a vertex improved twice in the pass goes back through its middle value.
+        for (int i = count - 1; i >= 0; i --)
+        {
+            int to = graph.target(edgeScratch[i]);
+            distances[to] = (int) (distances[to] - deltaScratch[i]);
+        }
+        if (edges != null)
+        {
+            System.arraycopy(edgeScratch, 0, edges, 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the file offset of a pass's record count, just after its checkpoint if it has one.
+     * @param pass The pass.
+     * @return The file offset.
+     */
+    private int recordsOffset(int pass)
+    {
+        int offset = (int) passOffsets[pass];
+        if (pass % checkpointInterval == 0)
+        {
+            offset += 4 * vertexCount;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads an unsigned varint written by TraceRecorder.putVarint at the cursor, and moves the cursor past it.
+     * @return The value.
+     */
+    private long readVarint()
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = data.get(cursor ++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Reverses TraceRecorder.zigzag.
+     * @param value The zigzag encoded value.
+     * @return The signed value.
+     */
+    private static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Checks that a pass number is in range.
+     * @param pass The pass.
+     * @param max The largest allowed pass.
+     */
+    private static void checkPass(int pass, int max)
+    {
+        if (pass < 0 || pass > max)
+        {
+            throw new IndexOutOfBoundsException("Pass " + pass + " is outside 0.." + max);
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package bellman.ford;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A graph kept on disk for ExternalBellmanFord, split by source vertex into blocks of blockVertices
+ * consecutive vertices. Each block's out-edges live in their own segment file as (source, target, weight)
+ * int triples, so a pass reads one segment front to back for each block it needs and never reads the
+ * edges of a block it skips. Nothing but a fixed number of buffers is ever held on the heap.
+ *
+ * A directory holds an index file (the int MAGIC, the int VERSION, the vertex count, blockVertices and the
+ * long edge count, little-endian) and one segment-NNNNN.edges file per block. Build one with partition
+ * from a binary graph file, or with create and any generator, since Writer accepts edges in any order.
+ */
+public final class SegmentedGraph
+{
+    // "BFX1" in ASCII, marking a segmented graph index.
+    static final int MAGIC = 0x31584642;
+    static final int VERSION = 1;
+    static final String INDEX_FILE = "index";
+    private static final int INDEX_BYTES = 24;
+    // Bytes per edge in a segment: source, target and weight.
+    static final int EDGE_BYTES = 12;
+    // Size of each block's write buffer in Writer.
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final Path directory;
+    private final int vertexes;
+    private final int blockVertices;
+    private final long edgeCount;
+
+    private SegmentedGraph(Path directory, int vertexes, int blockVertices, long edgeCount)
+    {
+        this.directory = directory;
+        this.vertexes = vertexes;
+        this.blockVertices = blockVertices;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Opens a segmented graph written earlier.
+     * @param directory The graph's directory.
+     * @return The graph.
+     * @throws IOException If the index can't be read or is not a segmented graph index.
+     */
+    public static SegmentedGraph open(Path directory) throws IOException
+    {
+        Path index = directory.resolve(INDEX_FILE);
+        ByteBuffer header = ByteBuffer.allocate(INDEX_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ))
+        {
+            int read = 0;
+            while (header.hasRemaining() && read >= 0)
+            {
+                read = channel.read(header);
+            }
+        }
+        header.flip();
+        if (header.remaining() < INDEX_BYTES || header.getInt() != MAGIC)
+        {
+            throw new IOException(index + ": not a segmented graph index");
+        }
+        int version = header.getInt();
+        if (version != VERSION)
+        {
+            throw new IOException(index + ": unsupported segmented graph version " + version);
+        }
+        int vertexes = header.getInt();
+        int blockVertices = header.getInt();
+        long edgeCount = header.getLong();
+        if (vertexes < 0 || blockVertices < 1 || edgeCount < 0)
+        {
+            throw new IOException(index + ": corrupt index");
+        }
+        return new SegmentedGraph(directory, vertexes, blockVertices, edgeCount);
+    }
+
+    /**
+     * Starts writing a segmented graph.
+     * @param directory The directory to write, created if needed. Existing segments in it are replaced.
+     * @param vertexes The number of vertices.
+     * @param blockVertices The number of vertices per block. A block's distances are what a pass keeps
+     *        mapped while it streams the block's segment, so this bounds the working set.
+     * @return A writer; the graph is complete once it is closed.
+     * @throws IOException If the directory or the segment files can't be created.
+     */
+    public static Writer create(Path directory, int vertexes, int blockVertices) throws IOException
+    {
+        return new Writer(directory, vertexes, blockVertices);
+    }
+
+    /**
+     * Partitions a file in GraphLoader's binary format into a segmented graph, streaming it through mapped
+     * chunks so the graph never has to fit in memory.
+     * @param graphFile The binary graph file.
+     * @param directory The directory to write, created if needed.
+     * @param blockVertices The number of vertices per block.
+     * @return The segmented graph.
+     * @throws IOException If the file can't be read, is not a binary graph file or is corrupt, or the segments can't be written.
+     */
+    public static SegmentedGraph partition(Path graphFile, Path directory, int blockVertices) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(graphFile, StandardOpenOption.READ))
+        {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GraphLoader.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != GraphLoader.MAGIC || header.getInt() != GraphLoader.VERSION)
+            {
+                throw new IOException(graphFile + ": not a binary graph file");
+            }
+            int vertexes = header.getInt();
+            int edges = header.getInt();
+            long targetsAt = GraphLoader.HEADER_BYTES + 4L * (vertexes + 1);
+            if (vertexes < 0 || edges < 0 || channel.size() != targetsAt + 8L * edges)
+            {
+                throw new IOException(graphFile + ": size does not match a graph of " + vertexes + " vertices and " + edges + " edges");
+            }
+            // Checked in full before any segment is written, so a corrupt file can't leave a segmented graph behind.
+            checkLayout(graphFile, channel, vertexes, edges, targetsAt);
+            IntReader offsets = new IntReader(channel, GraphLoader.HEADER_BYTES, vertexes + 1L);
+            IntReader targets = new IntReader(channel, targetsAt, edges);
+            IntReader weights = new IntReader(channel, targetsAt + 4L * edges, edges);
+            try (Writer writer = create(directory, vertexes, blockVertices))
+            {
+                int end = offsets.next();
+                for (int u = 0; u < vertexes; u ++)
+                {
+                    int start = end;
+                    end = offsets.next();
+                    for (int e = start; e < end; e ++)
+                    {
+                        writer.edge(u, targets.next(), weights.next());
+                    }
+                }
+            }
+        }
+        return open(directory);
+    }
+
+    /**
+     * Checks the offsets and targets of a binary graph file the same way GraphLoader.readBinary does:
+     * offsets start at 0, never decrease and end at the edge count, and every target is a vertex.
+     * @param graphFile The file, for error messages.
+     * @param channel The open file.
+     * @param vertexes The number of vertices in the header.
+     * @param edges The number of edges in the header.
+     * @param targetsAt The byte position of the first target.
+     * @throws IOException If the file can't be read or the offsets or targets are corrupt.
+     */
+    private static void checkLayout(Path graphFile, FileChannel channel, int vertexes, int edges, long targetsAt) throws IOException
+    {
+        IntReader offsets = new IntReader(channel, GraphLoader.HEADER_BYTES, vertexes + 1L);
+        int previous = offsets.next();
+        if (previous != 0)
+        {
+            throw new IOException(graphFile + ": corrupt offsets");
+        }
+        for (int u = 0; u < vertexes; u ++)
+        {
+            int next = offsets.next();
+            if (next < previous)
+            {
+                throw new IOException(graphFile + ": corrupt offsets, vertex " + u + " ends before it starts");
+            }
+            previous = next;
+        }
+        if (previous != edges)
+        {
+            throw new IOException(graphFile + ": corrupt offsets");
+        }
+        IntReader targets = new IntReader(channel, targetsAt, edges);
+        for (int e = 0; e < edges; e ++)
+        {
+            int v = targets.next();
+            if (v < 0 || v >= vertexes)
+            {
+                throw new IOException(graphFile + ": corrupt targets, edge " + e + " leads to vertex " + v);
+            }
+        }
+    }
+
+    /**
+     * Returns the directory holding the graph.
+     * @return The directory.
+     */
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Returns the total number of vertices in the graph.
+     * @return The number of vertices.
+     */
+    public int getSize()
+    {
+        return vertexes;
+    }
+
+    /**
+     * Returns the total number of edges in the graph.
+     * @return The number of edges.
+     */
+    public long getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the number of vertices per block; the last block may have fewer.
+     * @return The block size.
+     */
+    public int getBlockVertices()
+    {
+        return blockVertices;
+    }
+
+    /**
+     * Returns the number of blocks.
+     * @return The block count.
+     */
+    public int getBlockCount()
+    {
+        return blockCount(vertexes, blockVertices);
+    }
+
+    /**
+     * Returns the block a vertex belongs to.
+     * @param v The vertex.
+     * @return The block index.
+     */
+    public int blockOf(int v)
+    {
+        return v / blockVertices;
+    }
+
+    /**
+     * Returns the first vertex of a block.
+     * @param block The block index.
+     * @return The vertex.
+     */
+    public int blockStart(int block)
+    {
+        return block * blockVertices;
+    }
+
+    /**
+     * Returns one past the last vertex of a block.
+     * @param block The block index.
+     * @return The exclusive end vertex.
+     */
+    public int blockEnd(int block)
+    {
+        return (int) Math.min(vertexes, (long) (block + 1) * blockVertices);
+    }
+
+    /**
+     * Returns the segment file holding a block's out-edges.
+     * @param block The block index.
+     * @return The file path.
+     */
+    public Path segment(int block)
+    {
+        return segment(directory, block);
+    }
+
+    private static Path segment(Path directory, int block)
+    {
+        return directory.resolve(String.format("segment-%05d.edges", block));
+    }
+
+    private static int blockCount(int vertexes, int blockVertices)
+    {
+        return (int) ((vertexes + (long) blockVertices - 1) / blockVertices);
+    }
+
+    /**
+     * Writes the edges of a segmented graph. Unlike the other sinks it takes edges in any order: each
+     * edge is appended to its source block's buffer, and a full buffer is appended to the block's segment.
+     * Memory use is one 64 KB buffer per block.
+     */
+    public static final class Writer implements EdgeSink, Closeable
+    {
+        private final Path directory;
+        private final int vertexes;
+        private final int blockVertices;
+        private final FileChannel[] segments;
+        private final ByteBuffer[] buffers;
+        private long edgeCount;
+        private boolean closed;
+
+        private Writer(Path directory, int vertexes, int blockVertices) throws IOException
+        {
+            if (vertexes < 0 || blockVertices < 1)
+            {
+                throw new IllegalArgumentException("Bad segmented graph size: " + vertexes + " vertices in blocks of " + blockVertices);
+            }
+            this.directory = directory;
+            this.vertexes = vertexes;
+            this.blockVertices = blockVertices;
+            Files.createDirectories(directory);
+            int blocks = blockCount(vertexes, blockVertices);
+            segments = new FileChannel[blocks];
+            buffers = new ByteBuffer[blocks];
+            for (int b = 0; b < blocks; b ++)
+            {
+                segments[b] = FileChannel.open(segment(directory, b), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                buffers[b] = ByteBuffer.allocateDirect(BUFFER_BYTES - BUFFER_BYTES % EDGE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        @Override
+        public void edge(int u, int v, int w)
+        {
+            if (u < 0 || u >= vertexes || v < 0 || v >= vertexes)
+            {
+                throw new IndexOutOfBoundsException("Edge " + u + "->" + v + " is outside a graph of " + vertexes + " vertices");
+            }
+            int block = u / blockVertices;
+            ByteBuffer buffer = buffers[block];
+            if (!buffer.hasRemaining())
+            {
+                flush(block);
+            }
+            buffer.putInt(u).putInt(v).putInt(w);
+            edgeCount ++;
+        }
+
+        /**
+         * Writes the buffered edges and the index.
+         * @throws IOException If the files can't be written.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            try
+            {
+                for (int b = 0; b < segments.length; b ++)
+                {
+                    flush(b);
+                }
+            }
+            catch (UncheckedIOException e)
+            {
+                throw e.getCause();
+            }
+            finally
+            {
+                for (FileChannel segment : segments)
+                {
+                    segment.close();
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(INDEX_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(vertexes).putInt(blockVertices).putLong(edgeCount);
+            header.flip();
+            try (FileChannel index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                while (header.hasRemaining())
+                {
+                    index.write(header);
+                }
+            }
+        }
+
+        /**
+         * Appends a block's buffered edges to its segment.
+         * @param block The block index.
+         */
+        private void flush(int block)
+        {
+            ByteBuffer buffer = buffers[block];
+            buffer.flip();
+            try
+            {
+                while (buffer.hasRemaining())
+                {
+                    segments[block].write(buffer);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads ints from a region of a file front to back, mapping it one chunk at a time and copying from
+     * the chunk into arrays in bulk, so a scan works on plain int arrays.
+     */
+    static final class IntReader
+    {
+        // Largest region mapped at once, a whole number of 12 byte records so a record never straddles two chunks.
+        private static final long MAP_CHUNK_BYTES = 12L << 24;
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+        private IntBuffer chunk;
+        // Staging for next.
+        private int[] buffer;
+        private int index;
+        private int filled;
+
+        /**
+         * Creates a reader over a region.
+         * @param channel The file.
+         * @param position The byte position of the first int.
+         * @param count The number of ints to read.
+         */
+        IntReader(FileChannel channel, long position, long count)
+        {
+            this.channel = channel;
+            this.position = position;
+            remaining = count;
+        }
+
+        /**
+         * Reads the next int. Callers must not read past the region.
+         * @return The int.
+         * @throws IOException If the file can't be mapped.
+         */
+        int next() throws IOException
+        {
+            if (index == filled)
+            {
+                if (buffer == null)
+                {
+                    buffer = new int[1 << 14];
+                }
+                filled = read(buffer);
+                index = 0;
+            }
+            return buffer[index ++];
+        }
+
+        /**
+         * Copies the next ints into an array, mapping the next chunk when the current one is used up.
+         * When the region is made of 3 int records and the array's length is a multiple of 3, every read
+         * returns whole records.
+         * @param into The array to fill from the start.
+         * @return The number of ints copied, 0 at the end of the region.
+         * @throws IOException If the file can't be mapped.
+         */
+        int read(int[] into) throws IOException
+        {
+            if (chunk == null || !chunk.hasRemaining())
+            {
+                if (remaining == 0)
+                {
+                    return 0;
+                }
+                long bytes = Math.min(4 * remaining, MAP_CHUNK_BYTES);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+                chunk = mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                position += bytes;
+                remaining -= bytes / 4;
+            }
+            int count = Math.min(into.length, chunk.remaining());
+            chunk.get(into, 0, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package bellman.ford;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe least-recently-used cache of shortest path results, keyed by graph version
+ * (CompactGraph.version) and source vertex. Once the cache is full, adding a result evicts the one
+ * that was used longest ago. Each result holds three int arrays of V entries (distances, predecessors
+ * and predecessor edges), so the capacity bounds the memory to about capacity * 12V bytes.
+ * Cached results are shared between callers and must not be modified.
+ */
+public class ShortestPathCache
+{
+    private final int capacity;
+    // Access-ordered, so iteration starts at the least recently used entry.
+    private final LinkedHashMap<Key, ShortestPaths> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructs an empty cache.
+     * @param capacity The maximum number of results kept.
+     */
+    public ShortestPathCache(int capacity)
+    {
+        if (capacity < 0)
+        {
+            throw new IllegalArgumentException("Capacity must not be negative, got " + capacity);
+        }
+        this.capacity = capacity;
+        entries = new LinkedHashMap<Key, ShortestPaths>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ShortestPaths> eldest)
+            {
+                return size() > ShortestPathCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up a result and marks it as recently used.
+     * @param graphVersion The graph version.
+     * @param source The source vertex.
+     * @return The cached result, or null if there is none.
+     */
+    public synchronized ShortestPaths get(long graphVersion, int source)
+    {
+        ShortestPaths result = entries.get(new Key(graphVersion, source));
+        if (result == null)
+        {
+            misses ++;
+        }
+        else
+        {
+            hits ++;
+        }
+        return result;
+    }
+
+    /**
+     * Adds a result, evicting the least recently used one if the cache is full.
+     * @param graphVersion The graph version.
+     * @param result The result; its source is part of the key.
+     */
+    public synchronized void put(long graphVersion, ShortestPaths result)
+    {
+        if (capacity > 0)
+        {
+            entries.put(new Key(graphVersion, result.getSource()), result);
+        }
+    }
+
+    /**
+     * Returns the number of cached results.
+     * @return The entry count.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a result.
+     * @return The hit count.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that found nothing.
+     * @return The miss count.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    /**
+     * A cache key: a graph version and a source vertex.
+     */
+    private static final class Key
+    {
+        private final long graphVersion;
+        private final int source;
+
+        Key(long graphVersion, int source)
+        {
+            this.graphVersion = graphVersion;
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) other;
+            return graphVersion == key.graphVersion && source == key.source;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode(graphVersion) * 31 + source;
+        }
+    }
+}
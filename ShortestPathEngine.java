@@ -0,0 +1,19 @@
+package bellman.ford;
+
+/**
+ * A single-source shortest path algorithm that runs on a CompactGraph.
+ * Engines are interchangeable, so callers can pick one per input, for example
+ * BellmanFordSolver::solve for small dense graphs or QueueBellmanFord::solve for large sparse graphs.
+ */
+@FunctionalInterface
+public interface ShortestPathEngine
+{
+    /**
+     * Finds the shortest path from a source vertex to all other vertices.
+     * @param graph The graph to search.
+     * @param src The source vertex.
+     * @param listener The listener to notify of each relaxation, or null to run headless.
+     * @return The distances, predecessors and negative cycle status.
+     */
+    ShortestPaths solve(CompactGraph graph, int src, RelaxationListener listener);
+}
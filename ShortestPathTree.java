@@ -0,0 +1,157 @@
+package bellman.ford;
+
+/**
+ * The shortest path tree of a run: every reachable vertex hangs from its predecessor by the edge its
+ * shortest path arrives on. Each vertex's parent and parent edge are shared with the ShortestPaths
+ * result, and the children are stored like CompactGraph's out-edges: childStart and childEnd give a
+ * vertex's range in one array, so the whole tree takes 2V + 1 extra ints.
+ */
+public final class ShortestPathTree
+{
+    private final int root;
+    private final int[] parents;
+    private final int[] parentEdges;
+    // childOffsets[v] to childOffsets[v + 1] is the range of v's children in children.
+    private final int[] childOffsets;
+    private final int[] children;
+
+    /**
+     * Builds the child lists from the predecessors with a counting sort, in O(V).
+     * @param root The source vertex.
+     * @param parents The predecessor of each vertex.
+     * @param parentEdges The edge from each vertex's predecessor to it.
+     */
+    ShortestPathTree(int root, int[] parents, int[] parentEdges)
+    {
+        int vertexCount = parents.length;
+        this.root = root;
+        this.parents = parents;
+        this.parentEdges = parentEdges;
+        childOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            if (parents[v] != ShortestPaths.NO_PREDECESSOR)
+            {
+                childOffsets[parents[v] + 1] ++;
+            }
+        }
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            childOffsets[v + 1] += childOffsets[v];
+        }
+        children = new int[childOffsets[vertexCount]];
+        int[] next = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            int parent = parents[v];
+            if (parent != ShortestPaths.NO_PREDECESSOR)
+            {
+                children[childOffsets[parent] + next[parent] ++] = v;
+            }
+        }
+    }
+
+    /**
+     * Returns the root of the tree, the source of the run.
+     * @return The root vertex.
+     */
+    public int getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Returns the number of vertices in the tree, which is the number reachable from the root.
+     * @return The vertex count.
+     */
+    public int size()
+    {
+        return children.length + 1;
+    }
+
+    /**
+     * Returns whether a vertex is in the tree.
+     * @param v The vertex.
+     * @return True if the vertex is reachable from the root.
+     */
+    public boolean contains(int v)
+    {
+        return v == root || parents[v] != ShortestPaths.NO_PREDECESSOR;
+    }
+
+    /**
+     * Returns the parent of a vertex.
+     * @param v The vertex.
+     * @return The parent, or ShortestPaths.NO_PREDECESSOR for the root and vertices outside the tree.
+     */
+    public int parent(int v)
+    {
+        return parents[v];
+    }
+
+    /**
+     * Returns the edge from a vertex's parent to the vertex.
+     * @param v The vertex.
+     * @return The CSR index of the edge, or ShortestPaths.NO_PREDECESSOR for the root and vertices outside the tree.
+     */
+    public int parentEdge(int v)
+    {
+        return parentEdges[v];
+    }
+
+    /**
+     * Returns the position of a vertex's first child.
+     * @param v The vertex.
+     * @return The first index to pass to child.
+     */
+    public int childStart(int v)
+    {
+        return childOffsets[v];
+    }
+
+    /**
+     * Returns the position one past a vertex's last child.
+     * @param v The vertex.
+     * @return The exclusive end index to pass to child.
+     */
+    public int childEnd(int v)
+    {
+        return childOffsets[v + 1];
+    }
+
+    /**
+     * Returns a child by position.
+     * @param index A position from childStart(v) to childEnd(v) - 1.
+     * @return The child vertex.
+     */
+    public int child(int index)
+    {
+        return children[index];
+    }
+
+    /**
+     * Returns the edges of the tree path from the root to a vertex, in path order, in time proportional to its length.
+     * @param v The destination vertex.
+     * @return The CSR edge indexes along the path, an empty array for the root, or null if the vertex is not in the tree.
+     */
+    public int[] pathTo(int v)
+    {
+        if (!contains(v))
+        {
+            return null;
+        }
+        int length = 0;
+        for (int u = v; u != root; u = parents[u])
+        {
+            length ++;
+        }
+        int[] path = new int[length];
+        int u = v;
+        for (int i = length - 1; i >= 0; i --)
+        {
+            path[i] = parentEdges[u];
+            u = parents[u];
+        }
+        return path;
+    }
+}
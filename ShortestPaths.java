@@ -0,0 +1,229 @@
+package bellman.ford;
+
+/**
+ * Holds the result of a single-source shortest path run: the distance to every vertex,
+ * the predecessor of every vertex on its shortest path and the edge it arrived by, and whether a negative cycle was found.
+ * pathTo follows the predecessor edges back from a vertex, and tree builds the whole shortest path tree.
+ * When one was, NegativeCycle.find extracts the cycle and the vertices whose distance is unbounded.
+ */
+public final class ShortestPaths
+{
+    // Marks an unreachable vertex in the distance array.
+    public static final int INFINITY = Integer.MAX_VALUE;
+    // Marks a vertex with no predecessor (the source, or an unreachable vertex).
+    public static final int NO_PREDECESSOR = -1;
+    // The packed predecessor link of a vertex with no predecessor, see link.
+    static final long NO_LINK = link(NO_PREDECESSOR, NO_PREDECESSOR);
+
+    private final int source;
+    private final int[] distances;
+    private final int[] predecessors;
+    private final int[] predecessorEdges;
+    private final boolean negativeCycle;
+    private final int passes;
+    private final long edgesScanned;
+    private final boolean saturated;
+    private final int cycleVertex;
+
+    /**
+     * Constructs a result. The arrays are not copied.
+     * @param source The source vertex.
+     * @param distances The shortest distance to each vertex.
+     * @param predecessors The predecessor of each vertex.
+     * @param predecessorEdges The CSR index of the edge from each vertex's predecessor to it.
+     * @param negativeCycle True if a negative cycle is reachable from the source.
+     * @param passes The number of passes the engine ran.
+     * @param edgesScanned The number of edge relaxations the engine attempted.
+     * @param saturated True if a candidate distance fell outside the int range.
+     * @param cycleVertex A vertex relaxed in the pass that detected the negative cycle, or NO_PREDECESSOR if the engine doesn't track one.
+     */
+    ShortestPaths(int source, int[] distances, int[] predecessors, int[] predecessorEdges, boolean negativeCycle, int passes, long edgesScanned, boolean saturated, int cycleVertex)
+    {
+        this.source = source;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        this.predecessorEdges = predecessorEdges;
+        this.negativeCycle = negativeCycle;
+        this.passes = passes;
+        this.edgesScanned = edgesScanned;
+        this.saturated = saturated;
+        this.cycleVertex = cycleVertex;
+    }
+
+    /**
+     * Looks up the predecessor vertices from the predecessor edges, for engines that can only record the edge.
+     * Each lookup is a binary search, so this takes O(V log V).
+     * @param graph The graph the run was on.
+     * @param predecessorEdges The edge each vertex's shortest path arrives by, or NO_PREDECESSOR.
+     * @return The source vertex of each of those edges, or NO_PREDECESSOR.
+     */
+    static int[] predecessorsOf(CompactGraph graph, int[] predecessorEdges)
+    {
+        int[] predecessors = new int[predecessorEdges.length];
+        for (int v = 0; v < predecessors.length; v ++)
+        {
+            int edge = predecessorEdges[v];
+            predecessors[v] = edge == ShortestPaths.NO_PREDECESSOR ? ShortestPaths.NO_PREDECESSOR : graph.source(edge);
+        }
+        return predecessors;
+    }
+
+    /**
+     * Packs a predecessor and the edge from it into one long, so an engine records both with a single write.
+     * @param predecessor The predecessor vertex, stored in the high 32 bits.
+     * @param edge The CSR index of the edge, stored in the low 32 bits.
+     * @return The packed link.
+     */
+    static long link(int predecessor, int edge)
+    {
+        return ((long) predecessor << 32) | (edge & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Splits packed predecessor links into the predecessor and predecessor edge arrays of a result.
+     * @param links The packed link of each vertex.
+     * @param predecessors Receives the predecessor of each vertex.
+     * @param predecessorEdges Receives the predecessor edge of each vertex.
+     */
+    static void unlink(long[] links, int[] predecessors, int[] predecessorEdges)
+    {
+        for (int v = 0; v < links.length; v ++)
+        {
+            predecessors[v] = (int) (links[v] >> 32);
+            predecessorEdges[v] = (int) links[v];
+        }
+    }
+
+    /**
+     * Returns the source vertex of the run.
+     * @return The source vertex.
+     */
+    public int getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the shortest distance to each vertex, or INFINITY for unreachable vertices.
+     * The distances are not meaningful when a negative cycle was found.
+     * @return The distance array.
+     */
+    public int[] getDistances()
+    {
+        return distances;
+    }
+
+    /**
+     * Returns the predecessor of each vertex on its shortest path, or NO_PREDECESSOR.
+     * @return The predecessor array.
+     */
+    public int[] getPredecessors()
+    {
+        return predecessors;
+    }
+
+    /**
+     * Returns the edge each vertex's shortest path arrives by, or NO_PREDECESSOR.
+     * @return The CSR index of the last edge on each vertex's shortest path.
+     */
+    public int[] getPredecessorEdges()
+    {
+        return predecessorEdges;
+    }
+
+    /**
+     * Returns the edges of the shortest path from the source to a vertex, in path order.
+     * The path is read from the predecessor edges, so this takes time proportional to its length.
+     * @param v The destination vertex.
+     * @return The CSR edge indexes along the path, an empty array for the source, or null if the vertex is unreachable.
+     * @throws IllegalStateException If the path runs into a negative cycle.
+     */
+    public int[] pathTo(int v)
+    {
+        if (v != source && predecessorEdges[v] == NO_PREDECESSOR)
+        {
+            return null;
+        }
+        // Count the edges first, so the path can be filled in from the back without resizing.
+        int length = 0;
+        for (int u = v; u != source; u = predecessors[u])
+        {
+            if (predecessors[u] == NO_PREDECESSOR || length == distances.length)
+            {
+                throw new IllegalStateException("The path to " + v + " runs into a negative cycle");
+            }
+            length ++;
+        }
+        int[] path = new int[length];
+        int u = v;
+        for (int i = length - 1; i >= 0; i --)
+        {
+            path[i] = predecessorEdges[u];
+            u = predecessors[u];
+        }
+        return path;
+    }
+
+    /**
+     * Builds the shortest path tree of the run.
+     * @return The tree, rooted at the source.
+     * @throws IllegalStateException If the run found a negative cycle, since the predecessors then contain one.
+     */
+    public ShortestPathTree tree()
+    {
+        if (negativeCycle)
+        {
+            throw new IllegalStateException("A negative cycle was found, so there is no shortest path tree");
+        }
+        return new ShortestPathTree(source, predecessors, predecessorEdges);
+    }
+
+    /**
+     * Returns whether a negative cycle reachable from the source was detected.
+     * @return True if a negative cycle was found.
+     */
+    public boolean hasNegativeCycle()
+    {
+        return negativeCycle;
+    }
+
+    /**
+     * Returns the number of passes the engine ran before it stopped.
+     * @return The pass count.
+     */
+    public int getPasses()
+    {
+        return passes;
+    }
+
+    /**
+     * Returns the number of edge relaxations the engine attempted, successful or not.
+     * @return The number of edges scanned.
+     */
+    public long getEdgesScanned()
+    {
+        return edgesScanned;
+    }
+
+    /**
+     * Returns a vertex whose distance was still being lowered when the negative cycle was detected.
+     * Following predecessors back from it leads onto the cycle; NegativeCycle.find uses it as the starting point.
+     * @return The vertex, or NO_PREDECESSOR if there is no negative cycle or the engine doesn't track one.
+     */
+    public int getCycleVertex()
+    {
+        return cycleVertex;
+    }
+
+    /**
+     * Returns whether any candidate distance fell outside the int range or reached Integer.MAX_VALUE,
+     * which is INFINITY. Such distances at the top of the range are left at INFINITY and distances past
+     * the bottom are clamped to Integer.MIN_VALUE, so when this is true the result should be recomputed
+     * with LongBellmanFord.
+     * @return True if a distance did not fit in an int.
+     */
+    public boolean isSaturated()
+    {
+        return saturated;
+    }
+}
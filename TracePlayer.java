@@ -0,0 +1,155 @@
+package bellman.ford;
+
+import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.util.Arrays;
+import javax.swing.AbstractAction;
+import javax.swing.InputMap;
+import javax.swing.JComponent;
+import javax.swing.KeyStroke;
+
+/**
+ * Shows a recorded RelaxationTrace on a GraphVisualizer and lets the user scrub through it.
+ * The panel shows the distances after a chosen number of passes, with the edges that improved a distance
+ * in the last of those passes in green. Right and Left step one pass forwards or backwards, Page Down and
+ * Page Up step ten passes, and Home and End jump to the start and the end.
+ * Stepping one pass replays or undoes just that pass; longer jumps start from the nearest checkpoint.
+ * All methods must be called on the event dispatch thread.
+ */
+public class TracePlayer
+{
+    // The number of passes Page Up and Page Down move.
+    private static final int PAGE_PASSES = 10;
+
+    private final GraphVisualizer graphVisualizer;
+    private final RelaxationTrace trace;
+    // The distances after the current number of passes, and the distances the panel shows.
+    private final int[] distances;
+    private final int[] shown;
+    // The edges currently highlighted.
+    private int[] highlighted = new int[64];
+    private int highlightedCount = 0;
+    private int pass = 0;
+
+    /**
+     * Constructs a player, shows the start of the trace and binds the scrubbing keys on the panel.
+     * @param graphVisualizer The panel, drawing the graph the trace was recorded on.
+     * @param trace The trace to show.
+     */
+    public TracePlayer(GraphVisualizer graphVisualizer, RelaxationTrace trace)
+    {
+        this.graphVisualizer = graphVisualizer;
+        this.trace = trace;
+        distances = new int[trace.getVertexCount()];
+        shown = new int[trace.getVertexCount()];
+        Arrays.fill(shown, ShortestPaths.INFINITY);
+        trace.seek(0, distances);
+        show();
+
+        InputMap keys = graphVisualizer.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        bind(keys, "RIGHT", "trace-next", 1);
+        bind(keys, "LEFT", "trace-previous", -1);
+        bind(keys, "PAGE_DOWN", "trace-next-page", PAGE_PASSES);
+        bind(keys, "PAGE_UP", "trace-previous-page", -PAGE_PASSES);
+        bind(keys, "HOME", "trace-start", Integer.MIN_VALUE);
+        bind(keys, "END", "trace-end", Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of passes currently shown.
+     * @return The pass, from 0 to the trace's pass count.
+     */
+    public int getPass()
+    {
+        return pass;
+    }
+
+    /**
+     * Shows the state after a number of passes.
+     * @param target The number of passes, clamped to the length of the trace.
+     */
+    public void seek(int target)
+    {
+        target = Math.max(0, Math.min(target, trace.getPassCount()));
+        if (target == pass)
+        {
+            return;
+        }
+        if (target == pass + 1)
+        {
+            trace.forward(pass, distances, null);
+        }
+        else if (target == pass - 1)
+        {
+            trace.backward(target, distances, null);
+        }
+        else
+        {
+            trace.seek(target, distances);
+        }
+        pass = target;
+        show();
+    }
+
+    /**
+     * Updates the panel: changed distances, the edges improved in the last pass and the cycle label.
+     */
+    private void show()
+    {
+        for (int i = 0; i < highlightedCount; i ++)
+        {
+            graphVisualizer.highlightEdge(highlighted[i], Color.BLACK);
+        }
+        highlightedCount = 0;
+        if (pass > 0)
+        {
+            int count = trace.recordCount(pass - 1);
+            if (highlighted.length < count)
+            {
+                highlighted = new int[Math.max(count, highlighted.length * 2)];
+            }
+            highlightedCount = trace.edgesOf(pass - 1, highlighted);
+            for (int i = 0; i < highlightedCount; i ++)
+            {
+                graphVisualizer.highlightEdge(highlighted[i], Color.GREEN);
+            }
+        }
+
+        for (int v = 0; v < distances.length; v ++)
+        {
+            if (distances[v] != shown[v])
+            {
+                shown[v] = distances[v];
+                graphVisualizer.updateNodeDistance(v, distances[v]);
+            }
+        }
+        graphVisualizer.setCycle(pass);
+    }
+
+    /**
+     * Binds a key to a move through the trace.
+     * @param keys The panel's input map.
+     * @param key The key name, as accepted by KeyStroke.getKeyStroke.
+     * @param name The action name.
+     * @param step The number of passes to move; Integer.MIN_VALUE and MAX_VALUE jump to the start and end.
+     */
+    private void bind(InputMap keys, String key, String name, int step)
+    {
+        keys.put(KeyStroke.getKeyStroke(key), name);
+        graphVisualizer.getActionMap().put(name, new AbstractAction()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                if (step == Integer.MIN_VALUE || step == Integer.MAX_VALUE)
+                {
+                    seek(step == Integer.MIN_VALUE ? 0 : trace.getPassCount());
+                }
+                else
+                {
+                    seek(pass + step);
+                }
+            }
+        });
+    }
+}
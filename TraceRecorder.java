@@ -0,0 +1,324 @@
+package bellman.ford;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Records every distance improvement of a run to a trace file that RelaxationTrace can replay.
+ * Attach it as the listener of an engine that reports per-edge callbacks (all but ParallelBellmanFord);
+ * the file is finished when the engine calls completed.
+ *
+ * File format (little-endian): a 32 byte header with the int MAGIC, the int VERSION, the vertex count,
+ * the edge count, the graph version from CompactGraph.version, which covers the weights as well as the
+ * edges, the source vertex and the checkpoint interval.
+ * Then one block per pass. A block for a pass that is a multiple of the checkpoint interval starts with
+ * the distance of every vertex at the start of the pass, as raw ints. Each block then holds a varint record
+ * count and one record per improvement: the edge index minus the previous record's edge index, and the new
+ * distance minus the old distance, both as zigzag varints. Each edge delta and distance delta applies
+ * forwards or backwards, so no old or new distance needs to be stored.
+ * The footer holds the pass count and the file offset of each block, and the file ends with the footer offset.
+ */
+public class TraceRecorder implements RelaxationListener, Closeable
+{
+    // "BFT1" in ASCII, marking a trace file.
+    static final int MAGIC = 0x31544642;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    // Passes between distance checkpoints, unless the caller picks another interval.
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 8;
+
+    private final CompactGraph graph;
+    private final int checkpointInterval;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    // The file offset of the next byte written to the buffer.
+    private long position = 0;
+    // The distance of every vertex as of the last callback, so each improvement's old distance is known.
+    private final int[] distances;
+    // The records of the current pass, encoded but not yet written.
+    private byte[] records = new byte[1024];
+    private final byte[] scratch = new byte[10];
+    private int recordBytes = 0;
+    private int recordCount = 0;
+    private int previousEdge = 0;
+    // The file offset of each finished pass block.
+    private long[] passOffsets = new long[64];
+    private int passCount = 0;
+    // Whether the current pass's block has been started. A block starts at its pass's first improvement or
+    // end, so no checkpoint is written for a pass that never comes after the last one.
+    private boolean passStarted = false;
+    private boolean closed = false;
+
+    /**
+     * Creates a trace file with the default checkpoint interval.
+     * @param path The file to write, replaced if it exists.
+     * @param graph The graph the engine runs on.
+     * @throws IOException If the file can't be created.
+     */
+    public TraceRecorder(Path path, CompactGraph graph) throws IOException
+    {
+        this(path, graph, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Creates a trace file.
+     * @param path The file to write, replaced if it exists.
+     * @param graph The graph the engine runs on.
+     * @param checkpointInterval The number of passes between distance checkpoints. Seeking replays at most
+     *        this many passes, and each checkpoint costs 4 bytes per vertex.
+     * @throws IOException If the file can't be created.
+     */
+    public TraceRecorder(Path path, CompactGraph graph, int checkpointInterval) throws IOException
+    {
+        if (checkpointInterval < 1)
+        {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1, got " + checkpointInterval);
+        }
+        this.graph = graph;
+        this.checkpointInterval = checkpointInterval;
+        distances = new int[graph.getSize()];
+        Arrays.fill(distances, ShortestPaths.INFINITY);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void started(int src)
+    {
+        distances[src] = 0;
+        try
+        {
+            putInt(MAGIC);
+            putInt(VERSION);
+            putInt(graph.getSize());
+            putInt(graph.getEdgeCount());
+            putLong(graph.version());
+            putInt(src);
+            putInt(checkpointInterval);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void distanceImproved(int from, int to, int edge, int distance)
+    {
+        if (!passStarted)
+        {
+            try
+            {
+                beginPass();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (records.length - recordBytes < 20)
+        {
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+        recordBytes = putVarint(records, recordBytes, zigzag(edge - previousEdge));
+        recordBytes = putVarint(records, recordBytes, zigzag((long) distance - distances[to]));
+        previousEdge = edge;
+        distances[to] = distance;
+        recordCount ++;
+    }
+
+    @Override
+    public void passCompleted(int pass)
+    {
+        try
+        {
+            if (!passStarted)
+            {
+                beginPass();
+            }
+            endPass();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void completed(ShortestPaths result)
+    {
+        try
+        {
+            // Improvements after the last passCompleted still make up a pass.
+            if (passStarted)
+            {
+                endPass();
+            }
+            close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the footer and closes the file. Called automatically when the engine completes.
+     * @throws IOException If the file can't be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            long footer = position;
+            putInt(passCount);
+            for (int p = 0; p < passCount; p ++)
+            {
+                putLong(passOffsets[p]);
+            }
+            putLong(footer);
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Starts the block of the next pass, writing a checkpoint of the current distances if one is due.
+     * @throws IOException If the file can't be written.
+     */
+    private void beginPass() throws IOException
+    {
+        if (passCount == passOffsets.length)
+        {
+            passOffsets = Arrays.copyOf(passOffsets, passCount * 2);
+        }
+        passOffsets[passCount] = position;
+        if (passCount % checkpointInterval == 0)
+        {
+            for (int distance : distances)
+            {
+                putInt(distance);
+            }
+        }
+        passStarted = true;
+    }
+
+    /**
+     * Finishes the block of the current pass by writing its record count and records.
+     * @throws IOException If the file can't be written.
+     */
+    private void endPass() throws IOException
+    {
+        ensure(10);
+        int length = putVarint(scratch, 0, recordCount);
+        buffer.put(scratch, 0, length);
+        position += length;
+        for (int offset = 0; offset < recordBytes; )
+        {
+            ensure(1);
+            int chunk = Math.min(buffer.remaining(), recordBytes - offset);
+            buffer.put(records, offset, chunk);
+            position += chunk;
+            offset += chunk;
+        }
+        passCount ++;
+        passStarted = false;
+        recordBytes = 0;
+        recordCount = 0;
+        previousEdge = 0;
+    }
+
+    /**
+     * Makes room for at least a number of bytes in the output buffer, writing it out if needed.
+     * @param bytes The number of bytes needed.
+     * @throws IOException If the file can't be written.
+     */
+    private void ensure(int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the output buffer to the file.
+     * @throws IOException If the file can't be written.
+     */
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Appends a long to the output.
+     * @param value The value.
+     * @throws IOException If the file can't be written.
+     */
+    private void putLong(long value) throws IOException
+    {
+        ensure(8);
+        buffer.putLong(value);
+        position += 8;
+    }
+
+    /**
+     * Maps a signed value to an unsigned one so small negative values get short varints.
+     * @param value The signed value.
+     * @return The zigzag encoded value.
+     */
+    static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Writes an unsigned varint: seven bits per byte, lowest bits first, with the high bit set on all but the last byte.
+     * @param out The array to write to, with room for 10 bytes.
+     * @param offset Where to write.
+     * @param value The value, treated as unsigned.
+     * @return The offset after the varint.
+     */
+    static int putVarint(byte[] out, int offset, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out[offset ++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[offset ++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Appends an int to the output.
+     * @param value The value.
+     * @throws IOException If the file can't be written.
+     */
+    private void putInt(int value) throws IOException
+    {
+        ensure(4);
+        buffer.putInt(value);
+        position += 4;
+    }
+}
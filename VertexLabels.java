@@ -0,0 +1,126 @@
+package bellman.ford;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A dense dictionary of vertex labels.
+ * Labels are stored in an array indexed by vertex id, so looking up a label is a single array read,
+ * and a reverse index maps each label back to its id for loading graphs that name their vertices.
+ */
+public class VertexLabels
+{
+    // The label of each vertex, or null if the vertex has no label.
+    private String[] labels;
+    // The reverse index from label to vertex id.
+    private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+    // One more than the largest id that has a label.
+    private int size;
+
+    /**
+     * Constructs an empty dictionary with room for a number of vertices.
+     * @param vertexes The expected number of vertices.
+     */
+    public VertexLabels(int vertexes)
+    {
+        labels = new String[Math.max(vertexes, 1)];
+    }
+
+    /**
+     * Sets the label of a vertex. Any previous label of the vertex is removed from the reverse index.
+     * Labels are unique, so the reverse index always names exactly one vertex.
+     * @param vertex The vertex id.
+     * @param label The label, for example "S".
+     * @throws IllegalArgumentException If another vertex already has the label.
+     */
+    public void put(int vertex, String label)
+    {
+        Integer owner = ids.get(label);
+        if (owner != null && owner != vertex)
+        {
+            throw new IllegalArgumentException("Label " + label + " already belongs to vertex " + owner);
+        }
+        ensureCapacity(vertex + 1);
+        if (labels[vertex] != null)
+        {
+            ids.remove(labels[vertex]);
+        }
+        labels[vertex] = label;
+        ids.put(label, vertex);
+        size = Math.max(size, vertex + 1);
+    }
+
+    /**
+     * Returns the label of a vertex.
+     * @param vertex The vertex id.
+     * @return The label, or the id as a string if the vertex has no label.
+     */
+    public String get(int vertex)
+    {
+        if (vertex < size && labels[vertex] != null)
+        {
+            return labels[vertex];
+        }
+        return String.valueOf(vertex);
+    }
+
+    /**
+     * Returns whether a vertex has a label.
+     * @param vertex The vertex id.
+     * @return True if a label was set for the vertex.
+     */
+    public boolean contains(int vertex)
+    {
+        return vertex >= 0 && vertex < size && labels[vertex] != null;
+    }
+
+    /**
+     * Returns the vertex id for a label.
+     * @param label The label to look up.
+     * @return The vertex id, or -1 if no vertex has the label.
+     */
+    public int idOf(String label)
+    {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the id of a label, giving it the next free id if it is new.
+     * Used when loading graphs whose edges refer to vertices by name.
+     * @param label The label.
+     * @return The vertex id of the label.
+     */
+    public int intern(String label)
+    {
+        Integer id = ids.get(label);
+        if (id != null)
+        {
+            return id;
+        }
+        int vertex = size;
+        put(vertex, label);
+        return vertex;
+    }
+
+    /**
+     * Returns one more than the largest labelled vertex id.
+     * @return The number of label slots in use.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Grows the label array to hold at least a number of vertices.
+     * @param capacity The number of vertices required.
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > labels.length)
+        {
+            labels = Arrays.copyOf(labels, Math.max(capacity, labels.length * 2));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package bellman.ford;
+
+/**
+ * Chooses the order in which an engine visits the vertices of a graph.
+ * Implementations live in VertexOrderings.
+ */
+@FunctionalInterface
+public interface VertexOrdering
+{
+    /**
+     * Computes a vertex order for a graph.
+     * @param graph The graph to order.
+     * @param src The source vertex of the upcoming run.
+     * @return A permutation of the vertices, where order[i] is the vertex visited i-th.
+     */
+    int[] order(CompactGraph graph, int src);
+}
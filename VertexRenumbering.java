@@ -0,0 +1,202 @@
+package bellman.ford;
+
+import java.util.Arrays;
+
+/**
+ * A copy of a graph with its vertices renumbered by a VertexOrdering and each vertex's out-edges
+ * sorted by target, together with the mapping back to the original vertex and edge ids.
+ * Engines sweep vertices and edges in index order, so after renumbering by BFS or RCM the vertices
+ * a sweep touches together sit close together in the distance array, and the sorted out-edges
+ * write to it in increasing address order. Solve the renumbered graph, then map the result back
+ * with restore.
+ */
+public final class VertexRenumbering
+{
+    private final CompactGraph graph;
+    // originalIds[v] is the original id of renumbered vertex v; newIds is its inverse.
+    private final int[] originalIds;
+    private final int[] newIds;
+    // originalEdges[e] is the original index of renumbered edge e.
+    private final int[] originalEdges;
+
+    /**
+     * Constructs a renumbering from its parts.
+     * @param graph The renumbered graph.
+     * @param originalIds The original id of each renumbered vertex.
+     * @param newIds The renumbered id of each original vertex.
+     * @param originalEdges The original index of each renumbered edge.
+     */
+    private VertexRenumbering(CompactGraph graph, int[] originalIds, int[] newIds, int[] originalEdges)
+    {
+        this.graph = graph;
+        this.originalIds = originalIds;
+        this.newIds = newIds;
+        this.originalEdges = originalEdges;
+    }
+
+    /**
+     * Renumbers a graph so that vertex i of the new graph is the i-th vertex of an ordering, and sorts
+     * each vertex's out-edges by their new target. Takes O(V + E) time on top of the ordering.
+     * @param graph The graph to renumber.
+     * @param ordering The ordering giving the new vertex ids, for example VertexOrderings.reverseCuthillMcKee().
+     * @param src The source vertex passed to the ordering.
+     * @return The renumbering.
+     * @throws IllegalArgumentException If the ordering isn't a permutation of the vertices.
+     */
+    public static VertexRenumbering of(CompactGraph graph, VertexOrdering ordering, int src)
+    {
+        int vertexCount = graph.getSize();
+        int edgeCount = graph.getEdgeCount();
+        int[] order = ordering.order(graph, src);
+        if (order.length != vertexCount)
+        {
+            throw new IllegalArgumentException("The ordering has " + order.length + " vertices, not " + vertexCount);
+        }
+        int[] rank = new int[vertexCount];
+        Arrays.fill(rank, -1);
+        for (int i = 0; i < vertexCount; i ++)
+        {
+            if (rank[order[i]] != -1)
+            {
+                throw new IllegalArgumentException("The ordering lists vertex " + order[i] + " twice");
+            }
+            rank[order[i]] = i;
+        }
+
+        // Bucket the edges by new target, then deal them out to their new source rows in that order;
+        // the second pass is stable, so every row comes out sorted by target without comparing.
+        int[] byTarget = new int[edgeCount];
+        int[] next = new int[vertexCount + 1];
+        for (int e = 0; e < edgeCount; e ++)
+        {
+            next[rank[graph.target(e)] + 1] ++;
+        }
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            next[v + 1] += next[v];
+        }
+        for (int e = 0; e < edgeCount; e ++)
+        {
+            byTarget[next[rank[graph.target(e)]] ++] = e;
+        }
+
+        int[] sources = graph.sources();
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            offsets[v + 1] = offsets[v] + graph.edgeEnd(order[v]) - graph.edgeStart(order[v]);
+        }
+        System.arraycopy(offsets, 0, next, 0, vertexCount);
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int[] originalEdges = new int[edgeCount];
+        for (int e : byTarget)
+        {
+            int slot = next[rank[sources[e]]] ++;
+            targets[slot] = rank[graph.target(e)];
+            weights[slot] = graph.weight(e);
+            originalEdges[slot] = e;
+        }
+        return new VertexRenumbering(new CompactGraph(offsets, targets, weights), order, rank, originalEdges);
+    }
+
+    /**
+     * Returns the renumbered graph.
+     * @return The graph with renumbered vertices and target-sorted out-edges.
+     */
+    public CompactGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * Returns the original id of a renumbered vertex.
+     * @param v The renumbered vertex.
+     * @return The vertex's id in the original graph.
+     */
+    public int toOriginal(int v)
+    {
+        return originalIds[v];
+    }
+
+    /**
+     * Returns the renumbered id of an original vertex, for example to translate a source vertex.
+     * @param v The vertex's id in the original graph.
+     * @return The renumbered vertex.
+     */
+    public int toRenumbered(int v)
+    {
+        return newIds[v];
+    }
+
+    /**
+     * Returns the original index of a renumbered edge.
+     * @param edge The edge index in the renumbered graph.
+     * @return The edge index in the original graph.
+     */
+    public int toOriginalEdge(int edge)
+    {
+        return originalEdges[edge];
+    }
+
+    /**
+     * Maps a result on the renumbered graph back to the original vertex and edge ids, so it can be
+     * used with the original graph, for example by pathTo, tree or NegativeCycle.find.
+     * @param result A result computed on getGraph().
+     * @return The same result indexed by original vertex ids.
+     */
+    public ShortestPaths restore(ShortestPaths result)
+    {
+        int[] distances = result.getDistances();
+        int[] predecessors = result.getPredecessors();
+        int[] predecessorEdges = result.getPredecessorEdges();
+        int vertexCount = distances.length;
+        int[] restoredDistances = new int[vertexCount];
+        int[] restoredPredecessors = new int[vertexCount];
+        int[] restoredEdges = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v ++)
+        {
+            int original = originalIds[v];
+            restoredDistances[original] = distances[v];
+            restoredPredecessors[original] = predecessors[v] == ShortestPaths.NO_PREDECESSOR
+                ? ShortestPaths.NO_PREDECESSOR : originalIds[predecessors[v]];
+            restoredEdges[original] = predecessorEdges[v] == ShortestPaths.NO_PREDECESSOR
+                ? ShortestPaths.NO_PREDECESSOR : originalEdges[predecessorEdges[v]];
+        }
+        int cycleVertex = result.getCycleVertex();
+        return new ShortestPaths(originalIds[result.getSource()], restoredDistances, restoredPredecessors, restoredEdges,
+            result.hasNegativeCycle(), result.getPasses(), result.getEdgesScanned(), result.isSaturated(),
+            cycleVertex == ShortestPaths.NO_PREDECESSOR ? ShortestPaths.NO_PREDECESSOR : originalIds[cycleVertex]);
+    }
+
+    /**
+     * Carries vertex labels over to the renumbered ids, so renumbered vertices print under their original names.
+     * @param labels The labels of the original vertices.
+     * @return The labels of the renumbered vertices.
+     */
+    public VertexLabels relabel(VertexLabels labels)
+    {
+        VertexLabels renumbered = new VertexLabels(originalIds.length);
+        for (int v = 0; v < originalIds.length; v ++)
+        {
+            if (labels.contains(originalIds[v]))
+            {
+                renumbered.put(v, labels.get(originalIds[v]));
+            }
+        }
+        return renumbered;
+    }
+
+    /**
+     * Wraps the renumbered graph in an adjacency list whose keyMap holds the original labels under the new ids,
+     * so runs on it, for example through App.bellmanFord, print the same names as the original graph.
+     * @param labels The labels of the original vertices, usually the original list's keyMap.
+     * @return The renumbered adjacency list.
+     */
+    public adjacencyList toAdjacencyList(VertexLabels labels)
+    {
+        adjacencyList list = new adjacencyList(graph);
+        list.keyMap = relabel(labels);
+        return list;
+    }
+}
@@ -0,0 +1,197 @@
+package bellman.ford;
+
+import java.awt.Color;
+import javax.swing.Timer;
+
+/**
+ * Connects a shortest path engine to a GraphVisualizer.
+ * Edges are highlighted red while they are relaxed and green when they find a shorter path.
+ * If the run finds a negative cycle, the cycle is highlighted once playback ends.
+ *
+ * The engine never touches the panel and never sleeps: each callback publishes an event into an
+ * EventRing and returns. A Swing Timer on the event dispatch thread plays the events back at the panel's
+ * playback speed, so all panel state is changed on the event thread. Events applied in the same frame are
+ * painted together. If the engine gets so far ahead that the ring fills up, later events are dropped and the
+ * panel jumps to the final result once the engine completes.
+ */
+public class VisualizerListener implements RelaxationListener
+{
+    // The number of events that can be waiting for playback before new ones are dropped.
+    private static final int RING_CAPACITY = 1 << 16;
+    // The playback timer interval, about 60 frames per second.
+    private static final int FRAME_MILLIS = 16;
+    // The most events applied in one frame, so a fast playback can't stall the event thread.
+    private static final int MAX_EVENTS_PER_FRAME = 100_000;
+
+    // The panel being animated.
+    private final GraphVisualizer graphVisualizer;
+    // Events published by the engine and waiting for playback.
+    private final EventRing ring = new EventRing(RING_CAPACITY);
+    // Set by the engine once every event has been published.
+    private volatile ShortestPaths finished;
+    // The negative cycle of the finished run, or null. Written before finished, so reading finished publishes it.
+    private NegativeCycle cycle;
+
+    // Playback state, used only on the event dispatch thread.
+    private final Timer timer;
+    private final int[] event = new int[3];
+    // Steps of playback time available; negative while waiting out the last step.
+    private double credit = 0;
+    private long lastTick;
+
+    /**
+     * Constructs a listener that animates a visualizer and starts its playback timer.
+     * @param graphVisualizer The visualizer to update. It must draw the same graph the engine runs on.
+     */
+    public VisualizerListener(GraphVisualizer graphVisualizer)
+    {
+        this.graphVisualizer = graphVisualizer;
+        timer = new Timer(FRAME_MILLIS, e -> playFrame());
+        lastTick = System.nanoTime();
+        timer.start();
+    }
+
+    @Override
+    public void started(int src)
+    {
+        ring.offer(EventRing.STARTED, src, 0);
+    }
+
+    @Override
+    public void edgeScanned(int from, int to, int edge)
+    {
+        ring.offer(EventRing.SCANNED, edge, 0);
+    }
+
+    @Override
+    public void distanceImproved(int from, int to, int edge, int distance)
+    {
+        ring.offer(EventRing.IMPROVED, edge, distance);
+    }
+
+    @Override
+    public void edgeFinished(int from, int to, int edge)
+    {
+        ring.offer(EventRing.FINISHED, edge, 0);
+    }
+
+    @Override
+    public void passCompleted(int pass)
+    {
+        ring.offer(EventRing.PASS, pass, 0);
+    }
+
+    @Override
+    public void completed(ShortestPaths result)
+    {
+        // Extract the cycle here, on the engine's thread, rather than on the event thread.
+        cycle = NegativeCycle.find(graphVisualizer.getGraph(), result);
+        finished = result;
+    }
+
+    /**
+     * Applies the events that are due in this frame. Runs on the event dispatch thread.
+     */
+    private void playFrame()
+    {
+        long now = System.nanoTime();
+        double speed = graphVisualizer.getPlaybackSpeed();
+        credit += speed > 0 ? (now - lastTick) / 1e9 * speed : Double.POSITIVE_INFINITY;
+        lastTick = now;
+
+        // Read the result before draining, so an empty ring afterwards means every event was played.
+        ShortestPaths result = finished;
+        int applied = 0;
+        while (credit >= 0 && applied < MAX_EVENTS_PER_FRAME && ring.poll(event))
+        {
+            apply(event[0], event[1], event[2]);
+            credit -= cost(event[0]);
+            applied ++;
+        }
+        if (!ring.isEmpty())
+        {
+            return;
+        }
+        // Don't bank idle time, or a burst of later events would play all at once.
+        credit = Math.min(credit, 0);
+
+        if (result != null && credit >= 0)
+        {
+            timer.stop();
+            if (ring.dropped() > 0)
+            {
+                // Events were lost, so replace whatever was played with the final distances.
+                graphVisualizer.clearHighlights();
+                int[] distances = result.getDistances();
+                for (int v = 0; v < distances.length; v ++)
+                {
+                    graphVisualizer.updateNodeDistance(v, distances[v]);
+                }
+                graphVisualizer.setCycle(result.getPasses());
+            }
+            // If no negative cycles are found, highlight the shortest path tree as complete.
+            if (!result.hasNegativeCycle())
+            {
+                graphVisualizer.complete(result);
+            }
+            else
+            {
+                graphVisualizer.highlightNegativeCycle(cycle);
+            }
+        }
+    }
+
+    /**
+     * Shows one event on the panel.
+     * @param kind The event kind.
+     * @param index The edge index or vertex id.
+     * @param value The event's value.
+     */
+    private void apply(int kind, int index, int value)
+    {
+        switch (kind)
+        {
+            case EventRing.STARTED:
+                graphVisualizer.updateNodeDistance(index, 0);
+                break;
+            case EventRing.SCANNED:
+                // Visualize the edge being "relaxed" by turning it red.
+                graphVisualizer.highlightEdge(index, Color.RED);
+                break;
+            case EventRing.IMPROVED:
+                // Update the visualization to show the shorter path in green.
+                graphVisualizer.updateNodeDistance(graphVisualizer.edgeTarget(index), value);
+                graphVisualizer.highlightEdge(index, Color.GREEN);
+                break;
+            case EventRing.FINISHED:
+                // Reset the edge color to black after the relaxation check.
+                graphVisualizer.highlightEdge(index, Color.BLACK);
+                break;
+            case EventRing.PASS:
+                graphVisualizer.setCycle(index + 1); // Update the cycle count for the visualizer.
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns how many playback steps an event is held on screen before the next one is shown.
+     * Scans and improvements take one step each, matching the old one second pauses at the default speed.
+     * @param kind The event kind.
+     * @return The number of steps.
+     */
+    private static double cost(int kind)
+    {
+        switch (kind)
+        {
+            case EventRing.STARTED:
+                return 0.5;
+            case EventRing.SCANNED:
+            case EventRing.IMPROVED:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+}
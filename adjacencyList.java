@@ -1,21 +1,34 @@
 package bellman.ford;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet; 
+import java.util.Arrays;
 
 /**
- * Represents a graph using an adjacency list data structure.
+ * Builds a graph from individual addEdge calls and freezes it into a CompactGraph.
+ * Edges are buffered in flat primitive arrays rather than one Edge object per edge.
  * It also includes a naive algorithm for comparison.
  */
 public class adjacencyList 
 {
-    // The main adjacency list, where each index represents a vertex
-    // and holds a list of Edge objects.
-    public ArrayList<ArrayList<Edge>> adjList; 
-    // A map to convert integer indexes to node labels (e.g., 0 -> "S").
-    public HashMap<Integer, String> keyMap;
+    // The number of vertices in the graph.
+    private final int vertexes;
+    // Pending edges stored as parallel arrays: source, destination and weight.
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private int[] edgeWeights;
+    // The number of edges added so far.
+    private int edgeCount;
+    // The frozen CSR form of the graph, rebuilt lazily after the graph changes.
+    private CompactGraph compact;
+    // A dense table to convert integer indexes to node labels (e.g., 0 -> "S") and back.
+    public VertexLabels keyMap;
     // An array to store the shortest path distances.
     public int[] shortestPath;
+    // The number of paths the last naive run extended.
+    public long naivePathsExplored;
+
+    // The default limits for the naive approach, which is exponential on most graphs.
+    public static final long DEFAULT_PATH_BUDGET = 50_000_000L;
+    public static final long DEFAULT_TIME_BUDGET_NANOS = 10_000_000_000L;
 
     /**
      * Initializes a new adjacency list with a specified number of vertices.
@@ -23,17 +36,60 @@ public class adjacencyList
      */
     public adjacencyList(int vertexes)
     {
-        adjList = new ArrayList<ArrayList<Edge>>();
-        for (int i = 0; i < vertexes; i ++)
-        {
-            ArrayList<Edge> temp = new ArrayList<Edge>();
-            adjList.add(temp);
-        }
+        this(vertexes, 8);
+    }
+
+    /**
+     * Initializes a new adjacency list with room for a known number of edges,
+     * so large graphs are built without growing the edge arrays.
+     * @param vertexes The number of vertices in the graph.
+     * @param expectedEdges The number of edges the caller expects to add.
+     */
+    public adjacencyList(int vertexes, int expectedEdges)
+    {
+        this.vertexes = vertexes;
+        int capacity = Math.max(expectedEdges, 8);
+        edgeSources = new int[capacity];
+        edgeTargets = new int[capacity];
+        edgeWeights = new int[capacity];
 
-        keyMap = new HashMap<Integer, String>();
+        keyMap = new VertexLabels(vertexes);
         shortestPath = new int[vertexes];
     }
 
+    /**
+     * Initializes an adjacency list that takes ownership of already-filled edge arrays.
+     * Used by GraphLoader to avoid copying edges it has just parsed.
+     * @param vertexes The number of vertices in the graph.
+     * @param sources The source vertex of each edge.
+     * @param targets The destination vertex of each edge.
+     * @param weights The weight of each edge.
+     * @param edgeCount The number of edges stored in the arrays.
+     */
+    adjacencyList(int vertexes, int[] sources, int[] targets, int[] weights, int edgeCount)
+    {
+        this.vertexes = vertexes;
+        edgeSources = sources;
+        edgeTargets = targets;
+        edgeWeights = weights;
+        this.edgeCount = edgeCount;
+
+        keyMap = new VertexLabels(vertexes);
+        shortestPath = new int[vertexes];
+    }
+
+    /**
+     * Initializes an adjacency list holding the edges of a frozen graph, for example one read
+     * with GraphLoader.readBinary. The frozen graph is used as-is; its edges are only copied
+     * into growable arrays if addEdge is called later.
+     * @param graph The graph to wrap.
+     */
+    public adjacencyList(CompactGraph graph)
+    {
+        this(graph.getSize(), null, null, null, graph.getEdgeCount());
+        compact = graph;
+    }
+
     /**
      * Adds a new directed edge to the graph.
      * @param u The source vertex.
@@ -42,27 +98,79 @@ public class adjacencyList
      */
     public void addEdge(int u, int v, int w)
     {
-        Edge edge = new Edge(v, w);
-        adjList.get(u).add(edge);
+        if (u < 0 || u >= vertexes || v < 0 || v >= vertexes)
+        {
+            throw new IndexOutOfBoundsException("Edge " + u + "->" + v + " is outside a graph of " + vertexes + " vertices");
+        }
+        // A graph wrapped from a CompactGraph has no edge arrays until the first new edge.
+        if (edgeSources == null)
+        {
+            edgeSources = compact.sources();
+            edgeTargets = compact.targets.clone();
+            edgeWeights = compact.weights.clone();
+        }
+        // Grow the edge arrays geometrically when they are full.
+        if (edgeCount == edgeSources.length)
+        {
+            int capacity = (int) Math.min(Math.max(edgeCount * 2L, 8), Integer.MAX_VALUE - 8);
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+        }
+        edgeSources[edgeCount] = u;
+        edgeTargets[edgeCount] = v;
+        edgeWeights[edgeCount] = w;
+        edgeCount ++;
+        compact = null;
+    }
+
+    /**
+     * Freezes the edges added so far into an immutable CSR graph.
+     * The result is cached until the next call to addEdge.
+     * @return The CompactGraph holding every edge of this graph.
+     */
+    public CompactGraph freeze()
+    {
+        if (compact == null)
+        {
+            compact = CompactGraph.fromEdges(vertexes, edgeCount, edgeSources, edgeTargets, edgeWeights);
+        }
+        return compact;
     }
 
     /**
      * Retrieves the list of edges from a specific vertex.
+     * The Edge objects are created on each call, so this should not be used in hot loops.
      * @param vertex The vertex to get edges from.
      * @return An ArrayList of Edge objects.
      */
     public ArrayList<Edge> getEdges(int vertex)
     {
-        return adjList.get(vertex);
+        CompactGraph graph = freeze();
+        ArrayList<Edge> edges = new ArrayList<Edge>();
+        for (int e = graph.edgeStart(vertex); e < graph.edgeEnd(vertex); e ++)
+        {
+            edges.add(new Edge(graph.target(e), graph.weight(e)));
+        }
+        return edges;
     }
 
     /**
      * Returns the total number of vertices in the graph.
-     * @return The size of the adjacency list.
+     * @return The number of vertices.
      */
     public int getSize()
     {
-        return adjList.size();
+        return vertexes;
+    }
+
+    /**
+     * Returns the total number of edges in the graph.
+     * @return The number of edges added so far.
+     */
+    public int getEdgeCount()
+    {
+        return edgeCount;
     }
 
     /**
@@ -74,57 +182,112 @@ public class adjacencyList
     {
         String ret = "";
         ret+= keyMap.get(vertex) + ": ";
-        ArrayList<Edge> edges = getEdges(vertex);
-        for (int i = 0; i < edges.size(); i ++)
+        CompactGraph graph = freeze();
+        for (int e = graph.edgeStart(vertex); e < graph.edgeEnd(vertex); e ++)
         {
-            ret += edges.get(i).edgeToString(keyMap) + " ";
+            ret += new Edge(graph.target(e), graph.weight(e)).edgeToString(keyMap) + " ";
         }
         return ret; 
     }
 
+    /**
+     * Implements a naive approach to finding the shortest path using a depth-first traversal,
+     * with the default budget of DEFAULT_PATH_BUDGET paths and DEFAULT_TIME_BUDGET_NANOS.
+     * @param src The source vertex.
+     * @return True if every simple path was explored, false if the budget ran out first.
+     */
+    public boolean naiveApproach(int src)
+    {
+        return naiveApproach(src, DEFAULT_PATH_BUDGET, DEFAULT_TIME_BUDGET_NANOS);
+    }
+
     /**
      * Implements a naive approach to finding the shortest path using a depth-first traversal.
      * This approach is for comparison purposes and does not handle negative cycles correctly.
+     * It enumerates simple paths from the source with an explicit stack instead of recursion, so deep
+     * graphs cannot overflow the call stack, and tracks the vertices on the current path in a bitset.
+     * When the graph has no negative edges, a path that is no shorter than the best known distance to
+     * its end vertex cannot lead anywhere better, so it is not extended.
+     * The enumeration is exponential in general, so it stops once it has extended pathBudget paths
+     * or run past timeBudgetNanos. In that case it returns false and shortestPath holds only upper bounds,
+     * which must not be compared against Bellman-Ford.
      * @param src The source vertex.
+     * @param pathBudget The maximum number of paths to extend.
+     * @param timeBudgetNanos The maximum time to run, in nanoseconds.
+     * @return True if every simple path was explored, false if the budget ran out first.
      */
-    public void naiveApproach(int src)
+    public boolean naiveApproach(int src, long pathBudget, long timeBudgetNanos)
     {
-        HashSet<Integer> vertexMap = new HashSet<Integer>();
+        CompactGraph graph = freeze();
+        long startTime = System.nanoTime();
+
         // Initialize shortest path distances to infinity, except for the source.
         for (int i = 0; i < shortestPath.length; i ++)
         {
             shortestPath[i] = Integer.MAX_VALUE;
         }
         shortestPath[src] = 0; 
-        vertexMap.add(src);
-        depthSearchHelper(src, 0, vertexMap); 
-    }
 
-    /**
-     * Helper function for the naive depth-first search approach.
-     * It recursively explores the graph to find paths and update distances.
-     * @param curr The current vertex in the traversal.
-     * @param currWeight The cumulative weight to the current vertex.
-     * @param vertexMap A set to keep track of visited vertices to avoid cycles.
-     */
-    public void depthSearchHelper(int curr, int currWeight, HashSet<Integer> vertexMap)
-    {
-        ArrayList<Edge> currEdges = adjList.get(curr);
-        for (int i = 0; i < currEdges.size(); i ++)
+        boolean prune = true;
+        for (int e = 0; e < graph.getEdgeCount(); e ++)
+        {
+            prune &= graph.weight(e) >= 0;
+        }
+
+        // One bit per vertex, set while the vertex is on the current path.
+        long[] onPath = new long[(vertexes + 63) >>> 6];
+        // The current path: each level holds a vertex, the next out-edge to try and the path weight so far.
+        // A simple path visits each vertex at most once, so V levels are enough.
+        int[] stackVertex = new int[vertexes];
+        int[] stackEdge = new int[vertexes];
+        long[] stackWeight = new long[vertexes];
+        int depth = 0;
+        stackVertex[0] = src;
+        stackEdge[0] = graph.edgeStart(src);
+        onPath[src >>> 6] |= 1L << src;
+        naivePathsExplored = 0;
+
+        while (depth >= 0)
         {
-            Edge currEdge = currEdges.get(i);
-            int currVertex = currEdge.vertex;
-            if (!vertexMap.contains(currVertex))
+            int curr = stackVertex[depth];
+            int e = stackEdge[depth];
+            if (e == graph.edgeEnd(curr))
             {
-                int newWeight = currWeight + currEdge.weight;
-                if (newWeight < shortestPath[currVertex])
-                {
-                    shortestPath[currVertex] = newWeight;
-                }
-                vertexMap.add(currVertex);
-                depthSearchHelper(currVertex, newWeight, vertexMap);
+                // Every edge out of this vertex has been tried, so backtrack.
+                onPath[curr >>> 6] &= ~(1L << curr);
+                depth --;
+                continue;
             }
+            stackEdge[depth] = e + 1;
+
+            int currVertex = graph.target(e);
+            if ((onPath[currVertex >>> 6] & (1L << currVertex)) != 0)
+            {
+                continue;
+            }
+
+            naivePathsExplored ++;
+            if (naivePathsExplored > pathBudget || ((naivePathsExplored & 1023) == 0 && System.nanoTime() - startTime > timeBudgetNanos))
+            {
+                return false;
+            }
+
+            long newWeight = stackWeight[depth] + graph.weight(e); // Kept in long so long paths cannot wrap.
+            if (newWeight < shortestPath[currVertex])
+            {
+                shortestPath[currVertex] = Distances.clamp(newWeight);
+            }
+            else if (prune)
+            {
+                continue;
+            }
+
+            depth ++;
+            stackVertex[depth] = currVertex;
+            stackEdge[depth] = graph.edgeStart(currVertex);
+            stackWeight[depth] = newWeight;
+            onPath[currVertex >>> 6] |= 1L << currVertex;
         }
-        vertexMap.remove(curr);
+        return true;
     }
 }
@@ -0,0 +1,159 @@
+package bellman.ford.jmh;
+
+import bellman.ford.BellmanFordSolver;
+import bellman.ford.CompactGraph;
+import bellman.ford.DynamicShortestPaths;
+import bellman.ford.GraphGenerator;
+import bellman.ford.QueueBellmanFord;
+import bellman.ford.adjacencyList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The JMH version of the Benchmark harness: graph construction, the headless Bellman-Ford engine, the
+ * queue engine, incremental updates and the naive approach, over the same generated random, grid and
+ * scale-free graphs. Results go to a Blackhole, so the JIT can't discard the work, and running with
+ * -prof gc reports the bytes allocated per operation.
+ *
+ * The forked JVM gets a 4 GB heap, enough for the 10^7 edge graphs.
+ *
+ * Usage: java -jar target/benchmarks.jar -prof gc [-p family=grid] [-p edges=1000000]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GraphBenchmark
+{
+    // The naive approach is exponential, so it gets a fixed path budget per run.
+    private static final long NAIVE_PATH_BUDGET = 10_000_000L;
+    // The number of weight changes timed together in the incremental update case.
+    private static final int UPDATES_PER_OP = 1_000;
+
+    @Param({ "random", "grid", "scale-free" })
+    public String family;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int edges;
+
+    private adjacencyList graph;
+    private CompactGraph compact;
+    private int[] sources;
+    private DynamicShortestPaths dynamic;
+    private SplittableRandom changes;
+
+    /**
+     * Generates the graph for the current parameters, sized like Benchmark's graphs.
+     */
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        int side = (int) Math.max(2, Math.sqrt(edges / 4.0));
+        switch (family)
+        {
+            case "random":
+                graph = GraphGenerator.random(edges / 4, edges, 100, 42L);
+                break;
+            case "grid":
+                graph = GraphGenerator.grid(side, side, 100, 42L);
+                break;
+            case "scale-free":
+                graph = GraphGenerator.scaleFree(edges / 4, 4, 100, 42L);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown graph family " + family);
+        }
+        compact = graph.freeze();
+        sources = compact.sources();
+    }
+
+    /**
+     * Rebuilds the incremental state before each iteration, so every iteration of update starts from the
+     * generated weights and applies the same changes instead of carrying on from the previous one's graph.
+     */
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        dynamic = new DynamicShortestPaths(compact, 0);
+        changes = new SplittableRandom(42L);
+    }
+
+    /**
+     * Builds the graph from addEdge calls and freezes it.
+     * @return The frozen graph.
+     */
+    @Benchmark
+    public CompactGraph addEdge()
+    {
+        int edgeCount = compact.getEdgeCount();
+        adjacencyList copy = new adjacencyList(compact.getSize(), edgeCount);
+        for (int e = 0; e < edgeCount; e ++)
+        {
+            copy.addEdge(sources[e], compact.target(e), compact.weight(e));
+        }
+        return copy.freeze();
+    }
+
+    /**
+     * Runs the headless full-sweep engine from vertex 0.
+     * @param blackhole Consumes the result.
+     */
+    @Benchmark
+    public void bellmanFord(Blackhole blackhole)
+    {
+        blackhole.consume(BellmanFordSolver.solve(compact, 0));
+    }
+
+    /**
+     * Runs the queue engine from vertex 0, the full recomputation the incremental updates compete with.
+     * @param blackhole Consumes the result.
+     */
+    @Benchmark
+    public void queueSolve(Blackhole blackhole)
+    {
+        blackhole.consume(QueueBellmanFord.solve(compact, 0));
+    }
+
+    /**
+     * Applies random weight changes, both increases and decreases, each repaired incrementally.
+     * @param blackhole Consumes the edges scanned by each repair.
+     */
+    @Benchmark
+    @OperationsPerInvocation(UPDATES_PER_OP)
+    public void update(Blackhole blackhole)
+    {
+        int edgeCount = compact.getEdgeCount();
+        for (int i = 0; i < UPDATES_PER_OP; i ++)
+        {
+            dynamic.updateWeight(changes.nextInt(edgeCount), changes.nextInt(101));
+            blackhole.consume(dynamic.getLastEdgesScanned());
+        }
+    }
+
+    /**
+     * Runs the naive approach from vertex 0 with a fixed path budget.
+     * @param blackhole Consumes whether it finished and its distances.
+     */
+    @Benchmark
+    public void naive(Blackhole blackhole)
+    {
+        blackhole.consume(graph.naiveApproach(0, NAIVE_PATH_BUDGET, Long.MAX_VALUE));
+        blackhole.consume(graph.shortestPath);
+    }
+}